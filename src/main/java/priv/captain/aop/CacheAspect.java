@@ -0,0 +1,124 @@
+package priv.captain.aop;
+
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.stereotype.Component;
+
+/**
+ * 方法结果缓存切面
+ * 说明：
+ * 1. @Cached 方法以参数为键缓存返回值，@CacheEvict 方法按键或整体清除缓存。
+ * 2. 注解解析、缓存查找和键生成器选择都在方法第一次调用时完成并按 Method 缓存，
+ *    之后每次调用只有一次 ConcurrentHashMap 读取和一次键生成，没有反射。
+ * 3. 切入点不绑定注解参数（@annotation(cached)），避免每次调用都解析注解。
+ */
+@Aspect
+@Component
+public class CacheAspect {
+
+    private final ConcurrentMap<String, MethodResultCache> caches = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Method, CacheOperation> cachedOperations = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Method, CacheOperation> evictOperations = new ConcurrentHashMap<>();
+
+    @Around("@annotation(priv.captain.aop.Cached)")
+    public Object cacheAround(ProceedingJoinPoint joinPoint) throws Throwable {
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        CacheOperation operation = cachedOperations.get(method);
+        if (operation == null) {
+            operation = cachedOperations.computeIfAbsent(method, m -> cachedOperation(m, joinPoint.getTarget()));
+        }
+        Object key = operation.keyGenerator.generate(joinPoint.getArgs());
+        return operation.cache.get(key, joinPoint::proceed);
+    }
+
+    @Around("@annotation(priv.captain.aop.CacheEvict)")
+    public Object evictAround(ProceedingJoinPoint joinPoint) throws Throwable {
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        CacheOperation operation = evictOperations.get(method);
+        if (operation == null) {
+            operation = evictOperations.computeIfAbsent(method, m -> evictOperation(m, joinPoint.getTarget()));
+        }
+        if (operation.beforeInvocation) {
+            evict(operation, joinPoint.getArgs());
+            return joinPoint.proceed();
+        }
+        Object result = joinPoint.proceed();
+        evict(operation, joinPoint.getArgs());
+        return result;
+    }
+
+    /**
+     * 按名称获取缓存，用于查看命中率或手动清除
+     */
+    public MethodResultCache getCache(String name) {
+        return caches.get(name);
+    }
+
+    public Collection<MethodResultCache> getCaches() {
+        return Collections.unmodifiableCollection(caches.values());
+    }
+
+    private void evict(CacheOperation operation, Object[] args) {
+        // 被清除的缓存可能还没有被 @Cached 方法创建，每次按名称查找（清除发生在写路径上，多一次map读取可以接受）
+        MethodResultCache cache = caches.get(operation.cacheName);
+        if (cache == null) {
+            return;
+        }
+        if (operation.allEntries) {
+            cache.clear();
+        } else {
+            cache.evict(operation.keyGenerator.generate(args));
+        }
+    }
+
+    private CacheOperation cachedOperation(Method method, Object target) {
+        Method specificMethod = specificMethod(method, target);
+        Cached cached = AnnotatedElementUtils.findMergedAnnotation(specificMethod, Cached.class);
+        String name = cached.value().isEmpty() ? specificMethod.toGenericString() : cached.value();
+        MethodResultCache cache = caches.computeIfAbsent(name,
+                n -> new MethodResultCache(n, cached.timeUnit().toNanos(cached.ttl()), cached.maximumSize()));
+        return new CacheOperation(name, cache, CacheKeyGenerator.of(cached.key(), method.getParameterTypes()),
+                false, false);
+    }
+
+    private CacheOperation evictOperation(Method method, Object target) {
+        CacheEvict evict = AnnotatedElementUtils.findMergedAnnotation(specificMethod(method, target),
+                CacheEvict.class);
+        return new CacheOperation(evict.value(), null, CacheKeyGenerator.of(evict.key(), method.getParameterTypes()),
+                evict.allEntries(), evict.beforeInvocation());
+    }
+
+    private static Method specificMethod(Method method, Object target) {
+        return target == null ? method : AopUtils.getMostSpecificMethod(method, target.getClass());
+    }
+
+    /**
+     * 预先解析好的缓存操作
+     */
+    private static final class CacheOperation {
+        private final String cacheName;
+        private final MethodResultCache cache;
+        private final CacheKeyGenerator keyGenerator;
+        private final boolean allEntries;
+        private final boolean beforeInvocation;
+
+        CacheOperation(String cacheName, MethodResultCache cache, CacheKeyGenerator keyGenerator,
+                boolean allEntries, boolean beforeInvocation) {
+            this.cacheName = cacheName;
+            this.cache = cache;
+            this.keyGenerator = keyGenerator;
+            this.allEntries = allEntries;
+            this.beforeInvocation = beforeInvocation;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package priv.captain.aop;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 缓存清除注解，一般用在修改数据的方法上
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface CacheEvict {
+
+    String value();// 缓存名，对应 @Cached 的 value
+
+    int[] key() default {};// 参与缓存键的参数下标，为空时使用全部参数，需与 @Cached 生成的键一致
+
+    boolean allEntries() default false;// 是否清空整个缓存
+
+    boolean beforeInvocation() default false;// 是否在方法执行前清除，默认方法成功返回后清除
+
+}
@@ -0,0 +1,100 @@
+package priv.captain.aop;
+
+import java.util.Arrays;
+
+/**
+ * 缓存键生成器，每个方法在第一次调用时按参数个数和类型预先选定一种实现，之后每次调用不再有反射和判断
+ */
+@FunctionalInterface
+public interface CacheKeyGenerator {
+
+    Object generate(Object[] args);
+
+    /**
+     * 无参方法，所有调用共用一个键
+     */
+    Object EMPTY_KEY = new Object() {
+        @Override
+        public String toString() {
+            return "EMPTY_KEY";
+        }
+    };
+
+    /**
+     * null 参数的占位键，ConcurrentHashMap 不允许 null 键
+     */
+    Object NULL_KEY = new Object() {
+        @Override
+        public String toString() {
+            return "NULL_KEY";
+        }
+    };
+
+    /**
+     * 根据参与缓存键的参数下标和参数类型选定生成器
+     *
+     * @param indexes        参数下标，为空时使用全部参数
+     * @param parameterTypes 方法参数类型
+     * @return
+     */
+    static CacheKeyGenerator of(int[] indexes, Class<?>[] parameterTypes) {
+        int[] selected = indexes.length > 0 ? indexes.clone() : allIndexes(parameterTypes.length);
+        for (int index : selected) {
+            if (index < 0 || index >= parameterTypes.length) {
+                throw new IllegalArgumentException("缓存键参数下标越界：" + index);
+            }
+        }
+        if (selected.length == 0) {
+            return args -> EMPTY_KEY;
+        }
+        if (selected.length == 1 && !parameterTypes[selected[0]].isArray()) {
+            // 单个非数组参数直接作为键，不额外分配对象
+            int index = selected[0];
+            return args -> args[index] == null ? NULL_KEY : args[index];
+        }
+        return args -> {
+            Object[] values = new Object[selected.length];
+            for (int i = 0; i < selected.length; i++) {
+                values[i] = args[selected[i]];
+            }
+            return new CompositeKey(values);
+        };
+    }
+
+    private static int[] allIndexes(int length) {
+        int[] indexes = new int[length];
+        for (int i = 0; i < length; i++) {
+            indexes[i] = i;
+        }
+        return indexes;
+    }
+
+    /**
+     * 多参数（或数组参数）组合键，按内容比较
+     */
+    final class CompositeKey {
+        private final Object[] values;
+        private final int hash;
+
+        CompositeKey(Object[] values) {
+            this.values = values;
+            this.hash = Arrays.deepHashCode(values);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return this == o || (o instanceof CompositeKey && hash == ((CompositeKey) o).hash
+                    && Arrays.deepEquals(values, ((CompositeKey) o).values));
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public String toString() {
+            return Arrays.deepToString(values);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package priv.captain.aop;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 方法结果缓存注解，以方法参数作为缓存键
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface Cached {
+
+    String value() default "";// 缓存名，为空时使用方法全名；同名的方法共享一个缓存，可被 @CacheEvict 按名清除
+
+    int[] key() default {};// 参与缓存键的参数下标，为空时使用全部参数
+
+    long ttl() default 60;// 过期时间
+
+    TimeUnit timeUnit() default TimeUnit.SECONDS;
+
+    int maximumSize() default 1000;// 最大缓存条数，同名缓存以第一次创建时的配置为准
+
+}
@@ -0,0 +1,44 @@
+package priv.captain.aop;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 内存权限数据来源，容器中没有其他 PermissionSource 时作为默认实现，也便于测试
+ */
+public class InMemoryPermissionSource implements PermissionSource {
+
+    private final ConcurrentMap<Object, Set<String>> permissions = new ConcurrentHashMap<>();
+    private final AtomicLong version = new AtomicLong();
+
+    public void grant(Object userId, String... permissionValues) {
+        Set<String> userPermissions = permissions.computeIfAbsent(userId, id -> ConcurrentHashMap.newKeySet());
+        Collections.addAll(userPermissions, permissionValues);
+        version.incrementAndGet();
+    }
+
+    public void revoke(Object userId, String... permissionValues) {
+        Set<String> userPermissions = permissions.get(userId);
+        if (userPermissions != null) {
+            for (String permissionValue : permissionValues) {
+                userPermissions.remove(permissionValue);
+            }
+        }
+        version.incrementAndGet();
+    }
+
+    @Override
+    public Collection<String> loadPermissions(Object userId) {
+        Set<String> userPermissions = permissions.get(userId);
+        return userPermissions == null ? Collections.emptySet() : userPermissions;
+    }
+
+    @Override
+    public long version() {
+        return version.get();
+    }
+}
@@ -1,20 +1,37 @@
 package priv.captain.aop;
 
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
 import org.springframework.stereotype.Component;
 
+import priv.captain.audit.AuditLogger;
+import priv.captain.common.context.UserContext;
+
 /**
  * 日志记录切面
  * 说明：
  * 1. @Aspect 表示这是一个切面类
  * 2. @Component 将切面加入 Spring 容器
+ * 3. 操作日志发布到 AuditLogger，由后台线程批量落盘，业务线程不做同步打印；
+ *    每个方法第一次调用时登记为审计操作，之后每次只发布缓存的操作ID和 nanoTime，不拼字符串、不新建审计记录。
  */
 @Aspect
 @Component
 public class LogAspect {
 
+    private final AuditLogger auditLogger;
+    private final ConcurrentMap<Method, Integer> operationIds = new ConcurrentHashMap<>();
+
+    public LogAspect(AuditLogger auditLogger) {
+        this.auditLogger = auditLogger;
+    }
+
     /**
      * 环绕通知示例
      * 说明：
@@ -24,19 +41,36 @@ public class LogAspect {
      * 1）获取目标方法信息（方法名、参数、目标对象等）。
      * 2）决定是否执行目标方法，并可在执行前后增加自定义逻辑。
      * 3）可以修改方法参数或返回值。
-     * 
+     *
      * @param joinPoint
      * @return
      * @throws Throwable
      */
     @Around("execution(* priv.captain.service..*(..))")
     public Object logAround(ProceedingJoinPoint joinPoint) throws Throwable {
-        long t1 = System.currentTimeMillis();
-        Object result = joinPoint.proceed();
-        long t2 = System.currentTimeMillis();
-        String methodSign = joinPoint.getSignature().toLongString();
-        System.out.println("执行方法：" + methodSign + "，耗时：" + (t2 - t1) + "ms");
-        return result;
+        int operationId = operationIdOf(((MethodSignature) joinPoint.getSignature()).getMethod());
+        long t1 = System.nanoTime();
+        boolean success = false;
+        try {
+            Object result = joinPoint.proceed();
+            success = true;
+            return result;
+        } finally {
+            long t2 = System.nanoTime();
+            auditLogger.publishOperation(operationId, UserContext.getUserId(), t2, t2 - t1, success);
+        }
+    }
+
+    /**
+     * Spring AOP 每次调用都会新建 Signature 对象，所以按其中稳定的 Method 缓存
+     */
+    private int operationIdOf(Method method) {
+        Integer id = operationIds.get(method);
+        if (id == null) {
+            id = operationIds.computeIfAbsent(method, m -> auditLogger.registerOperation(
+                    m.getDeclaringClass().getSimpleName() + "." + m.getName(), m.getDeclaringClass().getName()));
+        }
+        return id;
     }
 
 }
@@ -0,0 +1,116 @@
+package priv.captain.aop;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 单个方法的耗时统计：延迟直方图 + 异常次数
+ * 方法名在创建时生成一次，记录路径上不再拼接字符串。
+ */
+public class MethodMetrics {
+
+    private final String name;
+    private final LatencyHistogram histogram = new LatencyHistogram();
+    private final LongAdder errors = new LongAdder();
+
+    public MethodMetrics(Method method) {
+        this.name = method.getDeclaringClass().getName() + "." + method.getName() + "("
+                + parameterNames(method.getParameterTypes()) + ")";
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 记录一次调用
+     *
+     * @param nanos  耗时（纳秒）
+     * @param failed 是否抛出异常
+     */
+    public void record(long nanos, boolean failed) {
+        histogram.record(nanos);
+        if (failed) {
+            errors.increment();
+        }
+    }
+
+    public Snapshot snapshot() {
+        long[] percentiles = histogram.getValuesAtPercentiles(50, 99, 99.9);
+        return new Snapshot(name, histogram.getCount(), errors.sum(), histogram.getMean(), percentiles[0],
+                percentiles[1], percentiles[2], histogram.getMax());
+    }
+
+    public void reset() {
+        histogram.reset();
+        errors.reset();
+    }
+
+    private static String parameterNames(Class<?>[] types) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < types.length; i++) {
+            if (i > 0) {
+                sb.append(",");
+            }
+            sb.append(types[i].getSimpleName());
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 统计快照，时间单位均为纳秒
+     */
+    public static class Snapshot {
+        private final String method;
+        private final long count;
+        private final long errors;
+        private final double mean;
+        private final long p50;
+        private final long p99;
+        private final long p999;
+        private final long max;
+
+        Snapshot(String method, long count, long errors, double mean, long p50, long p99, long p999, long max) {
+            this.method = method;
+            this.count = count;
+            this.errors = errors;
+            this.mean = mean;
+            this.p50 = p50;
+            this.p99 = p99;
+            this.p999 = p999;
+            this.max = max;
+        }
+
+        public String getMethod() {
+            return method;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getErrors() {
+            return errors;
+        }
+
+        public double getMean() {
+            return mean;
+        }
+
+        public long getP50() {
+            return p50;
+        }
+
+        public long getP99() {
+            return p99;
+        }
+
+        public long getP999() {
+            return p999;
+        }
+
+        public long getMax() {
+            return max;
+        }
+    }
+}
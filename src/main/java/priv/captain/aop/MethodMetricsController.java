@@ -0,0 +1,38 @@
+package priv.captain.aop;
+
+import java.util.List;
+
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * 方法耗时统计查询接口
+ */
+@RestController
+@RequestMapping("/metrics/methods")
+public class MethodMetricsController {
+
+    private final MethodMetricsAspect methodMetricsAspect;
+
+    public MethodMetricsController(MethodMetricsAspect methodMetricsAspect) {
+        this.methodMetricsAspect = methodMetricsAspect;
+    }
+
+    /**
+     * 查询各方法的调用次数、异常次数和 p50/p99/p999 耗时（纳秒）
+     */
+    @GetMapping
+    public List<MethodMetrics.Snapshot> list() {
+        return methodMetricsAspect.snapshots();
+    }
+
+    /**
+     * 清空统计
+     */
+    @DeleteMapping
+    public void reset() {
+        methodMetricsAspect.reset();
+    }
+}
@@ -0,0 +1,152 @@
+package priv.captain.aop;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 有界、带过期时间的并发结果缓存
+ * 说明：
+ * 1. 并发未命中合并：同一个键同时未命中时，只有第一个线程执行加载，其他线程等待同一个 CompletableFuture，
+ *    避免缓存击穿时大量请求同时打到后端。
+ * 2. 加载失败不缓存，异常抛给所有等待者，下一次调用重新加载。
+ * 3. 容量超限时先清理过期条目，仍超限再随机淘汰到容量的 90%，淘汰由一个线程完成，其他线程不等待。
+ */
+public class MethodResultCache {
+
+    private final String name;
+    private final long ttlNanos;
+    private final int maximumSize;
+
+    private final ConcurrentHashMap<Object, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicBoolean evicting = new AtomicBoolean();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public MethodResultCache(String name, long ttlNanos, int maximumSize) {
+        this.name = name;
+        this.ttlNanos = ttlNanos;
+        this.maximumSize = maximumSize;
+    }
+
+    /**
+     * 结果加载器，即被缓存的方法本身
+     */
+    @FunctionalInterface
+    public interface Loader {
+        Object load() throws Throwable;
+    }
+
+    /**
+     * 读取缓存，未命中或已过期时调用 loader 加载
+     *
+     * @param key    缓存键
+     * @param loader 加载器
+     * @return
+     * @throws Throwable 加载器抛出的异常
+     */
+    public Object get(Object key, Loader loader) throws Throwable {
+        while (true) {
+            Entry entry = entries.get(key);
+            long now = System.nanoTime();
+            if (entry != null && !entry.isExpired(now)) {
+                hits.increment();
+                return entry.await();
+            }
+            Entry loading = new Entry();
+            boolean owner = entry == null ? entries.putIfAbsent(key, loading) == null
+                    : entries.replace(key, entry, loading);
+            if (!owner) {
+                // 其他线程抢先开始加载，重新读取并等待它的结果
+                continue;
+            }
+            misses.increment();
+            Object value;
+            try {
+                value = loader.load();
+            } catch (Throwable e) {
+                entries.remove(key, loading);
+                loading.future.completeExceptionally(e);
+                throw e;
+            }
+            loading.expiresAt = System.nanoTime() + ttlNanos;
+            loading.future.complete(value);
+            if (entries.size() > maximumSize) {
+                evict();
+            }
+            return value;
+        }
+    }
+
+    public void evict(Object key) {
+        entries.remove(key);
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    private void evict() {
+        if (!evicting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            long now = System.nanoTime();
+            entries.entrySet().removeIf(e -> e.getValue().isExpired(now));
+            int target = maximumSize - maximumSize / 10;
+            Iterator<Map.Entry<Object, Entry>> iterator = entries.entrySet().iterator();
+            while (entries.size() > target && iterator.hasNext()) {
+                if (iterator.next().getValue().future.isDone()) {
+                    iterator.remove();
+                    evictions.increment();
+                }
+            }
+        } finally {
+            evicting.set(false);
+        }
+    }
+
+    private static final class Entry {
+        private final CompletableFuture<Object> future = new CompletableFuture<>();
+        // 在 future 完成前写入，加载中的条目不会被判定为过期
+        private volatile long expiresAt;
+
+        boolean isExpired(long now) {
+            return future.isDone() && expiresAt - now < 0;
+        }
+
+        Object await() throws Throwable {
+            try {
+                return future.get();
+            } catch (ExecutionException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
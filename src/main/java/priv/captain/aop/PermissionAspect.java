@@ -1,19 +1,39 @@
 package priv.captain.aop;
 
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
 import org.springframework.stereotype.Component;
 
+import priv.captain.audit.AuditLogger;
+import priv.captain.audit.AuditRecord;
+import priv.captain.common.context.UserContext;
 import priv.captain.common.exception.PermissionDeniedException;
 
 /**
  * 权限注解切面
+ * 权限判断委托给 PermissionEvaluator：用户权限预先编译成位图并缓存；
+ * 注解上的权限标识按方法解析成权限ID并缓存，每次调用只做一次 Map 读取和一次位运算。
+ * 当前用户由 UserContextFilter 从请求中绑定到 UserContext。拒绝访问时发布审计记录。
  */
 @Aspect
 @Component
 public class PermissionAspect {
 
+    private final PermissionEvaluator permissionEvaluator;
+    private final AuditLogger auditLogger;
+    private final ConcurrentMap<Method, Integer> permissionIds = new ConcurrentHashMap<>();
+
+    public PermissionAspect(PermissionEvaluator permissionEvaluator, AuditLogger auditLogger) {
+        this.permissionEvaluator = permissionEvaluator;
+        this.auditLogger = auditLogger;
+    }
+
     /**
      * 注解环绕通知
      * 注意：只有Around能控制方法的执行，其他的不能干扰方法的执行。
@@ -25,10 +45,13 @@ public class PermissionAspect {
      */
     @Around("@annotation(permissionCheck)") // 这表达式中permissionCheck 是方法参数名，不是注解名
     public Object permissionAround(ProceedingJoinPoint joinPoint, PermissionCheck permissionCheck) throws Throwable {
-        String permissionValue = permissionCheck.value();
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        int permissionId = permissionIdOf(method, permissionCheck);
 
         // 这里使用RuntimeException，否则可能事务不回滚。
-            if (!hashPermission(permissionValue)) {
+            if (!hashPermission(permissionId)) {
+            auditLogger.publish(AuditRecord.Type.ACCESS_DENIED, UserContext.getUserId(), permissionCheck.value(),
+                    joinPoint.getSignature().toShortString(), false, null);
             throw new PermissionDeniedException("权限不足");
         }
 
@@ -37,9 +60,21 @@ public class PermissionAspect {
     }
 
     /*
-     * 模拟权限判断，实际业务场景会调用对应的权限判断service
+     * 权限判断，当前用户从 UserContext 获取，未登录直接拒绝
      */
-    private Boolean hashPermission(String permissionValue) {
-        return "pass".equals(permissionValue);
+    private boolean hashPermission(int permissionId) {
+        return permissionEvaluator.hasPermission(UserContext.getUserId(), permissionId);
+    }
+
+    /**
+     * 注解的权限标识只在方法第一次调用时登记到字典（idOf 会分配ID，与编译用户权限时分配的ID一致）
+     */
+    private int permissionIdOf(Method method, PermissionCheck permissionCheck) {
+        Integer id = permissionIds.get(method);
+        if (id == null) {
+            id = permissionIds.computeIfAbsent(method,
+                    m -> permissionEvaluator.getDictionary().idOf(permissionCheck.value()));
+        }
+        return id;
     }
 }
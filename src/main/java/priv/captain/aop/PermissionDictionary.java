@@ -0,0 +1,60 @@
+package priv.captain.aop;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * 权限标识字典，把 home:select 这样的字符串权限标识映射为从0开始的连续整数ID，
+ * 用户的权限集合就可以编译成位图，权限判断变成一次位运算
+ */
+@Component
+public class PermissionDictionary {
+
+    private final ConcurrentMap<String, Integer> ids = new ConcurrentHashMap<>();
+    private volatile String[] names = new String[64];
+    private int size;
+
+    /**
+     * 获取权限标识的ID，不存在时分配新ID
+     */
+    public int idOf(String permission) {
+        Integer id = ids.get(permission);
+        if (id != null) {
+            return id;
+        }
+        synchronized (this) {
+            id = ids.get(permission);
+            if (id != null) {
+                return id;
+            }
+            int newId = size++;
+            if (newId == names.length) {
+                String[] grown = new String[names.length * 2];
+                System.arraycopy(names, 0, grown, 0, names.length);
+                names = grown;
+            }
+            names[newId] = permission;
+            ids.put(permission, newId);
+            return newId;
+        }
+    }
+
+    /**
+     * 查找权限标识的ID，不存在时返回 -1，不会分配新ID
+     */
+    public int find(String permission) {
+        Integer id = ids.get(permission);
+        return id == null ? -1 : id;
+    }
+
+    public String nameOf(int id) {
+        String[] current = names;
+        return id >= 0 && id < current.length ? current[id] : null;
+    }
+
+    public int size() {
+        return ids.size();
+    }
+}
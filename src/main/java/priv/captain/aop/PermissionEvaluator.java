@@ -0,0 +1,147 @@
+package priv.captain.aop;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * 权限判断引擎
+ * 说明：
+ * 1. 用户的权限集合只在第一次判断时从 PermissionSource 加载一次，编译成位图后缓存，之后每次判断是一次位运算，无分配。
+ * 2. 缓存按版本号失效：缓存项记录编译时 PermissionSource 的版本号和本地版本号，任一变化即重新编译，
+ *    角色变化时不需要逐个找出受影响的用户。
+ * 3. 重新编译在 ConcurrentHashMap.compute 中进行，与 invalidate 的 remove 互斥：
+ *    invalidate 之前开始的加载要么在它之前写入（随后被删除），要么在它之后才开始（读到新数据），不会把旧权限写回缓存。
+ * 4. 缓存最多 maxEntries 个用户，超过时随机淘汰约四分之一，被淘汰的用户下次判断时重新编译。
+ */
+@Component
+public class PermissionEvaluator {
+
+    static final int DEFAULT_MAX_ENTRIES = 10_000;
+
+    private final PermissionSource permissionSource;
+    private final PermissionDictionary dictionary;
+    private final int maxEntries;
+
+    private final ConcurrentMap<Object, CompiledEntry> compiled = new ConcurrentHashMap<>();
+    private final AtomicLong localVersion = new AtomicLong();
+
+    // 容器中没有 PermissionSource 时使用内存实现
+    @Autowired
+    public PermissionEvaluator(ObjectProvider<PermissionSource> permissionSource, PermissionDictionary dictionary) {
+        this(permissionSource.getIfAvailable(InMemoryPermissionSource::new), dictionary);
+    }
+
+    public PermissionEvaluator(PermissionSource permissionSource, PermissionDictionary dictionary) {
+        this(permissionSource, dictionary, DEFAULT_MAX_ENTRIES);
+    }
+
+    public PermissionEvaluator(PermissionSource permissionSource, PermissionDictionary dictionary, int maxEntries) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries必须大于0：" + maxEntries);
+        }
+        this.permissionSource = permissionSource;
+        this.dictionary = dictionary;
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * 判断用户是否拥有权限
+     *
+     * @param userId       用户ID，为 null 时直接拒绝
+     * @param permissionId 权限ID，见 PermissionDictionary
+     * @return
+     */
+    public boolean hasPermission(Object userId, int permissionId) {
+        if (userId == null) {
+            return false;
+        }
+        return permissionsOf(userId).contains(permissionId);
+    }
+
+    public boolean hasPermission(Object userId, String permission) {
+        if (userId == null) {
+            return false;
+        }
+        // 先编译用户权限（会登记其中的权限标识），再查找ID
+        PermissionSet permissions = permissionsOf(userId);
+        return permissions.contains(dictionary.find(permission));
+    }
+
+    /**
+     * 获取用户编译后的权限集合，版本号不一致时重新编译
+     */
+    public PermissionSet permissionsOf(Object userId) {
+        long sourceVersion = permissionSource.version();
+        long local = localVersion.get();
+        CompiledEntry entry = compiled.get(userId);
+        if (entry != null && entry.isValid(sourceVersion, local)) {
+            return entry.permissions;
+        }
+        if (entry == null && compiled.size() >= maxEntries) {
+            evict();
+        }
+        return compiled.compute(userId, (key, current) -> current != null && current.isValid(sourceVersion, local)
+                ? current
+                : new CompiledEntry(permissionSource.loadCompiled(key, dictionary), sourceVersion, local))
+                .permissions;
+    }
+
+    /**
+     * 单个用户授权变化时调用
+     */
+    public void invalidate(Object userId) {
+        compiled.remove(userId);
+    }
+
+    /**
+     * 角色授权变化等影响范围较大时调用，所有缓存在下次使用时重新编译
+     */
+    public void invalidateAll() {
+        localVersion.incrementAndGet();
+    }
+
+    /**
+     * 缓存的用户数
+     */
+    public int size() {
+        return compiled.size();
+    }
+
+    public PermissionDictionary getDictionary() {
+        return dictionary;
+    }
+
+    /**
+     * ConcurrentHashMap 的迭代顺序与访问无关，相当于随机淘汰
+     */
+    private void evict() {
+        int toRemove = Math.max(1, maxEntries / 4);
+        for (Object key : compiled.keySet()) {
+            if (toRemove-- <= 0) {
+                return;
+            }
+            compiled.remove(key);
+        }
+    }
+
+    private static final class CompiledEntry {
+        private final PermissionSet permissions;
+        private final long sourceVersion;
+        private final long localVersion;
+
+        CompiledEntry(PermissionSet permissions, long sourceVersion, long localVersion) {
+            this.permissions = permissions;
+            this.sourceVersion = sourceVersion;
+            this.localVersion = localVersion;
+        }
+
+        boolean isValid(long sourceVersion, long localVersion) {
+            return this.sourceVersion == sourceVersion && this.localVersion == localVersion;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package priv.captain.aop;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * 编译后的权限集合：以权限ID为下标的不可变位图
+ */
+public final class PermissionSet {
+
+    public static final PermissionSet EMPTY = new PermissionSet(new long[0]);
+
+    private final long[] words;
+
+    private PermissionSet(long[] words) {
+        this.words = words;
+    }
+
+    /**
+     * 把权限标识集合编译为位图
+     *
+     * @param permissions 权限标识
+     * @param dictionary  权限字典
+     * @return
+     */
+    public static PermissionSet compile(Collection<String> permissions, PermissionDictionary dictionary) {
+        long[] words = new long[0];
+        for (String permission : permissions) {
+            int id = dictionary.idOf(permission);
+            int word = id >>> 6;
+            if (word >= words.length) {
+                words = Arrays.copyOf(words, Math.max(word + 1, words.length * 2));
+            }
+            words[word] |= 1L << id;
+        }
+        return new PermissionSet(words);
+    }
+
+    /**
+     * 由已经计算好的位图构造，words 不再被调用方修改
+     */
+    public static PermissionSet of(long[] words) {
+        return new PermissionSet(words);
+    }
+
+    /**
+     * O(1) 位判断，无分配
+     *
+     * @param permissionId 权限ID，负数（字典中不存在的权限）直接返回 false
+     * @return
+     */
+    public boolean contains(int permissionId) {
+        int word = permissionId >>> 6;
+        return permissionId >= 0 && word < words.length && (words[word] & (1L << permissionId)) != 0;
+    }
+
+    public int size() {
+        int count = 0;
+        for (long word : words) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+}
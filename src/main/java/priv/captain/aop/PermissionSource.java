@@ -0,0 +1,30 @@
+package priv.captain.aop;
+
+import java.util.Collection;
+
+/**
+ * 用户权限数据来源，实际业务中一般是查询数据库或权限服务
+ */
+public interface PermissionSource {
+
+    /**
+     * 加载用户拥有的全部权限标识，如 home:select
+     */
+    Collection<String> loadPermissions(Object userId);
+
+    /**
+     * 权限数据版本号，角色或授权变化时递增，PermissionEvaluator 据此让已编译的权限缓存失效。
+     * 无法提供版本号的实现返回固定值，并在数据变化时调用 PermissionEvaluator.invalidate。
+     */
+    default long version() {
+        return 0;
+    }
+
+    /**
+     * 加载编译后的权限集合，默认由 loadPermissions 的结果编译；
+     * 自身已经维护了位图的实现（如 RBAC 引擎）可以直接返回，省去重复编译
+     */
+    default PermissionSet loadCompiled(Object userId, PermissionDictionary dictionary) {
+        return PermissionSet.compile(loadPermissions(userId), dictionary);
+    }
+}
@@ -0,0 +1,149 @@
+package priv.captain.audit;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+import priv.captain.audit.AuditRingBuffer.FullPolicy;
+
+/**
+ * 多生产者单消费者（MPSC）有界环形缓冲区的序号部分，槽位中的数据由子类存放
+ * 说明：
+ * 1. 容量取 2 的幂，下标用位与计算。每个槽位有一个序号：序号 == 写位置 表示可写，序号 == 写位置 + 1 表示可读。
+ * 2. 生产者 CAS 抢占写位置（claim）后写入槽位、再发布序号（commit）；序号是 volatile 写，
+ *    消费者读到新序号时一定能看到槽位中的数据，所以子类的槽位可以是普通数组。
+ * 3. 消费者只有一个线程，读位置是普通字段，不需要 CAS。
+ * 4. 缓冲区满时 DROP 直接丢弃；BLOCK 自旋/短暂休眠等待空位，最多等 maxBlockNanos，超时或缓冲区已关闭时丢弃。
+ *    两种策略丢弃的记录都计入 dropped。
+ */
+abstract class AbstractRingBuffer {
+
+    private static final int SPINS = 100;
+    private static final long PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    final int mask;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head;
+    private final FullPolicy fullPolicy;
+    private final long maxBlockNanos;
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile boolean closed;
+
+    AbstractRingBuffer(int capacity, FullPolicy fullPolicy, long maxBlockNanos) {
+        if (capacity < 2) {
+            throw new IllegalArgumentException("容量至少为2：" + capacity);
+        }
+        if (maxBlockNanos < 0) {
+            throw new IllegalArgumentException("maxBlockNanos不能小于0：" + maxBlockNanos);
+        }
+        int size = Integer.highestOneBit(capacity - 1) << 1;
+        this.mask = size - 1;
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+        this.fullPolicy = fullPolicy;
+        this.maxBlockNanos = maxBlockNanos;
+    }
+
+    /**
+     * 抢占一个写位置，按满时策略处理
+     *
+     * @return 写位置，丢弃时返回 -1
+     */
+    final long claim() {
+        long position = tryClaim();
+        if (position >= 0) {
+            return position;
+        }
+        if (fullPolicy == FullPolicy.BLOCK && !closed) {
+            long deadline = System.nanoTime() + maxBlockNanos;
+            int spins = 0;
+            while (!closed) {
+                if (++spins < SPINS) {
+                    Thread.onSpinWait();
+                } else if (System.nanoTime() - deadline >= 0) {
+                    break;
+                } else {
+                    LockSupport.parkNanos(PARK_NANOS);
+                }
+                position = tryClaim();
+                if (position >= 0) {
+                    return position;
+                }
+            }
+        }
+        dropped.incrementAndGet();
+        return -1;
+    }
+
+    /**
+     * 尝试抢占一次，缓冲区满时立即返回 -1
+     */
+    final long tryClaim() {
+        while (true) {
+            long position = tail.get();
+            long diff = sequences.get((int) position & mask) - position;
+            if (diff == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    return position;
+                }
+            } else if (diff < 0) {
+                // 该槽位上一轮的数据还没被消费，缓冲区已满
+                return -1;
+            }
+            // diff > 0：其他生产者已经抢走这个位置，重读 tail
+        }
+    }
+
+    /**
+     * 发布写位置，槽位数据必须在此之前写好
+     */
+    final void commit(long position) {
+        sequences.set((int) position & mask, position + 1);
+    }
+
+    /**
+     * 消费者：下一个可读的位置，没有时返回 -1
+     */
+    final long readable() {
+        long position = head;
+        return sequences.get((int) position & mask) == position + 1 ? position : -1;
+    }
+
+    /**
+     * 消费者：读完槽位后释放给生产者
+     */
+    final void release(long position) {
+        sequences.set((int) position & mask, position + mask + 1);
+        head = position + 1;
+    }
+
+    /**
+     * 关闭后 BLOCK 策略不再等待，缓冲区满时直接丢弃；已写入的数据仍可取出
+     */
+    public void close() {
+        closed = true;
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+
+    /**
+     * 近似的元素个数
+     */
+    public int size() {
+        return (int) Math.max(0, Math.min(tail.get() - head, capacity()));
+    }
+
+    public long dropped() {
+        return dropped.get();
+    }
+
+    public FullPolicy fullPolicy() {
+        return fullPolicy;
+    }
+}
@@ -0,0 +1,137 @@
+package priv.captain.audit;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+
+/**
+ * 审计日志二进制格式
+ *
+ * <pre>
+ * 文件头：magic(int) version(byte)
+ * 记录：  length(int) crc32(int) payload
+ * payload：timestamp(long) type(byte) success(byte) userId action target detail
+ * 字符串：length(int，-1 表示 null) utf8 字节
+ * </pre>
+ *
+ * 每条记录带长度和 CRC，进程崩溃时文件尾部写了一半的记录可以被读取端识别并忽略。
+ */
+final class AuditLogFormat {
+
+    static final int MAGIC = 0x41554454; // "AUDT"
+    static final byte VERSION = 1;
+    static final int HEADER_BYTES = 5;
+    static final int RECORD_HEADER_BYTES = 8;
+    private static final AuditRecord.Type[] TYPES = AuditRecord.Type.values();
+
+    private AuditLogFormat() {
+    }
+
+    static void writeHeader(ByteBuffer buffer) {
+        buffer.putInt(MAGIC).put(VERSION);
+    }
+
+    static boolean checkHeader(ByteBuffer buffer) {
+        return buffer.remaining() >= HEADER_BYTES && buffer.getInt() == MAGIC && buffer.get() == VERSION;
+    }
+
+    /**
+     * 把记录追加到 buffer，空间不足时返回扩容后的新 buffer
+     */
+    static ByteBuffer encode(AuditRecord record, ByteBuffer buffer) {
+        byte[] userId = bytes(record.getUserId());
+        byte[] action = bytes(record.getAction());
+        byte[] target = bytes(record.getTarget());
+        byte[] detail = bytes(record.getDetail());
+        int payloadLength = 8 + 1 + 1 + length(userId) + length(action) + length(target) + length(detail);
+        buffer = ensureCapacity(buffer, RECORD_HEADER_BYTES + payloadLength);
+
+        int start = buffer.position();
+        buffer.putInt(payloadLength).putInt(0);
+        buffer.putLong(record.getTimestamp()).put((byte) record.getType().ordinal())
+                .put((byte) (record.isSuccess() ? 1 : 0));
+        putString(buffer, userId);
+        putString(buffer, action);
+        putString(buffer, target);
+        putString(buffer, detail);
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), buffer.arrayOffset() + start + RECORD_HEADER_BYTES, payloadLength);
+        buffer.putInt(start + 4, (int) crc.getValue());
+        return buffer;
+    }
+
+    /**
+     * 从 buffer 当前位置解码一条记录
+     *
+     * @return 记录；剩余字节不足一条完整记录或 CRC 不匹配时返回 null，buffer 位置不变
+     */
+    static AuditRecord decode(ByteBuffer buffer) {
+        int start = buffer.position();
+        if (buffer.remaining() < RECORD_HEADER_BYTES) {
+            return null;
+        }
+        int payloadLength = buffer.getInt();
+        int checksum = buffer.getInt();
+        if (payloadLength < 10 || buffer.remaining() < payloadLength) {
+            buffer.position(start);
+            return null;
+        }
+        CRC32 crc = new CRC32();
+        ByteBuffer payload = buffer.slice();
+        payload.limit(payloadLength);
+        crc.update(payload.duplicate());
+        if ((int) crc.getValue() != checksum) {
+            buffer.position(start);
+            return null;
+        }
+        try {
+            long timestamp = payload.getLong();
+            int type = payload.get();
+            boolean success = payload.get() == 1;
+            AuditRecord record = new AuditRecord(timestamp, TYPES[type], getString(payload), getString(payload),
+                    getString(payload), success, getString(payload));
+            buffer.position(start + RECORD_HEADER_BYTES + payloadLength);
+            return record;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            buffer.position(start);
+            return null;
+        }
+    }
+
+    private static ByteBuffer ensureCapacity(ByteBuffer buffer, int needed) {
+        if (buffer.remaining() >= needed) {
+            return buffer;
+        }
+        ByteBuffer grown = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + needed));
+        buffer.flip();
+        grown.put(buffer);
+        return grown;
+    }
+
+    private static byte[] bytes(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int length(byte[] bytes) {
+        return 4 + (bytes == null ? 0 : bytes.length);
+    }
+
+    private static void putString(ByteBuffer buffer, byte[] bytes) {
+        if (bytes == null) {
+            buffer.putInt(-1);
+        } else {
+            buffer.putInt(bytes.length).put(bytes);
+        }
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,166 @@
+package priv.captain.audit;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 审计日志读取工具
+ * 用法：AuditLogReader <日志目录> [用户ID]，按写入顺序打印所有（或指定用户的）审计记录
+ */
+public final class AuditLogReader {
+
+    static final String FILE_PREFIX = "audit-";
+    static final String FILE_SUFFIX = ".log";
+    private static final int READ_BUFFER_BYTES = 64 * 1024;
+
+    private AuditLogReader() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("用法：AuditLogReader <日志目录> [用户ID]");
+            return;
+        }
+        Path dir = Paths.get(args[0]);
+        String userId = args.length > 1 ? args[1] : null;
+        long[] count = new long[1];
+        readAll(dir, record -> {
+            if (userId == null || userId.equals(record.getUserId())) {
+                System.out.println(record);
+                count[0]++;
+            }
+        });
+        System.out.println("共 " + count[0] + " 条记录");
+    }
+
+    /**
+     * 目录下的审计日志文件，按序号从旧到新排列
+     */
+    public static List<Path> logFiles(Path dir) throws IOException {
+        if (!Files.isDirectory(dir)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(AuditLogReader::isLogFile).sorted().collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * 读取目录下全部文件，文件头不对的文件（如损坏后被 AuditLogWriter 跳过的文件）打印提示后跳过
+     */
+    public static void readAll(Path dir, Consumer<AuditRecord> consumer) throws IOException {
+        for (Path file : logFiles(dir)) {
+            if (scan(file, consumer) < 0) {
+                System.err.println("跳过不是审计日志的文件：" + file);
+            }
+        }
+    }
+
+    /**
+     * 读取单个文件，遇到写了一半或损坏的记录时停止
+     *
+     * @return 有效数据的长度（文件头 + 完整记录）
+     */
+    public static long read(Path file, Consumer<AuditRecord> consumer) throws IOException {
+        long validLength = scan(file, consumer);
+        if (validLength < 0) {
+            throw new IOException("不是审计日志文件：" + file);
+        }
+        return validLength;
+    }
+
+    /**
+     * 用普通的 FileChannel 读分块解码，不做内存映射：AuditLogWriter 打开时会紧接着截断同一个文件，
+     * 映射还没被 GC 释放时 Windows 上截断会失败
+     *
+     * @return 有效数据的长度；文件短于文件头时返回 0，文件头不对时返回 -1
+     */
+    static long scan(Path file, Consumer<AuditRecord> consumer) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < AuditLogFormat.HEADER_BYTES) {
+                return 0;
+            }
+            ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(size, READ_BUFFER_BYTES));
+            boolean eof = fill(channel, buffer, size);
+            if (!AuditLogFormat.checkHeader(buffer)) {
+                return -1;
+            }
+            // offset 是 buffer 下标 0 在文件中的位置
+            long offset = 0;
+            while (true) {
+                AuditRecord record;
+                while ((record = AuditLogFormat.decode(buffer)) != null) {
+                    consumer.accept(record);
+                }
+                if (eof || !incomplete(buffer, size - offset - buffer.position())) {
+                    return offset + buffer.position();
+                }
+                offset += buffer.position();
+                buffer.compact();
+                if (!buffer.hasRemaining()) {
+                    // 单条记录比缓冲区大，扩容（不超过文件剩余长度）
+                    ByteBuffer larger = ByteBuffer.allocate((int) Math.min(buffer.capacity() * 2L, size - offset));
+                    buffer.flip();
+                    larger.put(buffer);
+                    buffer = larger;
+                }
+                eof = fill(channel, buffer, size);
+            }
+        }
+    }
+
+    /**
+     * 读满 buffer 或读到 size 为止，返回时 buffer 已 flip
+     *
+     * @return 是否已读到 size
+     */
+    private static boolean fill(FileChannel channel, ByteBuffer buffer, long size) throws IOException {
+        while (buffer.hasRemaining() && channel.position() < size) {
+            if (channel.read(buffer) < 0) {
+                break;
+            }
+        }
+        buffer.flip();
+        return channel.position() >= size;
+    }
+
+    /**
+     * decode 返回 null 后判断：是记录只读到一部分（继续读），还是损坏/文件尾部写了一半（停止）
+     *
+     * @param fileRemaining 从 buffer 当前位置到文件末尾的字节数
+     */
+    private static boolean incomplete(ByteBuffer buffer, long fileRemaining) {
+        if (buffer.remaining() < AuditLogFormat.RECORD_HEADER_BYTES) {
+            return fileRemaining > buffer.remaining();
+        }
+        int payloadLength = buffer.getInt(buffer.position());
+        long recordLength = AuditLogFormat.RECORD_HEADER_BYTES + (long) payloadLength;
+        // 长度合法、缓冲区里还不够、文件里够：只是没读完
+        return payloadLength >= 10 && buffer.remaining() < recordLength && fileRemaining >= recordLength;
+    }
+
+    static int indexOf(Path file) {
+        String name = file.getFileName().toString();
+        return Integer.parseInt(name.substring(FILE_PREFIX.length(), name.length() - FILE_SUFFIX.length()));
+    }
+
+    static Path fileOf(Path dir, int index) {
+        return dir.resolve(String.format("%s%06d%s", FILE_PREFIX, index, FILE_SUFFIX));
+    }
+
+    private static boolean isLogFile(Path file) {
+        String name = file.getFileName().toString();
+        return name.startsWith(FILE_PREFIX) && name.endsWith(FILE_SUFFIX)
+                && name.length() == FILE_PREFIX.length() + 6 + FILE_SUFFIX.length();
+    }
+}
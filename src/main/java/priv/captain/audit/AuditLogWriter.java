@@ -0,0 +1,128 @@
+package priv.captain.audit;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * 只追加的审计日志文件，按大小滚动
+ * 说明：
+ * 1. 文件名 audit-000001.log、audit-000002.log ...，序号递增，超过 maxFiles 个时删除最旧的文件。
+ * 2. 一个批次编码到同一个缓冲区后一次 write，整个批次总是落在同一个文件里。
+ * 3. 重新打开时继续追加到最新的文件；先截掉文件尾部写了一半的记录，避免后续记录被它挡住读不到；
+ *    最新的文件头损坏时保留该文件，从下一个序号新建文件继续写。
+ * 4. 只由审计写线程使用，非线程安全。
+ */
+public class AuditLogWriter implements Closeable {
+
+    private final Path dir;
+    private final long maxFileBytes;
+    private final int maxFiles;
+    private ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+    private FileChannel channel;
+    private int fileIndex;
+    private long fileSize;
+
+    public AuditLogWriter(Path dir, long maxFileBytes, int maxFiles) throws IOException {
+        this.dir = dir;
+        this.maxFileBytes = maxFileBytes;
+        this.maxFiles = Math.max(1, maxFiles);
+        Files.createDirectories(dir);
+        List<Path> files = AuditLogReader.logFiles(dir);
+        if (files.isEmpty()) {
+            openNewFile(1);
+        } else {
+            Path latest = files.get(files.size() - 1);
+            long validLength = AuditLogReader.scan(latest, record -> {
+            });
+            if (validLength < 0) {
+                // 文件头损坏：保留原文件供排查，从下一个序号开始写，不能因为一个坏文件让应用启动失败
+                System.err.println("审计日志文件头损坏，跳过：" + latest);
+                openNewFile(AuditLogReader.indexOf(latest) + 1);
+                return;
+            }
+            fileIndex = AuditLogReader.indexOf(latest);
+            channel = FileChannel.open(latest, StandardOpenOption.WRITE);
+            if (validLength < AuditLogFormat.HEADER_BYTES) {
+                channel.truncate(0);
+                writeHeader();
+            } else {
+                channel.truncate(validLength);
+                channel.position(validLength);
+                fileSize = validLength;
+            }
+        }
+    }
+
+    /**
+     * 写入一个批次
+     */
+    public void write(List<AuditRecord> records) throws IOException {
+        if (records.isEmpty()) {
+            return;
+        }
+        buffer.clear();
+        for (AuditRecord record : records) {
+            buffer = AuditLogFormat.encode(record, buffer);
+        }
+        buffer.flip();
+        if (fileSize > AuditLogFormat.HEADER_BYTES && fileSize + buffer.remaining() > maxFileBytes) {
+            rotate();
+        }
+        while (buffer.hasRemaining()) {
+            fileSize += channel.write(buffer);
+        }
+    }
+
+    /**
+     * 刷到磁盘
+     */
+    public void sync() throws IOException {
+        channel.force(false);
+    }
+
+    public Path currentFile() {
+        return AuditLogReader.fileOf(dir, fileIndex);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.force(false);
+            channel.close();
+            channel = null;
+        }
+    }
+
+    private void rotate() throws IOException {
+        channel.force(false);
+        channel.close();
+        openNewFile(fileIndex + 1);
+        List<Path> files = AuditLogReader.logFiles(dir);
+        for (int i = 0; i < files.size() - maxFiles; i++) {
+            Files.deleteIfExists(files.get(i));
+        }
+    }
+
+    private void openNewFile(int index) throws IOException {
+        fileIndex = index;
+        channel = FileChannel.open(AuditLogReader.fileOf(dir, index), StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.WRITE);
+        fileSize = 0;
+        writeHeader();
+    }
+
+    private void writeHeader() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(AuditLogFormat.HEADER_BYTES);
+        AuditLogFormat.writeHeader(header);
+        header.flip();
+        while (header.hasRemaining()) {
+            fileSize += channel.write(header);
+        }
+    }
+}
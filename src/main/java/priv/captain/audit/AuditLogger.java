@@ -0,0 +1,236 @@
+package priv.captain.audit;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import priv.captain.audit.AuditRingBuffer.FullPolicy;
+
+/**
+ * 异步审计日志
+ * 说明：
+ * 1. 切面、RBAC 引擎等调用 publish 把记录放进无锁环形缓冲区后立即返回，请求线程不做任何审计 IO。
+ * 2. 每次方法调用都要记的操作日志走 publishOperation：操作名在 registerOperation 时登记一次得到ID，
+ *    调用时只写入 ID、用户、nanoTime、耗时到预分配的 OperationRingBuffer，不拼字符串、不新建记录、不取系统时间；
+ *    写线程落盘时再换算成时间戳并组装 AuditRecord。
+ * 3. 后台写线程 audit-writer 批量取出记录写入 AuditLogWriter（只追加、按大小滚动的二进制文件），
+ *    没有记录时短暂休眠，不需要生产者唤醒；写入出现任何异常都只丢弃当前批次并计数，写线程不会退出。
+ * 4. 缓冲区满时按 audit.full-policy 处理：DROP 丢弃（默认），BLOCK 最多等待 audit.max-block-ms 后丢弃，丢弃都计数。
+ * 5. 关闭时先停止接收，等正在发布的调用结束后，再把缓冲区中剩余的记录全部写完，与 stop 并发的发布要么被拒绝、要么被写入。
+ * 6. 日志用 AuditLogReader 查看。
+ */
+@Component
+public class AuditLogger {
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final String dir;
+    private final int batchSize;
+    private final long maxFileBytes;
+    private final int maxFiles;
+    private final AuditRingBuffer<AuditRecord> ringBuffer;
+    private final OperationRingBuffer operationBuffer;
+    private final List<Operation> operations = new CopyOnWriteArrayList<>();
+
+    private final AtomicLong published = new AtomicLong();
+    /**
+     * 正在发布（已检查 running、还没写完）的调用数，写线程等它归零后才做最后一次取出
+     */
+    private final AtomicInteger publishing = new AtomicInteger();
+    private volatile long written;
+    private volatile long failed;
+
+    private volatile boolean running;
+    private Thread writerThread;
+    private AuditLogWriter writer;
+
+    public AuditLogger(@Value("${audit.dir:${java.io.tmpdir}/javabase-audit}") String dir,
+            @Value("${audit.buffer-size:8192}") int bufferSize,
+            @Value("${audit.full-policy:DROP}") FullPolicy fullPolicy,
+            @Value("${audit.batch-size:256}") int batchSize,
+            @Value("${audit.max-file-size:67108864}") long maxFileBytes,
+            @Value("${audit.max-files:10}") int maxFiles,
+            @Value("${audit.max-block-ms:10}") long maxBlockMillis) {
+        this.dir = dir;
+        this.batchSize = batchSize;
+        this.maxFileBytes = maxFileBytes;
+        this.maxFiles = maxFiles;
+        long maxBlockNanos = TimeUnit.MILLISECONDS.toNanos(maxBlockMillis);
+        this.ringBuffer = new AuditRingBuffer<>(bufferSize, fullPolicy, maxBlockNanos);
+        this.operationBuffer = new OperationRingBuffer(bufferSize, fullPolicy, maxBlockNanos);
+    }
+
+    @PostConstruct
+    public synchronized void start() throws IOException {
+        if (running) {
+            return;
+        }
+        writer = new AuditLogWriter(Paths.get(dir), maxFileBytes, maxFiles);
+        running = true;
+        writerThread = new Thread(this::writeLoop, "audit-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    @PreDestroy
+    public synchronized void stop() throws InterruptedException {
+        if (!running) {
+            return;
+        }
+        running = false;
+        // BLOCK 策略下正在等待空位的发布立即放弃，不会拖住关闭
+        ringBuffer.close();
+        operationBuffer.close();
+        LockSupport.unpark(writerThread);
+        writerThread.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    /**
+     * 发布审计记录，不做 IO
+     *
+     * @return 是否进入缓冲区，未启动或 DROP 策略下缓冲区满时返回 false
+     */
+    public boolean publish(AuditRecord record) {
+        publishing.incrementAndGet();
+        try {
+            if (!running || !ringBuffer.publish(record)) {
+                return false;
+            }
+        } finally {
+            publishing.decrementAndGet();
+        }
+        published.incrementAndGet();
+        return true;
+    }
+
+    public boolean publish(AuditRecord.Type type, Object userId, String action, String target, boolean success,
+            String detail) {
+        return publish(AuditRecord.of(type, userId, action, target, success, detail));
+    }
+
+    /**
+     * 登记一个操作（如某个 service 方法），返回的ID用于 publishOperation；同一操作只应登记一次
+     */
+    public synchronized int registerOperation(String action, String target) {
+        operations.add(new Operation(action, target));
+        return operations.size() - 1;
+    }
+
+    /**
+     * 发布一条操作日志，不做 IO、不分配对象
+     *
+     * @param operationId   registerOperation 返回的ID
+     * @param nanoTime      操作结束时的 System.nanoTime()，写线程据此换算时间戳
+     * @param durationNanos 耗时（纳秒）
+     * @return 是否进入缓冲区
+     */
+    public boolean publishOperation(int operationId, Object userId, long nanoTime, long durationNanos,
+            boolean success) {
+        publishing.incrementAndGet();
+        try {
+            if (!running || !operationBuffer.publish(operationId, userId, nanoTime, durationNanos, success)) {
+                return false;
+            }
+        } finally {
+            publishing.decrementAndGet();
+        }
+        published.incrementAndGet();
+        return true;
+    }
+
+    public long getPublished() {
+        return published.get();
+    }
+
+    public long getDropped() {
+        return ringBuffer.dropped() + operationBuffer.dropped();
+    }
+
+    public long getWritten() {
+        return written;
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+
+    public String getDir() {
+        return dir;
+    }
+
+    private void writeLoop() {
+        List<AuditRecord> batch = new ArrayList<>(batchSize);
+        try {
+            while (true) {
+                // 先读 running 再读 publishing：看到两者都为停止状态后，不会再有新记录进入缓冲区
+                boolean stopping = !running && publishing.get() == 0;
+                boolean idle;
+                try {
+                    drain(batch);
+                    idle = batch.isEmpty();
+                    if (!idle) {
+                        writer.write(batch);
+                        written += batch.size();
+                    }
+                } catch (Throwable e) {
+                    // 任何异常都不能让写线程退出，否则缓冲区写满后所有审计记录都会被丢弃
+                    idle = false;
+                    failed += batch.size();
+                    System.err.println("写入审计日志失败，丢弃 " + batch.size() + " 条记录：" + e);
+                }
+                batch.clear();
+                if (idle) {
+                    if (stopping) {
+                        // 停止之后再取一次仍为空，剩余记录已全部写完
+                        break;
+                    }
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                }
+            }
+        } finally {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                System.err.println("关闭审计日志失败：" + e.getMessage());
+            }
+        }
+    }
+
+    private void drain(List<AuditRecord> batch) {
+        ringBuffer.drain(batch::add, batchSize);
+        int remaining = batchSize - batch.size();
+        if (remaining > 0) {
+            // 每批取一次当前时间，把操作结束时的 nanoTime 换算成毫秒时间戳
+            long nowMillis = System.currentTimeMillis();
+            long nowNanos = System.nanoTime();
+            operationBuffer.drain((operationId, userId, nanoTime, durationNanos, success) -> {
+                Operation operation = operations.get(operationId);
+                batch.add(new AuditRecord(nowMillis - (nowNanos - nanoTime) / 1_000_000, AuditRecord.Type.OPERATION,
+                        userId == null ? null : String.valueOf(userId), operation.action, operation.target, success,
+                        "耗时：" + durationNanos / 1000 + "us"));
+            }, remaining);
+        }
+    }
+
+    private static final class Operation {
+        private final String action;
+        private final String target;
+
+        Operation(String action, String target) {
+            this.action = action;
+            this.target = target;
+        }
+    }
+}
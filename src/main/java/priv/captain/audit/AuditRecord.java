@@ -0,0 +1,83 @@
+package priv.captain.audit;
+
+import java.time.Instant;
+
+/**
+ * 审计记录，对应《基于RBAC设计系统笔记》中的操作日志和权限变更日志
+ */
+public final class AuditRecord {
+
+    public enum Type {
+        /**
+         * 业务操作
+         */
+        OPERATION,
+        /**
+         * 访问被拒绝
+         */
+        ACCESS_DENIED,
+        /**
+         * 角色、权限、用户组变更
+         */
+        PERMISSION_CHANGE
+    }
+
+    private final long timestamp;
+    private final Type type;
+    private final String userId;
+    private final String action;
+    private final String target;
+    private final boolean success;
+    private final String detail;
+
+    public AuditRecord(long timestamp, Type type, String userId, String action, String target, boolean success,
+            String detail) {
+        this.timestamp = timestamp;
+        this.type = type;
+        this.userId = userId;
+        this.action = action;
+        this.target = target;
+        this.success = success;
+        this.detail = detail;
+    }
+
+    public static AuditRecord of(Type type, Object userId, String action, String target, boolean success,
+            String detail) {
+        return new AuditRecord(System.currentTimeMillis(), type, userId == null ? null : String.valueOf(userId),
+                action, target, success, detail);
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public String getAction() {
+        return action;
+    }
+
+    public String getTarget() {
+        return target;
+    }
+
+    public boolean isSuccess() {
+        return success;
+    }
+
+    public String getDetail() {
+        return detail;
+    }
+
+    @Override
+    public String toString() {
+        return Instant.ofEpochMilli(timestamp) + " " + type + " user=" + userId + " action=" + action + " target="
+                + target + " success=" + success + (detail == null ? "" : " detail=" + detail);
+    }
+}
@@ -0,0 +1,103 @@
+package priv.captain.audit;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * 无锁的多生产者单消费者（MPSC）有界环形缓冲区
+ * 说明：
+ * 1. 序号协议见 AbstractRingBuffer：生产者 CAS 抢占写位置后写入元素、再发布序号；消费者只有一个线程。
+ * 2. 缓冲区满时的处理由 FullPolicy 决定：DROP 直接丢弃并计数（默认，请求线程永远不会等待），
+ *    BLOCK 自旋/短暂休眠等待空位，但最多等 maxBlockNanos，超时或已关闭时同样丢弃并计数，请求线程不会无限期挂住。
+ */
+public class AuditRingBuffer<E> extends AbstractRingBuffer {
+
+    public enum FullPolicy {
+        DROP, BLOCK
+    }
+
+    /**
+     * BLOCK 策略默认最多等待的时间
+     */
+    public static final long DEFAULT_MAX_BLOCK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final AtomicReferenceArray<E> elements;
+
+    public AuditRingBuffer(int capacity, FullPolicy fullPolicy) {
+        this(capacity, fullPolicy, DEFAULT_MAX_BLOCK_NANOS);
+    }
+
+    public AuditRingBuffer(int capacity, FullPolicy fullPolicy, long maxBlockNanos) {
+        super(capacity, fullPolicy, maxBlockNanos);
+        this.elements = new AtomicReferenceArray<>(capacity());
+    }
+
+    /**
+     * 发布元素，按满时策略处理
+     *
+     * @return 是否写入成功，缓冲区满且被丢弃时返回 false
+     */
+    public boolean publish(E element) {
+        if (element == null) {
+            throw new NullPointerException();
+        }
+        long position = claim();
+        if (position < 0) {
+            return false;
+        }
+        put(position, element);
+        return true;
+    }
+
+    /**
+     * 尝试写入一次，缓冲区满时立即返回 false（不计入丢弃数）
+     */
+    public boolean tryPublish(E element) {
+        if (element == null) {
+            throw new NullPointerException();
+        }
+        long position = tryClaim();
+        if (position < 0) {
+            return false;
+        }
+        put(position, element);
+        return true;
+    }
+
+    /**
+     * 消费者取出一个元素，只能由单个线程调用
+     */
+    public E poll() {
+        long position = readable();
+        if (position < 0) {
+            return null;
+        }
+        int index = (int) position & mask;
+        E element = elements.get(index);
+        elements.lazySet(index, null);
+        release(position);
+        return element;
+    }
+
+    /**
+     * 批量取出最多 max 个元素，只能由单个线程调用
+     *
+     * @return 取出的个数
+     */
+    public int drain(Consumer<? super E> consumer, int max) {
+        int count = 0;
+        E element;
+        while (count < max && (element = poll()) != null) {
+            consumer.accept(element);
+            count++;
+        }
+        return count;
+    }
+
+    private void put(long position, E element) {
+        elements.lazySet((int) position & mask, element);
+        // 序号是发布点：消费者看到新序号时一定能看到元素
+        commit(position);
+    }
+}
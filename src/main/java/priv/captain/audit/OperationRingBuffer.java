@@ -0,0 +1,74 @@
+package priv.captain.audit;
+
+import priv.captain.audit.AuditRingBuffer.FullPolicy;
+
+/**
+ * 操作日志专用的 MPSC 环形缓冲区，槽位是预先分配的基本类型数组
+ * 说明：
+ * 1. 每次方法调用只写入 操作ID、用户ID引用、结束时的 nanoTime、耗时、是否成功，不新建任何对象；
+ *    操作名等字符串在 AuditLogger 中按ID登记一次，由写线程在落盘时再组装成 AuditRecord。
+ * 2. 序号协议和满时策略见 AbstractRingBuffer。
+ */
+final class OperationRingBuffer extends AbstractRingBuffer {
+
+    interface OperationConsumer {
+        void accept(int operationId, Object userId, long nanoTime, long durationNanos, boolean success);
+    }
+
+    private final int[] operationIds;
+    private final Object[] userIds;
+    private final long[] nanoTimes;
+    private final long[] durations;
+    private final boolean[] successes;
+
+    OperationRingBuffer(int capacity, FullPolicy fullPolicy, long maxBlockNanos) {
+        super(capacity, fullPolicy, maxBlockNanos);
+        int size = capacity();
+        this.operationIds = new int[size];
+        this.userIds = new Object[size];
+        this.nanoTimes = new long[size];
+        this.durations = new long[size];
+        this.successes = new boolean[size];
+    }
+
+    /**
+     * @return 是否写入成功，缓冲区满且被丢弃时返回 false
+     */
+    boolean publish(int operationId, Object userId, long nanoTime, long durationNanos, boolean success) {
+        long position = claim();
+        if (position < 0) {
+            return false;
+        }
+        int index = (int) position & mask;
+        operationIds[index] = operationId;
+        userIds[index] = userId;
+        nanoTimes[index] = nanoTime;
+        durations[index] = durationNanos;
+        successes[index] = success;
+        commit(position);
+        return true;
+    }
+
+    /**
+     * 批量取出最多 max 条，只能由单个线程调用
+     *
+     * @return 取出的条数
+     */
+    int drain(OperationConsumer consumer, int max) {
+        int count = 0;
+        long position;
+        while (count < max && (position = readable()) >= 0) {
+            int index = (int) position & mask;
+            Object userId = userIds[index];
+            userIds[index] = null;
+            int operationId = operationIds[index];
+            long nanoTime = nanoTimes[index];
+            long durationNanos = durations[index];
+            boolean success = successes[index];
+            release(position);
+            consumer.accept(operationId, userId, nanoTime, durationNanos, success);
+            count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,27 @@
+package priv.captain.common.context;
+
+/**
+ * 当前请求的用户上下文，一般在过滤器或拦截器中设置，请求结束时清除
+ */
+public final class UserContext {
+
+    private static final ThreadLocal<Object> CURRENT_USER = new ThreadLocal<>();
+
+    private UserContext() {
+    }
+
+    public static void setUserId(Object userId) {
+        CURRENT_USER.set(userId);
+    }
+
+    public static Object getUserId() {
+        return CURRENT_USER.get();
+    }
+
+    /**
+     * 线程池线程会被复用，必须在请求结束时清除，否则会串号
+     */
+    public static void clear() {
+        CURRENT_USER.remove();
+    }
+}
@@ -0,0 +1,70 @@
+package priv.captain.common.context;
+
+import java.io.IOException;
+import java.security.Principal;
+import java.util.Set;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * 把当前请求的用户绑定到 UserContext，请求结束时清除
+ * 说明：
+ * 1. 优先使用容器认证后的用户（request.getUserPrincipal()，如 Spring Security、容器登录）。
+ * 2. 请求头 user-context.header（默认 X-User-Id）任何客户端都能伪造，默认不信任；
+ *    只有请求直接来自 user-context.trusted-proxies 中配置的地址（完成认证并写入该请求头的网关）时才采用。
+ *    未配置时忽略该请求头，没有认证用户的请求不绑定，权限判断直接拒绝。
+ * 3. 在 finally 中清除，Tomcat 线程被复用时不会串号。
+ * 4. 优先级最高，保证后续的过滤器、拦截器和切面都能取到用户。
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class UserContextFilter extends OncePerRequestFilter {
+
+    private final String header;
+    private final Set<String> trustedProxies;
+
+    public UserContextFilter(@Value("${user-context.header:X-User-Id}") String header,
+            @Value("${user-context.trusted-proxies:}") String trustedProxies) {
+        this.header = header;
+        this.trustedProxies = StringUtils.commaDelimitedListToSet(StringUtils.trimAllWhitespace(trustedProxies));
+        this.trustedProxies.remove("");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String userId = resolveUserId(request);
+        if (userId != null) {
+            UserContext.setUserId(userId);
+        }
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            UserContext.clear();
+        }
+    }
+
+    private String resolveUserId(HttpServletRequest request) {
+        Principal principal = request.getUserPrincipal();
+        if (principal != null && StringUtils.hasText(principal.getName())) {
+            return principal.getName();
+        }
+        if (trustedProxies.contains(request.getRemoteAddr())) {
+            String userId = request.getHeader(header);
+            if (StringUtils.hasText(userId)) {
+                return userId.trim();
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,11 @@
+package priv.captain.common.exception;
+
+/**
+ * 角色约束异常，如角色互斥、继承成环
+ */
+public class RoleConstraintException extends RuntimeException {
+
+    public RoleConstraintException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,450 @@
+package priv.captain.designpattern.pool;
+
+import java.lang.ref.Reference;
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * 通用对象池，用于创建昂贵、可以重复使用的对象，如 Deflater、MessageDigest、格式化器
+ * 说明：
+ * 1. 三级缓存，借出时依次查找：
+ *    线程本地缓存（每个线程最多 localCapacity 个，无同步）；
+ *    共享槽位（maxIdle 个，分成多个条带，线程按 id 选择起始条带、从这里开始扫描全部槽位，用 CAS 放入/取出，无锁；
+ *    只有全部槽位都为空才新建、都已满才放入溢出区或销毁）；
+ *    溢出区（共享槽位满了之后用弱/软引用保存，GC 可以回收多余的空闲对象，不需要主动收缩）。
+ *    都没有时调用 factory 创建。
+ * 2. 归还时先执行 resetter（如 Deflater::reset），再依次放入线程本地缓存、共享槽位、溢出区，都放不下时调用 destroyer（如 Deflater::end）。
+ * 3. 借出时执行 validator，校验失败的对象销毁后继续找下一个。
+ * 4. 被 GC 回收的溢出对象不会调用 destroyer，Deflater/Inflater 等持有 native 资源的类自带 Cleaner，会自行释放。
+ * 5. 空闲对象总数上限约为 线程数 * localCapacity + maxIdle + maxOverflow。
+ */
+public final class ObjectPool<T> {
+
+    public enum Overflow {
+        /**
+         * 没有溢出区，放不下直接销毁
+         */
+        NONE,
+        /**
+         * 弱引用，下一次 GC 就可能回收
+         */
+        WEAK,
+        /**
+         * 软引用，内存不足时才回收
+         */
+        SOFT
+    }
+
+    private final Supplier<? extends T> factory;
+    private final Predicate<? super T> validator;
+    private final Consumer<? super T> resetter;
+    private final Consumer<? super T> destroyer;
+    private final int localCapacity;
+    private final Overflow overflow;
+    private final int maxOverflow;
+
+    private final ThreadLocal<LocalCache> local;
+    private final AtomicReferenceArray<T> slots;
+    private final int stripeMask;
+    private final int stripeLength;
+    private final ConcurrentLinkedQueue<Reference<T>> overflowQueue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger overflowSize = new AtomicInteger();
+
+    private final LongAdder created = new LongAdder();
+    private final LongAdder localHits = new LongAdder();
+    private final LongAdder sharedHits = new LongAdder();
+    private final LongAdder overflowHits = new LongAdder();
+    private final LongAdder destroyed = new LongAdder();
+    private final LongAdder reclaimed = new LongAdder();
+
+    private ObjectPool(Builder<T> builder) {
+        this.factory = builder.factory;
+        this.validator = builder.validator;
+        this.resetter = builder.resetter;
+        this.destroyer = builder.destroyer;
+        this.localCapacity = builder.localCapacity;
+        this.overflow = builder.overflow;
+        this.maxOverflow = builder.maxOverflow;
+        // 先取较小值再向下取 2 的幂，保证 stripeMask 是全 1
+        int stripes = Integer.highestOneBit(Math.min(builder.stripes, builder.maxIdle));
+        this.stripeMask = stripes - 1;
+        this.stripeLength = (builder.maxIdle + stripes - 1) / stripes;
+        // 槽位数正好是 maxIdle，最后一个条带可能不满，扫描时按总长度取模回绕
+        this.slots = new AtomicReferenceArray<>(builder.maxIdle);
+        this.local = localCapacity > 0 ? ThreadLocal.withInitial(() -> new LocalCache(localCapacity)) : null;
+    }
+
+    public static <T> Builder<T> builder(Supplier<? extends T> factory) {
+        return new Builder<>(factory);
+    }
+
+    /**
+     * 借出一个对象，用完必须 release；建议用 lease 配合 try-with-resources
+     */
+    public T borrow() {
+        T object;
+        if (local != null) {
+            LocalCache cache = local.get();
+            while ((object = cache.pop()) != null) {
+                if (valid(object)) {
+                    localHits.increment();
+                    return object;
+                }
+            }
+        }
+        while ((object = pollShared()) != null) {
+            if (valid(object)) {
+                sharedHits.increment();
+                return object;
+            }
+        }
+        while ((object = pollOverflow()) != null) {
+            if (valid(object)) {
+                overflowHits.increment();
+                return object;
+            }
+        }
+        object = Objects.requireNonNull(factory.get(), "factory 返回了 null");
+        created.increment();
+        return object;
+    }
+
+    public void release(T object) {
+        if (object == null) {
+            return;
+        }
+        if (resetter != null) {
+            try {
+                resetter.accept(object);
+            } catch (RuntimeException e) {
+                // 重置失败的对象不能再借出
+                destroy(object);
+                return;
+            }
+        }
+        if (local != null && local.get().push(object)) {
+            return;
+        }
+        if (offerShared(object) || offerOverflow(object)) {
+            return;
+        }
+        destroy(object);
+    }
+
+    /**
+     * 借出一个对象，close 时归还
+     */
+    public Lease<T> lease() {
+        return new Lease<>(this, borrow());
+    }
+
+    public Stats stats() {
+        return new Stats(created.sum(), localHits.sum(), sharedHits.sum(), overflowHits.sum(), destroyed.sum(),
+                reclaimed.sum(), idleShared(), overflowSize.get());
+    }
+
+    private boolean valid(T object) {
+        if (validator == null || validator.test(object)) {
+            return true;
+        }
+        destroy(object);
+        return false;
+    }
+
+    private void destroy(T object) {
+        destroyed.increment();
+        if (destroyer != null) {
+            try {
+                destroyer.accept(object);
+            } catch (RuntimeException e) {
+                // 销毁失败不影响调用方
+            }
+        }
+    }
+
+    /**
+     * 从本线程的条带开始找，找遍全部槽位
+     */
+    private T pollShared() {
+        int start = stripe() * stripeLength;
+        int limit = slots.length();
+        for (int i = 0; i < limit; i++) {
+            int index = (start + i) % slots.length();
+            T object = slots.get(index);
+            if (object != null && slots.compareAndSet(index, object, null)) {
+                return object;
+            }
+        }
+        return null;
+    }
+
+    private boolean offerShared(T object) {
+        int start = stripe() * stripeLength;
+        int limit = slots.length();
+        for (int i = 0; i < limit; i++) {
+            int index = (start + i) % slots.length();
+            if (slots.get(index) == null && slots.compareAndSet(index, null, object)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private T pollOverflow() {
+        Reference<T> reference;
+        while ((reference = overflowQueue.poll()) != null) {
+            overflowSize.decrementAndGet();
+            T object = reference.get();
+            if (object != null) {
+                return object;
+            }
+            reclaimed.increment();
+        }
+        return null;
+    }
+
+    private boolean offerOverflow(T object) {
+        if (overflow == Overflow.NONE) {
+            return false;
+        }
+        if (overflowSize.incrementAndGet() > maxOverflow) {
+            overflowSize.decrementAndGet();
+            return false;
+        }
+        overflowQueue.offer(overflow == Overflow.WEAK ? new WeakReference<>(object) : new SoftReference<>(object));
+        return true;
+    }
+
+    private int stripe() {
+        long id = Thread.currentThread().getId();
+        return (int) (id ^ (id >>> 16)) & stripeMask;
+    }
+
+    private int idleShared() {
+        int idle = 0;
+        for (int i = 0; i < slots.length(); i++) {
+            if (slots.get(i) != null) {
+                idle++;
+            }
+        }
+        return idle;
+    }
+
+    /**
+     * 线程本地缓存，只被所属线程访问
+     */
+    private final class LocalCache {
+        private final Object[] items;
+        private int size;
+
+        LocalCache(int capacity) {
+            this.items = new Object[capacity];
+        }
+
+        @SuppressWarnings("unchecked")
+        T pop() {
+            if (size == 0) {
+                return null;
+            }
+            T object = (T) items[--size];
+            items[size] = null;
+            return object;
+        }
+
+        boolean push(T object) {
+            if (size == items.length) {
+                return false;
+            }
+            items[size++] = object;
+            return true;
+        }
+    }
+
+    /**
+     * 借出的对象，close 时归还，只能 close 一次
+     */
+    public static final class Lease<T> implements AutoCloseable {
+        private final ObjectPool<T> pool;
+        private T object;
+
+        private Lease(ObjectPool<T> pool, T object) {
+            this.pool = pool;
+            this.object = object;
+        }
+
+        public T get() {
+            if (object == null) {
+                throw new IllegalStateException("已经归还");
+            }
+            return object;
+        }
+
+        @Override
+        public void close() {
+            if (object != null) {
+                T released = object;
+                object = null;
+                pool.release(released);
+            }
+        }
+    }
+
+    public static final class Builder<T> {
+        private final Supplier<? extends T> factory;
+        private Predicate<? super T> validator;
+        private Consumer<? super T> resetter;
+        private Consumer<? super T> destroyer;
+        private int localCapacity = 2;
+        private int maxIdle = 64;
+        private int stripes = Runtime.getRuntime().availableProcessors();
+        private Overflow overflow = Overflow.WEAK;
+        private int maxOverflow = 1024;
+
+        private Builder(Supplier<? extends T> factory) {
+            this.factory = Objects.requireNonNull(factory, "factory");
+        }
+
+        /**
+         * 借出前校验，返回 false 的对象被销毁
+         */
+        public Builder<T> validator(Predicate<? super T> validator) {
+            this.validator = validator;
+            return this;
+        }
+
+        /**
+         * 归还时重置对象状态
+         */
+        public Builder<T> resetter(Consumer<? super T> resetter) {
+            this.resetter = resetter;
+            return this;
+        }
+
+        /**
+         * 销毁对象，释放 native 资源等
+         */
+        public Builder<T> destroyer(Consumer<? super T> destroyer) {
+            this.destroyer = destroyer;
+            return this;
+        }
+
+        /**
+         * 每个线程本地缓存的对象数，0 表示不使用线程本地缓存
+         */
+        public Builder<T> localCapacity(int localCapacity) {
+            if (localCapacity < 0) {
+                throw new IllegalArgumentException("localCapacity 不能小于 0：" + localCapacity);
+            }
+            this.localCapacity = localCapacity;
+            return this;
+        }
+
+        /**
+         * 共享槽位数，即线程本地缓存之外强引用保留的空闲对象上限
+         */
+        public Builder<T> maxIdle(int maxIdle) {
+            if (maxIdle <= 0) {
+                throw new IllegalArgumentException("maxIdle 必须大于 0：" + maxIdle);
+            }
+            this.maxIdle = maxIdle;
+            return this;
+        }
+
+        /**
+         * 共享槽位的条带数，向下取 2 的幂，默认 CPU 核数
+         */
+        public Builder<T> stripes(int stripes) {
+            if (stripes <= 0) {
+                throw new IllegalArgumentException("stripes 必须大于 0：" + stripes);
+            }
+            this.stripes = stripes;
+            return this;
+        }
+
+        public Builder<T> overflow(Overflow overflow, int maxOverflow) {
+            this.overflow = Objects.requireNonNull(overflow, "overflow");
+            this.maxOverflow = maxOverflow;
+            return this;
+        }
+
+        public ObjectPool<T> build() {
+            return new ObjectPool<>(this);
+        }
+    }
+
+    public static final class Stats {
+        private final long created;
+        private final long localHits;
+        private final long sharedHits;
+        private final long overflowHits;
+        private final long destroyed;
+        private final long reclaimed;
+        private final int idleShared;
+        private final int idleOverflow;
+
+        Stats(long created, long localHits, long sharedHits, long overflowHits, long destroyed, long reclaimed,
+                int idleShared, int idleOverflow) {
+            this.created = created;
+            this.localHits = localHits;
+            this.sharedHits = sharedHits;
+            this.overflowHits = overflowHits;
+            this.destroyed = destroyed;
+            this.reclaimed = reclaimed;
+            this.idleShared = idleShared;
+            this.idleOverflow = idleOverflow;
+        }
+
+        public long getCreated() {
+            return created;
+        }
+
+        public long getLocalHits() {
+            return localHits;
+        }
+
+        public long getSharedHits() {
+            return sharedHits;
+        }
+
+        public long getOverflowHits() {
+            return overflowHits;
+        }
+
+        public long getDestroyed() {
+            return destroyed;
+        }
+
+        /**
+         * 溢出区中发现已被 GC 回收的对象数
+         */
+        public long getReclaimed() {
+            return reclaimed;
+        }
+
+        public int getIdleShared() {
+            return idleShared;
+        }
+
+        /**
+         * 溢出区中的引用数，可能包含已被回收但还没发现的
+         */
+        public int getIdleOverflow() {
+            return idleOverflow;
+        }
+
+        @Override
+        public String toString() {
+            return "Stats{created=" + created + ", localHits=" + localHits + ", sharedHits=" + sharedHits
+                    + ", overflowHits=" + overflowHits + ", destroyed=" + destroyed + ", reclaimed=" + reclaimed
+                    + ", idleShared=" + idleShared + ", idleOverflow=" + idleOverflow + "}";
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package priv.captain.designpattern.pool;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+import java.util.zip.Deflater;
+
+/**
+ * 对象池与每次新建的耗时对比
+ * 说明：
+ * 1. Deflater：每次 new + end，和从 ObjectPool 借用（归还时 reset）对比，压缩 1 KB 数据。
+ * 2. MessageDigest：每次 getInstance，和从 ObjectPool 借用对比，计算一段短字符串的 SHA-256。
+ * 3. 多线程借还后打印 Stats；最后把大量对象同时借出再归还，超出 maxIdle 的进入弱引用溢出区，System.gc() 后被回收。
+ */
+public class ObjectPoolBenchmark {
+
+    private static final int ROUNDS = 200_000;
+    private static final int THREADS = 4;
+
+    /**
+     * 防止结果被 JIT 优化掉
+     */
+    private static volatile Object sink;
+
+    public static void main(String[] args) throws Exception {
+        byte[] input = new byte[1024];
+        for (int i = 0; i < input.length; i++) {
+            input[i] = (byte) (i % 17);
+        }
+        byte[] output = new byte[2048];
+        ObjectPool<Deflater> deflaters = ObjectPool.builder(Deflater::new)
+                .resetter(Deflater::reset)
+                .destroyer(Deflater::end)
+                .build();
+        byte[] text = "object pool benchmark".getBytes(StandardCharsets.UTF_8);
+        ObjectPool<MessageDigest> digests = ObjectPool.builder(ObjectPoolBenchmark::sha256)
+                .resetter(MessageDigest::reset)
+                .build();
+
+        for (int round = 0; round < 2; round++) {
+            System.out.println(round == 0 ? "预热" : "计时");
+            report("Deflater new/end", ROUNDS / 10, () -> {
+                Deflater deflater = new Deflater();
+                try {
+                    return deflate(deflater, input, output);
+                } finally {
+                    deflater.end();
+                }
+            });
+            report("Deflater 对象池", ROUNDS / 10, () -> {
+                Deflater deflater = deflaters.borrow();
+                try {
+                    return deflate(deflater, input, output);
+                } finally {
+                    deflaters.release(deflater);
+                }
+            });
+            report("SHA-256 getInstance", ROUNDS, () -> sha256().digest(text)[0]);
+            report("SHA-256 对象池", ROUNDS, () -> {
+                try (ObjectPool.Lease<MessageDigest> lease = digests.lease()) {
+                    return lease.get().digest(text)[0];
+                }
+            });
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < ROUNDS; i++) {
+                    try (ObjectPool.Lease<MessageDigest> lease = digests.lease()) {
+                        lease.get().update(text);
+                    }
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        System.out.println(THREADS + " 线程借还后：" + digests.stats());
+
+        // 一次借出大量对象再全部归还，多余的进入弱引用溢出区
+        burst(digests);
+        System.out.println("突发归还后：" + digests.stats());
+        System.gc();
+        burst(digests);
+        System.out.println("GC 后再突发借还：" + digests.stats());
+    }
+
+    private static void report(String name, int rounds, Supplier<Object> task) {
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            sink = task.get();
+        }
+        long nanos = System.nanoTime() - start;
+        System.out.printf("  %-20s %8.1f ns/op%n", name, (double) nanos / rounds);
+    }
+
+    private static void burst(ObjectPool<MessageDigest> digests) {
+        List<MessageDigest> borrowed = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            borrowed.add(digests.borrow());
+        }
+        borrowed.forEach(digests::release);
+    }
+
+    private static int deflate(Deflater deflater, byte[] input, byte[] output) {
+        deflater.setInput(input);
+        deflater.finish();
+        int size = 0;
+        while (!deflater.finished()) {
+            size += deflater.deflate(output, size, output.length - size);
+        }
+        return size;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
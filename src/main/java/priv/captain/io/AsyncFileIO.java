@@ -0,0 +1,288 @@
+package priv.captain.io;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * 基于 AsynchronousFileChannel 的异步文件读写（AIO）
+ * 说明：
+ * 1. 所有读写都是定位读写（position），不依赖也不修改通道的当前位置，因此可以并发发起多个请求。
+ * 2. 结果以 CompletableFuture 返回，调用方可以继续做CPU计算，IO完成后再通过 thenApply/thenCompose 衔接后续处理，
+ *    不需要为每个文件读取阻塞一个线程池线程。
+ * 3. 同时在途的IO请求数有上限（maxInFlight），超出的请求进入队列，前面的请求完成后再依次发起，避免一次性提交过多请求压垮磁盘。
+ */
+public class AsyncFileIO implements Closeable {
+
+    private final AsynchronousFileChannel channel;
+    private final int maxInFlight;
+
+    // 当前在途请求数
+    private final AtomicInteger inFlight = new AtomicInteger();
+    // 等待发起的请求
+    private final Queue<Runnable> pending = new ConcurrentLinkedQueue<>();
+    // drain 的重入计数，保证同一时刻只有一个线程在发起请求
+    private final AtomicInteger wip = new AtomicInteger();
+
+    private AsyncFileIO(AsynchronousFileChannel channel, int maxInFlight) {
+        if (maxInFlight <= 0) {
+            throw new IllegalArgumentException("maxInFlight必须大于0：" + maxInFlight);
+        }
+        this.channel = channel;
+        this.maxInFlight = maxInFlight;
+    }
+
+    /**
+     * 使用JVM默认的AIO线程池打开文件
+     *
+     * @param path        文件路径
+     * @param maxInFlight 最大在途请求数
+     * @param options     打开选项，如 READ、WRITE、CREATE
+     * @return
+     * @throws IOException
+     */
+    public static AsyncFileIO open(Path path, int maxInFlight, OpenOption... options) throws IOException {
+        return new AsyncFileIO(AsynchronousFileChannel.open(path, options), maxInFlight);
+    }
+
+    /**
+     * 使用指定线程池打开文件，完成回调（以及 CompletableFuture 的同步后续操作）都在该线程池中执行
+     *
+     * @param path        文件路径
+     * @param maxInFlight 最大在途请求数
+     * @param executor    回调线程池
+     * @param options     打开选项
+     * @return
+     * @throws IOException
+     */
+    public static AsyncFileIO open(Path path, int maxInFlight, ExecutorService executor, OpenOption... options)
+            throws IOException {
+        Set<OpenOption> optionSet = new HashSet<>(List.of(options));
+        return new AsyncFileIO(AsynchronousFileChannel.open(path, optionSet, executor), maxInFlight);
+    }
+
+    public long size() throws IOException {
+        return channel.size();
+    }
+
+    /**
+     * 从 position 开始读取 length 个字节，返回已 flip 的缓冲区；遇到文件末尾时返回实际读到的内容
+     *
+     * @param position 文件位置
+     * @param length   读取长度
+     * @return
+     */
+    public CompletableFuture<ByteBuffer> read(long position, int length) {
+        return read(position, ByteBuffer.allocate(length));
+    }
+
+    /**
+     * 从 position 开始读满 dst（或读到文件末尾），返回已 flip 的 dst。
+     * 调用方可以传入池化的缓冲区，避免每次读取都分配新内存。
+     *
+     * @param position 文件位置
+     * @param dst      目标缓冲区
+     * @return
+     */
+    public CompletableFuture<ByteBuffer> read(long position, ByteBuffer dst) {
+        return submit(future -> readFully(position, dst, future));
+    }
+
+    /**
+     * 把 src 的剩余内容全部写入 position 处，返回写入的字节数
+     *
+     * @param position 文件位置
+     * @param src      源缓冲区
+     * @return
+     */
+    public CompletableFuture<Integer> write(long position, ByteBuffer src) {
+        int total = src.remaining();
+        return submit(future -> writeFully(position, src, total, future));
+    }
+
+    /**
+     * 分散读（scatter）：一次调用读取多个区间，各区间并发发起（受在途上限约束），
+     * 全部完成后按入参顺序返回结果
+     *
+     * @param ranges 读取区间
+     * @return
+     */
+    public CompletableFuture<List<ByteBuffer>> readRanges(List<FileRange> ranges) {
+        List<CompletableFuture<ByteBuffer>> futures = new ArrayList<>(ranges.size());
+        for (FileRange range : ranges) {
+            futures.add(read(range.getPosition(), range.getLength()));
+        }
+        return allOf(futures);
+    }
+
+    /**
+     * 聚集写（gather）：把多个缓冲区从 position 开始依次首尾相接写入文件，各缓冲区并发发起，
+     * 全部完成后返回写入的总字节数
+     *
+     * @param position 起始位置
+     * @param srcs     源缓冲区
+     * @return
+     */
+    public CompletableFuture<Long> write(long position, List<ByteBuffer> srcs) {
+        List<CompletableFuture<Integer>> futures = new ArrayList<>(srcs.size());
+        long offset = position;
+        for (ByteBuffer src : srcs) {
+            // 先记录长度再提交，提交后缓冲区可能已经在被异步消费
+            int length = src.remaining();
+            futures.add(write(offset, src));
+            offset += length;
+        }
+        return allOf(futures).thenApply(written -> {
+            long total = 0;
+            for (Integer n : written) {
+                total += n;
+            }
+            return total;
+        });
+    }
+
+    /**
+     * 当前在途请求数
+     */
+    public int inFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * 排队等待发起的请求数
+     */
+    public int pending() {
+        return pending.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void readFully(long position, ByteBuffer dst, CompletableFuture<ByteBuffer> future) {
+        int start = dst.position();
+        channel.read(dst, position, null, new CompletionHandler<Integer, Void>() {
+            @Override
+            public void completed(Integer n, Void attachment) {
+                if (n < 0 || !dst.hasRemaining()) {
+                    dst.flip();
+                    future.complete(dst);
+                    return;
+                }
+                channel.read(dst, position + dst.position() - start, null, this);
+            }
+
+            @Override
+            public void failed(Throwable e, Void attachment) {
+                future.completeExceptionally(e);
+            }
+        });
+    }
+
+    private void writeFully(long position, ByteBuffer src, int total, CompletableFuture<Integer> future) {
+        channel.write(src, position, null, new CompletionHandler<Integer, Void>() {
+            private long offset = position;
+
+            @Override
+            public void completed(Integer n, Void attachment) {
+                if (n < 0) {
+                    future.completeExceptionally(new EOFException("写入失败，通道已关闭"));
+                    return;
+                }
+                if (!src.hasRemaining()) {
+                    future.complete(total);
+                    return;
+                }
+                offset += n;
+                channel.write(src, offset, null, this);
+            }
+
+            @Override
+            public void failed(Throwable e, Void attachment) {
+                future.completeExceptionally(e);
+            }
+        });
+    }
+
+    /**
+     * 提交一次IO操作：先入队，再尝试在上限内发起。
+     * 返回给调用方的是内部 future 的副本，调用方取消副本不会提前释放在途名额。
+     */
+    private <T> CompletableFuture<T> submit(Consumer<CompletableFuture<T>> operation) {
+        CompletableFuture<T> io = new CompletableFuture<>();
+        io.whenComplete((r, e) -> {
+            inFlight.decrementAndGet();
+            drain();
+        });
+        pending.offer(() -> {
+            try {
+                operation.accept(io);
+            } catch (Throwable e) {
+                // 如通道已关闭，直接以异常结束
+                io.completeExceptionally(e);
+            }
+        });
+        drain();
+        return io.copy();
+    }
+
+    /**
+     * 在上限内不断发起排队中的请求。
+     * 入队后和释放名额后都会调用，保证不会出现队列非空但无人发起的情况。
+     * 请求同步失败时（如通道已关闭），完成回调会在 task.run 内部再次调用 drain；
+     * 用 wip 计数把重入的调用变成外层循环的下一轮，而不是递归，避免排队请求很多时栈溢出。
+     */
+    private void drain() {
+        if (wip.getAndIncrement() != 0) {
+            return;
+        }
+        int missed = 1;
+        while (true) {
+            while (!pending.isEmpty()) {
+                int current = inFlight.get();
+                if (current >= maxInFlight) {
+                    break;
+                }
+                if (!inFlight.compareAndSet(current, current + 1)) {
+                    continue;
+                }
+                Runnable task = pending.poll();
+                if (task == null) {
+                    inFlight.decrementAndGet();
+                    continue;
+                }
+                task.run();
+            }
+            missed = wip.addAndGet(-missed);
+            if (missed == 0) {
+                return;
+            }
+        }
+    }
+
+    private static <T> CompletableFuture<List<T>> allOf(List<CompletableFuture<T>> futures) {
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).thenApply(v -> {
+            List<T> results = new ArrayList<>(futures.size());
+            for (CompletableFuture<T> future : futures) {
+                results.add(future.join());
+            }
+            return results;
+        });
+    }
+}
@@ -0,0 +1,262 @@
+package priv.captain.io;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import priv.captain.designpattern.pool.ObjectPool;
+
+/**
+ * 分块并行压缩（Deflate）
+ * 说明：
+ * 1. 输入按固定大小切块，每块独立压缩成一个帧（frame），帧之间没有依赖，因此可以多核并行压缩/解压。
+ * 2. 帧格式：type(1字节) + rawLength(4字节) + storedLength(4字节) + 数据，type=0 表示原样存储（压缩后反而变大的块），
+ *    type=1 表示 Deflate 压缩。流没有文件头和结束标记，读到 EOF 即结束，所以多个压缩流直接首尾拼接仍是合法的压缩流，
+ *    分片合并时不需要解压再压缩。
+ * 3. 解压时校验帧头：rawLength 不能超过 blockSize，storedLength 不能超过 blockSize 的 Deflate 上界，
+ *    否则按损坏处理（IOException），避免损坏或恶意的分片让解压端按帧头分配超大数组；因此解压要使用与压缩相同的 blockSize。
+ * 4. 并行窗口：最多同时有 parallelism 个块在压缩，按顺序写出，内存占用约为 2 * parallelism * blockSize。
+ * 5. Deflater/Inflater 持有native内存，创建和销毁都昂贵，从 ObjectPool 借用，归还时 reset()；
+ *    相比 ThreadLocal，线程池扩缩容时多余的实例会被销毁（end()）或由 GC 回收，不会跟着空闲线程一直占着 native 内存；
+ *    为此两个池都关闭了线程本地缓存（localCapacity(0)），否则每个用过的线程仍会各自固定持有几个实例。
+ */
+public class BlockCompressor {
+
+    public static final int DEFAULT_BLOCK_SIZE = 1024 * 1024;
+
+    private static final byte TYPE_STORED = 0;
+    private static final byte TYPE_DEFLATE = 1;
+
+    private static final BlockCompressor DEFAULT = new BlockCompressor(Deflater.DEFAULT_COMPRESSION,
+            DEFAULT_BLOCK_SIZE, ForkJoinPool.commonPool(), Runtime.getRuntime().availableProcessors());
+
+    private final int level;
+    private final int blockSize;
+    private final Executor executor;
+    private final int parallelism;
+
+    private final ObjectPool<Deflater> deflaters;
+    private final ObjectPool<Inflater> inflaters = ObjectPool.builder(Inflater::new)
+            .localCapacity(0)
+            .resetter(Inflater::reset)
+            .destroyer(Inflater::end)
+            .build();
+
+    /**
+     * @param level       压缩级别，0-9，越大压缩率越高、CPU消耗越大
+     * @param blockSize   分块大小
+     * @param executor    压缩线程池
+     * @param parallelism 并行窗口大小，一般取CPU核数
+     */
+    public BlockCompressor(int level, int blockSize, Executor executor, int parallelism) {
+        if (blockSize <= 0 || parallelism <= 0) {
+            throw new IllegalArgumentException("blockSize和parallelism必须大于0");
+        }
+        this.level = level;
+        this.blockSize = blockSize;
+        this.executor = executor;
+        this.parallelism = parallelism;
+        this.deflaters = ObjectPool.builder(() -> new Deflater(this.level))
+                .localCapacity(0)
+                .resetter(Deflater::reset)
+                .destroyer(Deflater::end)
+                .build();
+    }
+
+    public static BlockCompressor getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * 压缩：读取 in 直到 EOF，写出帧到 out，不关闭流
+     *
+     * @param in  原始数据
+     * @param out 压缩数据
+     * @return 写出的压缩字节数
+     * @throws IOException
+     */
+    public long compress(InputStream in, OutputStream out) throws IOException {
+        DataOutputStream dos = new DataOutputStream(out);
+        Deque<CompletableFuture<Frame>> window = new ArrayDeque<>(parallelism);
+        long written = 0;
+        while (true) {
+            // 按实际读到的长度返回数组，小文件不会分配整块大小的内存
+            byte[] block = in.readNBytes(blockSize);
+            if (block.length == 0) {
+                break;
+            }
+            if (block.length < blockSize && window.isEmpty()) {
+                // 只有一块（小文件）时直接在当前线程压缩，省去线程切换
+                written += writeFrame(dos, deflate(block));
+                break;
+            }
+            window.addLast(CompletableFuture.supplyAsync(() -> deflate(block), executor));
+            if (window.size() >= parallelism) {
+                written += writeFrame(dos, join(window.removeFirst()));
+            }
+            if (block.length < blockSize) {
+                break;
+            }
+        }
+        while (!window.isEmpty()) {
+            written += writeFrame(dos, join(window.removeFirst()));
+        }
+        dos.flush();
+        return written;
+    }
+
+    /**
+     * 解压：逐帧读取 in 直到 EOF，并行解压后按顺序写出到 out，不关闭流
+     *
+     * @param in  压缩数据
+     * @param out 原始数据
+     * @return 写出的原始字节数
+     * @throws IOException
+     */
+    public long decompress(InputStream in, OutputStream out) throws IOException {
+        DataInputStream dis = new DataInputStream(in);
+        Deque<CompletableFuture<byte[]>> window = new ArrayDeque<>(parallelism);
+        long written = 0;
+        Frame frame;
+        while ((frame = readFrame(dis, blockSize)) != null) {
+            Frame current = frame;
+            window.addLast(current.type == TYPE_STORED ? CompletableFuture.completedFuture(current.data)
+                    : CompletableFuture.supplyAsync(() -> inflate(current), executor));
+            if (window.size() >= parallelism) {
+                written += writeRaw(out, join(window.removeFirst()));
+            }
+        }
+        while (!window.isEmpty()) {
+            written += writeRaw(out, join(window.removeFirst()));
+        }
+        out.flush();
+        return written;
+    }
+
+    private Frame deflate(byte[] block) {
+        int length = block.length;
+        Deflater deflater = deflaters.borrow();
+        try {
+            deflater.setInput(block);
+            deflater.finish();
+            // 压缩结果不小于原始数据时没有意义，输出缓冲区只给原始长度，放不下就原样存储
+            byte[] output = new byte[length];
+            int size = 0;
+            while (!deflater.finished() && size < output.length) {
+                size += deflater.deflate(output, size, output.length - size);
+            }
+            if (!deflater.finished() || size >= length) {
+                return new Frame(TYPE_STORED, length, block);
+            }
+            return new Frame(TYPE_DEFLATE, length, Arrays.copyOf(output, size));
+        } finally {
+            deflaters.release(deflater);
+        }
+    }
+
+    private byte[] inflate(Frame frame) {
+        Inflater inflater = inflaters.borrow();
+        inflater.setInput(frame.data);
+        byte[] output = new byte[frame.rawLength];
+        try {
+            int size = 0;
+            while (size < output.length && !inflater.finished()) {
+                int n = inflater.inflate(output, size, output.length - size);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                size += n;
+            }
+            if (size != output.length) {
+                throw new UncheckedIOException(new IOException("压缩帧损坏：期望" + output.length + "字节，实际" + size));
+            }
+        } catch (DataFormatException e) {
+            throw new UncheckedIOException(new IOException("压缩帧损坏", e));
+        } finally {
+            inflaters.release(inflater);
+        }
+        return output;
+    }
+
+    private static long writeFrame(DataOutputStream out, Frame frame) throws IOException {
+        out.writeByte(frame.type);
+        out.writeInt(frame.rawLength);
+        out.writeInt(frame.data.length);
+        out.write(frame.data);
+        return 9L + frame.data.length;
+    }
+
+    private static Frame readFrame(DataInputStream in, int blockSize) throws IOException {
+        int type = in.read();
+        if (type < 0) {
+            return null;
+        }
+        if (type != TYPE_STORED && type != TYPE_DEFLATE) {
+            throw new IOException("未知的帧类型：" + type);
+        }
+        int rawLength = in.readInt();
+        int storedLength = in.readInt();
+        if (rawLength < 0 || storedLength < 0 || (type == TYPE_STORED && rawLength != storedLength)) {
+            throw new IOException("压缩帧长度非法：" + rawLength + "," + storedLength);
+        }
+        if (rawLength > blockSize || storedLength > deflateBound(blockSize)) {
+            throw new IOException("压缩帧长度超过分块大小 " + blockSize + "：" + rawLength + "," + storedLength);
+        }
+        byte[] data = new byte[storedLength];
+        try {
+            in.readFully(data);
+        } catch (EOFException e) {
+            throw new IOException("压缩帧不完整", e);
+        }
+        return new Frame((byte) type, rawLength, data);
+    }
+
+    /**
+     * n 字节输入 Deflate 后的最大长度，与 zlib 的 compressBound 相同
+     */
+    private static long deflateBound(int n) {
+        return (long) n + (n >>> 12) + (n >>> 14) + (n >>> 25) + 13;
+    }
+
+    private static long writeRaw(OutputStream out, byte[] data) throws IOException {
+        out.write(data);
+        return data.length;
+    }
+
+    private static <T> T join(CompletableFuture<T> future) throws IOException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) e.getCause()).getCause();
+            }
+            throw e;
+        }
+    }
+
+    private static final class Frame {
+        private final byte type;
+        private final int rawLength;
+        private final byte[] data;
+
+        Frame(byte type, int rawLength, byte[] data) {
+            this.type = type;
+            this.rawLength = rawLength;
+            this.data = data;
+        }
+    }
+}
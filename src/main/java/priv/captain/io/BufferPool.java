@@ -0,0 +1,351 @@
+package priv.captain.io;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 直接内存（DirectByteBuffer）缓冲池，按规格分级：4K、8K、64K、1M
+ * 说明：
+ * 1. 直接内存的分配和回收都很昂贵（需要系统调用，回收依赖GC触发Cleaner），超过 MaxDirectMemorySize 时
+ *    还会在分配路径上触发 System.gc()，因此频繁拷贝的场景应复用缓冲区而不是每次新建。
+ * 2. 两级缓存：线程本地缓存无竞争，命中时不需要任何同步；本地缓存满了再放入共享队列，共享队列也满了才丢弃交给GC。
+ *    只有借出线程自己归还时才放入本地缓存；在其他线程归还（如 AIO 完成回调线程）直接放入共享队列，
+ *    否则缓冲区会滞留在从不借用的线程的本地缓存里。
+ * 3. 泄漏检测：每个借出的 PooledBuffer 通过弱引用登记，句柄被GC回收却没有 close() 即判定为泄漏。
+ *    泄漏的缓冲区不会放回池中（调用方可能仍持有底层 ByteBuffer），只计数并打印提示。
+ * 4. 超过最大规格的申请直接分配，不入池。
+ */
+public final class BufferPool {
+
+    /**
+     * 规格分级
+     */
+    public static final int[] SIZE_CLASSES = { 4 * 1024, 8 * 1024, 64 * 1024, 1024 * 1024 };
+
+    /**
+     * 各规格共享队列的最大缓存个数，大规格占内存多，缓存个数相应减少
+     */
+    private static final int[] DEFAULT_SHARED_LIMITS = { 256, 256, 64, 16 };
+
+    private static final BufferPool DEFAULT = new BufferPool(8, DEFAULT_SHARED_LIMITS, true);
+
+    private final int[] sharedLimits;
+    private final boolean leakDetection;
+
+    private final Queue<ByteBuffer>[] shared;
+    private final AtomicInteger[] sharedSizes;
+    private final ThreadLocal<LocalCache> localCache;
+
+    // 泄漏检测：借出中的句柄弱引用，句柄被回收后进入队列
+    private final Set<LeakRef> outstandingRefs = ConcurrentHashMap.newKeySet();
+    private final ReferenceQueue<PooledBuffer> leakQueue = new ReferenceQueue<>();
+
+    // 统计
+    private final LongAdder acquires = new LongAdder();
+    private final LongAdder localHits = new LongAdder();
+    private final LongAdder sharedHits = new LongAdder();
+    private final LongAdder allocations = new LongAdder();
+    private final LongAdder allocatedBytes = new LongAdder();
+    private final LongAdder unpooled = new LongAdder();
+    private final LongAdder discarded = new LongAdder();
+    private final LongAdder leaks = new LongAdder();
+    private final LongAdder outstanding = new LongAdder();
+    private final LongAdder localPooled = new LongAdder();
+
+    /**
+     * @param localCacheSize 每个线程每种规格最多缓存的个数
+     * @param sharedLimits   每种规格共享队列的最大缓存个数，长度需与 SIZE_CLASSES 一致
+     * @param leakDetection  是否开启泄漏检测
+     */
+    @SuppressWarnings("unchecked")
+    public BufferPool(int localCacheSize, int[] sharedLimits, boolean leakDetection) {
+        if (sharedLimits.length != SIZE_CLASSES.length) {
+            throw new IllegalArgumentException("sharedLimits长度必须为" + SIZE_CLASSES.length);
+        }
+        this.sharedLimits = sharedLimits.clone();
+        this.leakDetection = leakDetection;
+        this.shared = (Queue<ByteBuffer>[]) new Queue<?>[SIZE_CLASSES.length];
+        this.sharedSizes = new AtomicInteger[SIZE_CLASSES.length];
+        for (int i = 0; i < SIZE_CLASSES.length; i++) {
+            shared[i] = new ConcurrentLinkedQueue<>();
+            sharedSizes[i] = new AtomicInteger();
+        }
+        this.localCache = ThreadLocal.withInitial(() -> new LocalCache(SIZE_CLASSES.length, localCacheSize));
+    }
+
+    /**
+     * 进程级默认缓冲池
+     */
+    public static BufferPool getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * 借出一个容量不小于 minCapacity 的缓冲区，使用完毕后必须 close()，推荐 try-with-resources。
+     * 返回的缓冲区已 clear()，limit 等于实际容量。
+     *
+     * @param minCapacity 最小容量
+     * @return
+     */
+    public PooledBuffer acquire(int minCapacity) {
+        acquires.increment();
+        if (leakDetection) {
+            expungeLeaks();
+        }
+        int sizeClass = sizeClassOf(minCapacity);
+        ByteBuffer buffer;
+        if (sizeClass < 0) {
+            unpooled.increment();
+            buffer = allocate(minCapacity);
+        } else {
+            buffer = localCache.get().poll(sizeClass);
+            if (buffer != null) {
+                localPooled.decrement();
+                localHits.increment();
+            } else {
+                buffer = shared[sizeClass].poll();
+                if (buffer != null) {
+                    sharedSizes[sizeClass].decrementAndGet();
+                    sharedHits.increment();
+                } else {
+                    buffer = allocate(SIZE_CLASSES[sizeClass]);
+                }
+            }
+            buffer.clear();
+        }
+        outstanding.increment();
+        PooledBuffer pooled = new PooledBuffer(this, buffer, sizeClass);
+        if (leakDetection) {
+            LeakRef ref = new LeakRef(pooled, buffer.capacity(), leakQueue);
+            outstandingRefs.add(ref);
+            pooled.leakRef = ref;
+        }
+        return pooled;
+    }
+
+    /**
+     * 根据预估的数据量选择合适的规格：数据量小时用小缓冲区，避免浪费内存；数据量大时用大缓冲区，减少IO次数
+     *
+     * @param expectedBytes 预估数据量，如文件大小
+     * @return
+     */
+    public PooledBuffer acquireFor(long expectedBytes) {
+        long capped = Math.min(Math.max(expectedBytes, SIZE_CLASSES[0]), SIZE_CLASSES[SIZE_CLASSES.length - 1]);
+        return acquire((int) capped);
+    }
+
+    void release(PooledBuffer pooled) {
+        outstanding.decrement();
+        LeakRef ref = pooled.leakRef;
+        if (ref != null) {
+            outstandingRefs.remove(ref);
+            // clear 之后不会再进入引用队列
+            ref.clear();
+        }
+        int sizeClass = pooled.sizeClass;
+        if (sizeClass < 0) {
+            return;
+        }
+        ByteBuffer buffer = pooled.buffer;
+        if (pooled.owner == Thread.currentThread() && localCache.get().offer(sizeClass, buffer)) {
+            localPooled.increment();
+            return;
+        }
+        if (sharedSizes[sizeClass].incrementAndGet() <= sharedLimits[sizeClass]) {
+            shared[sizeClass].offer(buffer);
+            return;
+        }
+        sharedSizes[sizeClass].decrementAndGet();
+        discarded.increment();
+    }
+
+    /**
+     * 统计快照
+     */
+    public Stats stats() {
+        int pooledCount = localPooled.intValue();
+        for (AtomicInteger size : sharedSizes) {
+            pooledCount += size.get();
+        }
+        return new Stats(acquires.sum(), localHits.sum(), sharedHits.sum(), allocations.sum(), allocatedBytes.sum(),
+                unpooled.sum(), discarded.sum(), leaks.sum(), outstanding.sum(), pooledCount);
+    }
+
+    private ByteBuffer allocate(int capacity) {
+        allocations.increment();
+        allocatedBytes.add(capacity);
+        return ByteBuffer.allocateDirect(capacity);
+    }
+
+    private static int sizeClassOf(int capacity) {
+        for (int i = 0; i < SIZE_CLASSES.length; i++) {
+            if (capacity <= SIZE_CLASSES[i]) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 处理已被GC回收但没有归还的句柄
+     */
+    private void expungeLeaks() {
+        LeakRef ref;
+        while ((ref = (LeakRef) leakQueue.poll()) != null) {
+            if (outstandingRefs.remove(ref)) {
+                leaks.increment();
+                outstanding.decrement();
+                System.err.println("BufferPool检测到缓冲区泄漏：容量=" + ref.capacity + "，PooledBuffer未调用close()即被回收");
+            }
+        }
+    }
+
+    /**
+     * 线程本地缓存，每种规格一个定长数组栈，只被所属线程访问
+     */
+    private static final class LocalCache {
+        private final ByteBuffer[][] stacks;
+        private final int[] sizes;
+
+        LocalCache(int classes, int capacity) {
+            this.stacks = new ByteBuffer[classes][capacity];
+            this.sizes = new int[classes];
+        }
+
+        ByteBuffer poll(int sizeClass) {
+            int size = sizes[sizeClass];
+            if (size == 0) {
+                return null;
+            }
+            ByteBuffer buffer = stacks[sizeClass][--size];
+            stacks[sizeClass][size] = null;
+            sizes[sizeClass] = size;
+            return buffer;
+        }
+
+        boolean offer(int sizeClass, ByteBuffer buffer) {
+            int size = sizes[sizeClass];
+            if (size == stacks[sizeClass].length) {
+                return false;
+            }
+            stacks[sizeClass][size] = buffer;
+            sizes[sizeClass] = size + 1;
+            return true;
+        }
+    }
+
+    /**
+     * 借出句柄的弱引用，只记录容量，不持有缓冲区本身
+     */
+    static final class LeakRef extends WeakReference<PooledBuffer> {
+        private final int capacity;
+
+        LeakRef(PooledBuffer referent, int capacity, ReferenceQueue<PooledBuffer> queue) {
+            super(referent, queue);
+            this.capacity = capacity;
+        }
+    }
+
+    /**
+     * 缓冲池统计
+     */
+    public static final class Stats {
+        private final long acquires;
+        private final long localHits;
+        private final long sharedHits;
+        private final long allocations;
+        private final long allocatedBytes;
+        private final long unpooled;
+        private final long discarded;
+        private final long leaks;
+        private final long outstanding;
+        private final int pooled;
+
+        Stats(long acquires, long localHits, long sharedHits, long allocations, long allocatedBytes, long unpooled,
+                long discarded, long leaks, long outstanding, int pooled) {
+            this.acquires = acquires;
+            this.localHits = localHits;
+            this.sharedHits = sharedHits;
+            this.allocations = allocations;
+            this.allocatedBytes = allocatedBytes;
+            this.unpooled = unpooled;
+            this.discarded = discarded;
+            this.leaks = leaks;
+            this.outstanding = outstanding;
+            this.pooled = pooled;
+        }
+
+        public long getAcquires() {
+            return acquires;
+        }
+
+        public long getLocalHits() {
+            return localHits;
+        }
+
+        public long getSharedHits() {
+            return sharedHits;
+        }
+
+        public long getAllocations() {
+            return allocations;
+        }
+
+        public long getAllocatedBytes() {
+            return allocatedBytes;
+        }
+
+        public long getUnpooled() {
+            return unpooled;
+        }
+
+        public long getDiscarded() {
+            return discarded;
+        }
+
+        public long getLeaks() {
+            return leaks;
+        }
+
+        public long getOutstanding() {
+            return outstanding;
+        }
+
+        /**
+         * 池中空闲的缓冲区个数，包括共享队列和各线程的本地缓存
+         */
+        public int getPooled() {
+            return pooled;
+        }
+
+        /**
+         * 命中率：本地命中和共享命中占全部借出的比例
+         */
+        public double getHitRate() {
+            return acquires == 0 ? 0 : (double) (localHits + sharedHits) / acquires;
+        }
+
+        @Override
+        public String toString() {
+            return "BufferPool.Stats{" +
+                    "acquires=" + acquires +
+                    ", localHits=" + localHits +
+                    ", sharedHits=" + sharedHits +
+                    ", allocations=" + allocations +
+                    ", allocatedBytes=" + allocatedBytes +
+                    ", unpooled=" + unpooled +
+                    ", discarded=" + discarded +
+                    ", leaks=" + leaks +
+                    ", outstanding=" + outstanding +
+                    ", pooled=" + pooled +
+                    '}';
+        }
+    }
+}
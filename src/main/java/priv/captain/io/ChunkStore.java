@@ -0,0 +1,175 @@
+package priv.captain.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * 分片上传的分片存储，目录结构见《分片上传功能实现笔记》：
+ * 临时分片 {tempRoot}/{fileMd5}_{userId}/{chunkIndex}，合并后 {finalRoot}/{fileMd5}
+ * 说明：
+ * 1. 可选压缩：传入 BlockCompressor 时分片落盘前先压缩，合并后的文件也保持压缩格式，用CPU换磁盘和页缓存空间。
+ * 2. BlockCompressor 的帧彼此独立且没有文件头，压缩分片直接首尾拼接就是合法的压缩文件，
+ *    因此无论是否压缩，合并都只是零拷贝追加（transferTo），不需要解压再压缩。
+ * 3. 合并的并发控制（同一个 fileMd5 只允许一个合并）由调用方负责，如笔记中的分布式锁。
+ * 4. fileMd5 来自客户端，必须是 32 位十六进制，否则抛 IllegalArgumentException，
+ *    防止 "../" 之类的值让读取、合并、删除落到存储目录之外。
+ */
+public class ChunkStore {
+
+    /**
+     * 分片文件名：分片索引，最多 9 位数字、没有前导 0，保证能转成 int 且一个索引只对应一个文件名
+     */
+    private static final Pattern CHUNK_NAME = Pattern.compile("0|[1-9]\\d{0,8}");
+    private static final Pattern MD5 = Pattern.compile("[0-9a-fA-F]{32}");
+
+    private final Path tempRoot;
+    private final Path finalRoot;
+    private final BlockCompressor compressor;
+
+    /**
+     * @param tempRoot   临时分片根目录
+     * @param finalRoot  合并文件根目录
+     * @param compressor 压缩器，为 null 时原样存储
+     */
+    public ChunkStore(Path tempRoot, Path finalRoot, BlockCompressor compressor) {
+        this.tempRoot = tempRoot;
+        this.finalRoot = finalRoot;
+        this.compressor = compressor;
+    }
+
+    public boolean isCompressed() {
+        return compressor != null;
+    }
+
+    /**
+     * 保存一个分片，先写临时文件再原子重命名，避免上传中断留下半个分片被误认为已上传
+     *
+     * @param fileMd5    文件唯一标识
+     * @param userId     用户ID
+     * @param chunkIndex 分片索引
+     * @param data       分片数据
+     * @return 落盘字节数
+     * @throws IOException
+     */
+    public long saveChunk(String fileMd5, Long userId, int chunkIndex, InputStream data) throws IOException {
+        if (chunkIndex < 0) {
+            throw new IllegalArgumentException("分片索引不能小于0：" + chunkIndex);
+        }
+        Path dir = Files.createDirectories(chunkDir(fileMd5, userId));
+        Path tmp = dir.resolve(chunkIndex + ".part");
+        long size;
+        try (OutputStream out = Files.newOutputStream(tmp)) {
+            size = compressor != null ? compressor.compress(data, out) : data.transferTo(out);
+        }
+        Files.move(tmp, dir.resolve(String.valueOf(chunkIndex)), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        return size;
+    }
+
+    /**
+     * 已上传的分片索引，用于断点续传
+     */
+    public List<Integer> uploadedChunks(String fileMd5, Long userId) throws IOException {
+        Path dir = chunkDir(fileMd5, userId);
+        List<Integer> indexes = new ArrayList<>();
+        if (!Files.isDirectory(dir)) {
+            return indexes;
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            files.map(path -> path.getFileName().toString())
+                    // 只认纯数字的文件名，忽略 .part 临时文件以及 .DS_Store、编辑器临时文件等
+                    .filter(name -> CHUNK_NAME.matcher(name).matches())
+                    .map(Integer::valueOf)
+                    .sorted()
+                    .forEach(indexes::add);
+        }
+        return indexes;
+    }
+
+    /**
+     * 按分片索引顺序零拷贝追加合并，完成后删除临时分片目录
+     *
+     * @param fileMd5     文件唯一标识
+     * @param userId      用户ID
+     * @param totalChunks 分片总数
+     * @return 合并后的文件
+     * @throws IOException
+     */
+    public Path merge(String fileMd5, Long userId, int totalChunks) throws IOException {
+        Path dir = chunkDir(fileMd5, userId);
+        List<Integer> uploaded = uploadedChunks(fileMd5, userId);
+        // 已排序且不重复，个数相等并且最后一个是 totalChunks - 1，就正好是 0..totalChunks-1
+        if (uploaded.size() != totalChunks
+                || (totalChunks > 0 && uploaded.get(totalChunks - 1) != totalChunks - 1)) {
+            throw new IOException("分片未上传完整：" + uploaded.size() + "/" + totalChunks);
+        }
+        Files.createDirectories(finalRoot);
+        Path target = finalRoot.resolve(checkMd5(fileMd5));
+        try (FileChannel out = FileChannel.open(target, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (int i = 0; i < totalChunks; i++) {
+                try (FileChannel in = FileChannel.open(dir.resolve(String.valueOf(i)), StandardOpenOption.READ)) {
+                    long size = in.size();
+                    long position = 0;
+                    while (position < size) {
+                        long transferred = in.transferTo(position, size - position, out);
+                        if (transferred <= 0) {
+                            // 到了文件末尾：分片在合并过程中被截断，不能继续空转
+                            throw new IOException("分片 " + i + " 在合并过程中被截断：期望 " + size + " 字节，当前 "
+                                    + in.size() + " 字节");
+                        }
+                        position += transferred;
+                    }
+                }
+            }
+        }
+        deleteRecursively(dir);
+        return target;
+    }
+
+    /**
+     * 读取合并后的文件，压缩存储时自动解压
+     *
+     * @param fileMd5 文件唯一标识
+     * @param out     输出
+     * @return 原始字节数
+     * @throws IOException
+     */
+    public long read(String fileMd5, OutputStream out) throws IOException {
+        try (InputStream in = Files.newInputStream(finalRoot.resolve(checkMd5(fileMd5)))) {
+            return compressor != null ? compressor.decompress(in, out) : in.transferTo(out);
+        }
+    }
+
+    private Path chunkDir(String fileMd5, Long userId) {
+        return tempRoot.resolve(checkMd5(fileMd5) + "_" + userId);
+    }
+
+    private static String checkMd5(String fileMd5) {
+        if (fileMd5 == null || !MD5.matcher(fileMd5).matches()) {
+            throw new IllegalArgumentException("fileMd5 必须是32位十六进制：" + fileMd5);
+        }
+        return fileMd5;
+    }
+
+    private static void deleteRecursively(Path dir) throws IOException {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            List<Path> sorted = new ArrayList<>();
+            paths.sorted(Comparator.reverseOrder()).forEach(sorted::add);
+            for (Path path : sorted) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package priv.captain.io;
+
+/**
+ * 文件区间，描述一次定位读写的起始位置和长度
+ */
+public final class FileRange {
+
+    private final long position;
+    private final int length;
+
+    public FileRange(long position, int length) {
+        if (position < 0 || length < 0) {
+            throw new IllegalArgumentException("position和length不能为负数：" + position + "," + length);
+        }
+        this.position = position;
+        this.length = length;
+    }
+
+    public static FileRange of(long position, int length) {
+        return new FileRange(position, length);
+    }
+
+    public long getPosition() {
+        return position;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    @Override
+    public String toString() {
+        return "FileRange{" +
+                "position=" + position +
+                ", length=" + length +
+                '}';
+    }
+}
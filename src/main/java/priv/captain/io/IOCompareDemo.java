@@ -5,10 +5,15 @@ import java.io.BufferedOutputStream;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * 各种IO流方式对比
@@ -25,6 +30,9 @@ public class IOCompareDemo {
         // bufferIo(sourceFileName, targetFileName);
         // nio1(sourceFileName, targetFileName);
         nioFileChannel(sourceFileName, targetFileName);
+        // aioFileChannel(sourceFileName, targetFileName);
+        // pooledFileChannel(sourceFileName, targetFileName);
+        // bulkCopy(projectRoot + "/src/main/java/priv/captain", projectRoot + "/target/copy-demo");
         System.out.println("拷贝完成！");
     }
 
@@ -41,7 +49,7 @@ public class IOCompareDemo {
             /**
              * 缓冲区大小一般是1KB、4KB、8KB、16KB，系统兼容性的话8KB比较好
              * 缓冲区的目的是减少IO操作，优化性能，如果设置过小则IO频繁，性能下降，如果设置过大则会浪费内存。
-             * 缓冲区的大小由实际情况决定，也可以考虑使用动态的缓冲区值
+             * 缓冲区的大小由实际情况决定，也可以考虑使用动态的缓冲区值，见 pooledFileChannel
              */
             byte[] buffer = new byte[1024];
             int length;
@@ -105,4 +113,77 @@ public class IOCompareDemo {
             sourceChannel.transferTo(0, sourceChannel.size(), targetChannel);
         }
     }
+
+    /**
+     * 池化缓冲区写法，按文件大小从 BufferPool 选择合适规格的直接内存缓冲区（动态缓冲区大小），用完归还复用，
+     * 避免每次拷贝都重新分配直接内存
+     *
+     * @param sourceFileName
+     * @param targetFileName
+     * @throws IOException
+     */
+    private static void pooledFileChannel(String sourceFileName, String targetFileName) throws IOException {
+        try (FileChannel sourceChannel = FileChannel.open(Path.of(sourceFileName), StandardOpenOption.READ);
+                FileChannel targetChannel = FileChannel.open(Path.of(targetFileName), StandardOpenOption.WRITE,
+                        StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+                PooledBuffer pooled = BufferPool.getDefault().acquireFor(sourceChannel.size())) {
+            ByteBuffer buffer = pooled.buffer();
+            while (sourceChannel.read(buffer) != -1) {
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    targetChannel.write(buffer);
+                }
+                buffer.clear();
+            }
+        }
+    }
+
+    /**
+     * 目录树批量拷贝，小文件打包并行拷贝，大文件零拷贝，输出 files/s 和 MB/s
+     *
+     * @param sourceDir
+     * @param targetDir
+     * @throws IOException
+     */
+    private static void bulkCopy(String sourceDir, String targetDir) throws IOException {
+        BulkCopier.CopyStats stats = BulkCopier.of(Path.of(sourceDir), Path.of(targetDir)).copy();
+        System.out.println(stats);
+    }
+
+    /**
+     * AIO 写法，开启多条并发的读写通道（lane），每条通道借一块池化缓冲区，
+     * 循环处理 lane、lane+lanes、lane+2*lanes... 号数据块：异步读完立即异步写入目标文件相同位置，
+     * 多条通道的读写互相重叠，等待期间调用线程可以继续处理其他CPU任务
+     *
+     * @param sourceFileName
+     * @param targetFileName
+     * @throws IOException
+     */
+    private static void aioFileChannel(String sourceFileName, String targetFileName) throws IOException {
+        int lanes = 8;
+        int blockSize = 64 * 1024;
+        try (AsyncFileIO source = AsyncFileIO.open(Path.of(sourceFileName), lanes, StandardOpenOption.READ);
+                AsyncFileIO target = AsyncFileIO.open(Path.of(targetFileName), lanes, StandardOpenOption.WRITE,
+                        StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            long size = source.size();
+            List<CompletableFuture<Void>> copies = new ArrayList<>(lanes);
+            for (int lane = 0; lane < lanes; lane++) {
+                PooledBuffer pooled = BufferPool.getDefault().acquire(blockSize);
+                copies.add(copyBlocks(source, target, (long) lane * blockSize, (long) lanes * blockSize, size,
+                        pooled.buffer()).whenComplete((v, e) -> pooled.close()));
+            }
+            CompletableFuture.allOf(copies.toArray(new CompletableFuture<?>[0])).join();
+        }
+    }
+
+    private static CompletableFuture<Void> copyBlocks(AsyncFileIO source, AsyncFileIO target, long position,
+            long stride, long size, ByteBuffer buffer) {
+        if (position >= size) {
+            return CompletableFuture.completedFuture(null);
+        }
+        buffer.clear().limit((int) Math.min(buffer.capacity(), size - position));
+        return source.read(position, buffer)
+                .thenCompose(read -> target.write(position, read))
+                .thenCompose(written -> copyBlocks(source, target, position + stride, stride, size, buffer));
+    }
 }
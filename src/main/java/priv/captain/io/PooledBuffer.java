@@ -0,0 +1,51 @@
+package priv.captain.io;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * 从 BufferPool 借出的缓冲区句柄
+ * 注意：close() 之后不能再使用 buffer()，否则可能与其他借用者共用同一块内存；
+ * 在使用底层缓冲区期间必须持有该句柄，句柄被GC回收会被判定为泄漏。
+ */
+public final class PooledBuffer implements AutoCloseable {
+
+    private static final AtomicIntegerFieldUpdater<PooledBuffer> CLOSED =
+            AtomicIntegerFieldUpdater.newUpdater(PooledBuffer.class, "closed");
+
+    private final BufferPool pool;
+    final ByteBuffer buffer;
+    final int sizeClass;
+    // 借出线程，归还时只有同一个线程才放入本地缓存
+    final Thread owner = Thread.currentThread();
+    BufferPool.LeakRef leakRef;
+
+    private volatile int closed;
+
+    PooledBuffer(BufferPool pool, ByteBuffer buffer, int sizeClass) {
+        this.pool = pool;
+        this.buffer = buffer;
+        this.sizeClass = sizeClass;
+    }
+
+    public ByteBuffer buffer() {
+        if (closed != 0) {
+            throw new IllegalStateException("缓冲区已归还");
+        }
+        return buffer;
+    }
+
+    public int capacity() {
+        return buffer.capacity();
+    }
+
+    /**
+     * 归还缓冲池，重复调用只归还一次
+     */
+    @Override
+    public void close() {
+        if (CLOSED.compareAndSet(this, 0, 1)) {
+            pool.release(this);
+        }
+    }
+}
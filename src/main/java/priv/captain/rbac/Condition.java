@@ -0,0 +1,518 @@
+package priv.captain.rbac;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * ABAC 条件表达式编译后的谓词树
+ * 说明：
+ * 1. 表达式语法与《基于RBAC设计系统笔记》中的策略条件一致，例如
+ *    resource.dept_id == user.dept_id && resource.sensitivity != '敏感'，
+ *    支持 == != < <= > >=、in (a, b) / in user.xxx（集合属性）、&& || !、括号，
+ *    属性分为 resource（资源/记录属性）、user（用户属性）、env（环境属性：时间、终端、IP 等）。
+ * 2. test：逐行解释执行，每一行都重新解析用户/环境属性，是没有索引时的做法。
+ * 3. bind：一次请求里用户和环境属性是固定的，先把它们替换成常量并做常量折叠，
+ *    得到只引用资源属性的谓词树；再用 select 基于 RecordSet 的列索引按位图求值，
+ *    1M 条记录的过滤变成几次位图合并，不再逐行执行每条规则。
+ */
+public abstract class Condition {
+
+    public static final Condition TRUE = new Constant(true);
+    public static final Condition FALSE = new Constant(false);
+
+    /**
+     * 解析条件表达式
+     */
+    public static Condition parse(String expression) {
+        return new ConditionParser(expression).parse();
+    }
+
+    /**
+     * 逐行判断记录是否满足条件
+     *
+     * @param records 记录集
+     * @param row     行号
+     * @param user    用户属性
+     * @param env     环境属性
+     * @return
+     */
+    public abstract boolean test(RecordSet records, int row, Map<String, ?> user, Map<String, ?> env);
+
+    /**
+     * 把用户、环境属性替换为常量并折叠，返回只引用资源属性的条件
+     */
+    public abstract Condition bind(Map<String, ?> user, Map<String, ?> env);
+
+    /**
+     * 基于列索引求出满足条件的行，只能在 bind 之后调用；返回的位图归调用方所有，可以直接修改
+     */
+    public abstract BitSet select(RecordSet records);
+
+    /**
+     * 退化为逐行扫描，用于两侧都是资源属性等无法走索引的条件（已 bind，不再需要用户/环境属性）
+     */
+    BitSet scan(RecordSet records) {
+        BitSet result = new BitSet(records.size());
+        for (int row = 0; row < records.size(); row++) {
+            if (test(records, row, Collections.emptyMap(), Collections.emptyMap())) {
+                result.set(row);
+            }
+        }
+        return result;
+    }
+
+    static BitSet all(RecordSet records) {
+        BitSet result = new BitSet(records.size());
+        result.set(0, records.size());
+        return result;
+    }
+
+    // ==================== 操作数 ====================
+
+    enum Scope {
+        RESOURCE, USER, ENV, CONSTANT
+    }
+
+    static final class Operand {
+        final Scope scope;
+        final String name;
+        final Object value;
+
+        private Operand(Scope scope, String name, Object value) {
+            this.scope = scope;
+            this.name = name;
+            this.value = value;
+        }
+
+        static Operand attribute(Scope scope, String name) {
+            return new Operand(scope, name, null);
+        }
+
+        static Operand constant(Object value) {
+            return new Operand(Scope.CONSTANT, null, RecordSet.normalize(value));
+        }
+
+        boolean isConstant() {
+            return scope == Scope.CONSTANT;
+        }
+
+        Object resolve(RecordSet records, int row, Map<String, ?> user, Map<String, ?> env) {
+            switch (scope) {
+            case RESOURCE:
+                return records.get(row, name);
+            case USER:
+                return RecordSet.normalize(user.get(name));
+            case ENV:
+                return RecordSet.normalize(env.get(name));
+            default:
+                return value;
+            }
+        }
+
+        Operand bind(Map<String, ?> user, Map<String, ?> env) {
+            switch (scope) {
+            case USER:
+                return constant(user.get(name));
+            case ENV:
+                return constant(env.get(name));
+            default:
+                return this;
+            }
+        }
+
+        @Override
+        public String toString() {
+            return isConstant() ? (value instanceof String ? "'" + value + "'" : String.valueOf(value))
+                    : scope.name().toLowerCase() + "." + name;
+        }
+    }
+
+    // ==================== 比较 ====================
+
+    enum Operator {
+        EQ("=="), NE("!="), LT("<"), LE("<="), GT(">"), GE(">=");
+
+        final String symbol;
+
+        Operator(String symbol) {
+            this.symbol = symbol;
+        }
+
+        boolean test(Object left, Object right) {
+            if (this == EQ) {
+                return Objects.equals(left, right);
+            }
+            if (this == NE) {
+                return !Objects.equals(left, right);
+            }
+            int c = compare(left, right);
+            if (c == Integer.MIN_VALUE) {
+                return false;
+            }
+            switch (this) {
+            case LT:
+                return c < 0;
+            case LE:
+                return c <= 0;
+            case GT:
+                return c > 0;
+            default:
+                return c >= 0;
+            }
+        }
+
+        /**
+         * 交换左右操作数后的运算符：3 < x 等价于 x > 3
+         */
+        Operator swap() {
+            switch (this) {
+            case LT:
+                return GT;
+            case LE:
+                return GE;
+            case GT:
+                return LT;
+            case GE:
+                return LE;
+            default:
+                return this;
+            }
+        }
+
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        private static int compare(Object left, Object right) {
+            if (left == null || right == null) {
+                return Integer.MIN_VALUE;
+            }
+            if (left instanceof Number && right instanceof Number) {
+                return Double.compare(((Number) left).doubleValue(), ((Number) right).doubleValue());
+            }
+            if (left instanceof Comparable && left.getClass() == right.getClass()) {
+                return ((Comparable) left).compareTo(right);
+            }
+            return Integer.MIN_VALUE;
+        }
+    }
+
+    static final class Compare extends Condition {
+        private final Operand left;
+        private final Operator operator;
+        private final Operand right;
+
+        Compare(Operand left, Operator operator, Operand right) {
+            this.left = left;
+            this.operator = operator;
+            this.right = right;
+        }
+
+        @Override
+        public boolean test(RecordSet records, int row, Map<String, ?> user, Map<String, ?> env) {
+            return operator.test(left.resolve(records, row, user, env), right.resolve(records, row, user, env));
+        }
+
+        @Override
+        public Condition bind(Map<String, ?> user, Map<String, ?> env) {
+            Operand l = left.bind(user, env);
+            Operand r = right.bind(user, env);
+            if (l.isConstant() && r.isConstant()) {
+                return operator.test(l.value, r.value) ? TRUE : FALSE;
+            }
+            return new Compare(l, operator, r);
+        }
+
+        @Override
+        public BitSet select(RecordSet records) {
+            if (left.scope == Scope.RESOURCE && right.isConstant()) {
+                return select(records, left.name, operator, right.value);
+            }
+            if (right.scope == Scope.RESOURCE && left.isConstant()) {
+                return select(records, right.name, operator.swap(), left.value);
+            }
+            requireBound(left);
+            requireBound(right);
+            return scan(records);
+        }
+
+        private BitSet select(RecordSet records, String attribute, Operator operator, Object value) {
+            if (value == null) {
+                // null 不进索引，这种少见的条件直接扫描
+                return scan(records);
+            }
+            Map<Object, BitSet> index = records.index(attribute);
+            if (operator == Operator.EQ || operator == Operator.NE) {
+                BitSet rows = index.get(value);
+                BitSet result = rows == null ? new BitSet(records.size()) : (BitSet) rows.clone();
+                if (operator == Operator.NE) {
+                    result.flip(0, records.size());
+                }
+                return result;
+            }
+            // 范围条件遍历不同取值
+            BitSet result = new BitSet(records.size());
+            for (Map.Entry<Object, BitSet> entry : index.entrySet()) {
+                if (operator.test(entry.getKey(), value)) {
+                    result.or(entry.getValue());
+                }
+            }
+            return result;
+        }
+
+        @Override
+        public String toString() {
+            return left + " " + operator.symbol + " " + right;
+        }
+    }
+
+    static final class In extends Condition {
+        private final Operand operand;
+        private final List<Operand> values;
+
+        In(Operand operand, List<Operand> values) {
+            this.operand = operand;
+            this.values = values;
+        }
+
+        @Override
+        public boolean test(RecordSet records, int row, Map<String, ?> user, Map<String, ?> env) {
+            Object target = operand.resolve(records, row, user, env);
+            for (Operand value : values) {
+                Object resolved = value.resolve(records, row, user, env);
+                if (resolved instanceof Collection) {
+                    for (Object element : (Collection<?>) resolved) {
+                        if (Objects.equals(target, RecordSet.normalize(element))) {
+                            return true;
+                        }
+                    }
+                } else if (Objects.equals(target, resolved)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public Condition bind(Map<String, ?> user, Map<String, ?> env) {
+            Operand target = operand.bind(user, env);
+            List<Operand> bound = new ArrayList<>(values.size());
+            boolean constant = target.isConstant();
+            for (Operand value : values) {
+                Operand b = value.bind(user, env);
+                if (b.isConstant() && b.value instanceof Collection) {
+                    // 集合属性展开，如 resource.dept_id in user.dept_ids
+                    for (Object element : (Collection<?>) b.value) {
+                        bound.add(Operand.constant(element));
+                    }
+                } else {
+                    bound.add(b);
+                }
+                constant &= b.isConstant();
+            }
+            In in = new In(target, bound);
+            if (constant) {
+                return in.test(null, -1, Collections.emptyMap(), Collections.emptyMap()) ? TRUE : FALSE;
+            }
+            return in;
+        }
+
+        @Override
+        public BitSet select(RecordSet records) {
+            if (operand.scope != Scope.RESOURCE || !values.stream().allMatch(Operand::isConstant)) {
+                requireBound(operand);
+                values.forEach(Condition::requireBound);
+                return scan(records);
+            }
+            if (values.stream().anyMatch(value -> value.value == null)) {
+                // null 不进索引，和 Compare 一样直接扫描
+                return scan(records);
+            }
+            Map<Object, BitSet> index = records.index(operand.name);
+            BitSet result = new BitSet(records.size());
+            for (Operand value : values) {
+                BitSet rows = index.get(value.value);
+                if (rows != null) {
+                    result.or(rows);
+                }
+            }
+            return result;
+        }
+
+        @Override
+        public String toString() {
+            return operand + " in " + values;
+        }
+    }
+
+    // ==================== 逻辑运算 ====================
+
+    static final class And extends Condition {
+        private final List<Condition> children;
+
+        And(List<Condition> children) {
+            this.children = children;
+        }
+
+        @Override
+        public boolean test(RecordSet records, int row, Map<String, ?> user, Map<String, ?> env) {
+            for (Condition child : children) {
+                if (!child.test(records, row, user, env)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public Condition bind(Map<String, ?> user, Map<String, ?> env) {
+            List<Condition> bound = new ArrayList<>(children.size());
+            for (Condition child : children) {
+                Condition b = child.bind(user, env);
+                if (b == FALSE) {
+                    return FALSE;
+                }
+                if (b != TRUE) {
+                    bound.add(b);
+                }
+            }
+            return bound.isEmpty() ? TRUE : bound.size() == 1 ? bound.get(0) : new And(bound);
+        }
+
+        @Override
+        public BitSet select(RecordSet records) {
+            BitSet result = children.get(0).select(records);
+            for (int i = 1; i < children.size() && !result.isEmpty(); i++) {
+                result.and(children.get(i).select(records));
+            }
+            return result;
+        }
+
+        @Override
+        public String toString() {
+            return join(children, " && ");
+        }
+    }
+
+    static final class Or extends Condition {
+        private final List<Condition> children;
+
+        Or(List<Condition> children) {
+            this.children = children;
+        }
+
+        @Override
+        public boolean test(RecordSet records, int row, Map<String, ?> user, Map<String, ?> env) {
+            for (Condition child : children) {
+                if (child.test(records, row, user, env)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public Condition bind(Map<String, ?> user, Map<String, ?> env) {
+            List<Condition> bound = new ArrayList<>(children.size());
+            for (Condition child : children) {
+                Condition b = child.bind(user, env);
+                if (b == TRUE) {
+                    return TRUE;
+                }
+                if (b != FALSE) {
+                    bound.add(b);
+                }
+            }
+            return bound.isEmpty() ? FALSE : bound.size() == 1 ? bound.get(0) : new Or(bound);
+        }
+
+        @Override
+        public BitSet select(RecordSet records) {
+            BitSet result = children.get(0).select(records);
+            for (int i = 1; i < children.size(); i++) {
+                result.or(children.get(i).select(records));
+            }
+            return result;
+        }
+
+        @Override
+        public String toString() {
+            return join(children, " || ");
+        }
+    }
+
+    static final class Not extends Condition {
+        private final Condition child;
+
+        Not(Condition child) {
+            this.child = child;
+        }
+
+        @Override
+        public boolean test(RecordSet records, int row, Map<String, ?> user, Map<String, ?> env) {
+            return !child.test(records, row, user, env);
+        }
+
+        @Override
+        public Condition bind(Map<String, ?> user, Map<String, ?> env) {
+            Condition b = child.bind(user, env);
+            return b == TRUE ? FALSE : b == FALSE ? TRUE : new Not(b);
+        }
+
+        @Override
+        public BitSet select(RecordSet records) {
+            BitSet result = child.select(records);
+            result.flip(0, records.size());
+            return result;
+        }
+
+        @Override
+        public String toString() {
+            return "!(" + child + ")";
+        }
+    }
+
+    static final class Constant extends Condition {
+        private final boolean value;
+
+        private Constant(boolean value) {
+            this.value = value;
+        }
+
+        @Override
+        public boolean test(RecordSet records, int row, Map<String, ?> user, Map<String, ?> env) {
+            return value;
+        }
+
+        @Override
+        public Condition bind(Map<String, ?> user, Map<String, ?> env) {
+            return this;
+        }
+
+        @Override
+        public BitSet select(RecordSet records) {
+            return value ? all(records) : new BitSet(records.size());
+        }
+
+        @Override
+        public String toString() {
+            return String.valueOf(value);
+        }
+    }
+
+    private static void requireBound(Operand operand) {
+        if (operand.scope == Scope.USER || operand.scope == Scope.ENV) {
+            throw new IllegalStateException("条件引用了未绑定的属性 " + operand + "，请先调用 bind");
+        }
+    }
+
+    private static String join(List<Condition> children, String separator) {
+        StringBuilder builder = new StringBuilder("(");
+        for (int i = 0; i < children.size(); i++) {
+            builder.append(i == 0 ? "" : separator).append(children.get(i));
+        }
+        return builder.append(')').toString();
+    }
+}
@@ -0,0 +1,195 @@
+package priv.captain.rbac;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import priv.captain.rbac.Condition.Operand;
+import priv.captain.rbac.Condition.Operator;
+import priv.captain.rbac.Condition.Scope;
+
+/**
+ * 条件表达式的递归下降解析器
+ *
+ * <pre>
+ * or      := and ('||' and)*
+ * and     := unary ('&&' unary)*
+ * unary   := '!' unary | '(' or ')' | 'true' | 'false' | operand (compare operand | 'in' values)
+ * values  := '(' operand (',' operand)* ')' | operand
+ * operand := (resource|user|env) '.' name | 'string' | number | null
+ * </pre>
+ */
+final class ConditionParser {
+
+    private final String text;
+    private int pos;
+
+    ConditionParser(String text) {
+        this.text = text;
+    }
+
+    Condition parse() {
+        Condition condition = or();
+        skipWhitespace();
+        if (pos < text.length()) {
+            throw error("多余的字符");
+        }
+        return condition;
+    }
+
+    private Condition or() {
+        List<Condition> children = new ArrayList<>();
+        children.add(and());
+        while (accept("||")) {
+            children.add(and());
+        }
+        return children.size() == 1 ? children.get(0) : new Condition.Or(children);
+    }
+
+    private Condition and() {
+        List<Condition> children = new ArrayList<>();
+        children.add(unary());
+        while (accept("&&")) {
+            children.add(unary());
+        }
+        return children.size() == 1 ? children.get(0) : new Condition.And(children);
+    }
+
+    private Condition unary() {
+        if (accept("!")) {
+            return new Condition.Not(unary());
+        }
+        if (accept("(")) {
+            Condition condition = or();
+            expect(")");
+            return condition;
+        }
+        if (acceptWord("true")) {
+            return Condition.TRUE;
+        }
+        if (acceptWord("false")) {
+            return Condition.FALSE;
+        }
+        Operand left = operand();
+        if (acceptWord("in")) {
+            List<Operand> values = new ArrayList<>();
+            if (accept("(")) {
+                do {
+                    values.add(operand());
+                } while (accept(","));
+                expect(")");
+            } else {
+                values.add(operand());
+            }
+            return new Condition.In(left, values);
+        }
+        Operator operator = operator();
+        return new Condition.Compare(left, operator, operand());
+    }
+
+    private Operator operator() {
+        // 两个字符的运算符优先匹配
+        for (String symbol : new String[] { "==", "!=", "<=", ">=", "<", ">" }) {
+            if (accept(symbol)) {
+                for (Operator operator : Operator.values()) {
+                    if (operator.symbol.equals(symbol)) {
+                        return operator;
+                    }
+                }
+            }
+        }
+        throw error("需要比较运算符");
+    }
+
+    private Operand operand() {
+        skipWhitespace();
+        if (pos >= text.length()) {
+            throw error("表达式不完整");
+        }
+        char c = text.charAt(pos);
+        if (c == '\'' || c == '"') {
+            int end = text.indexOf(c, pos + 1);
+            if (end < 0) {
+                throw error("字符串缺少结束引号");
+            }
+            String value = text.substring(pos + 1, end);
+            pos = end + 1;
+            return Operand.constant(value);
+        }
+        if (c == '-' || Character.isDigit(c)) {
+            int start = pos++;
+            while (pos < text.length() && (Character.isDigit(text.charAt(pos)) || text.charAt(pos) == '.')) {
+                pos++;
+            }
+            String number = text.substring(start, pos);
+            return Operand.constant(number.indexOf('.') >= 0 ? (Object) Double.valueOf(number) : Long.valueOf(number));
+        }
+        String word = word();
+        if ("null".equals(word)) {
+            return Operand.constant(null);
+        }
+        Scope scope;
+        switch (word) {
+        case "resource":
+            scope = Scope.RESOURCE;
+            break;
+        case "user":
+            scope = Scope.USER;
+            break;
+        case "env":
+            scope = Scope.ENV;
+            break;
+        default:
+            throw error("未知的属性范围 " + word + "，只支持 resource/user/env");
+        }
+        expect(".");
+        return Operand.attribute(scope, word());
+    }
+
+    private String word() {
+        skipWhitespace();
+        int start = pos;
+        while (pos < text.length() && (Character.isLetterOrDigit(text.charAt(pos)) || text.charAt(pos) == '_')) {
+            pos++;
+        }
+        if (start == pos) {
+            throw error("需要标识符");
+        }
+        return text.substring(start, pos);
+    }
+
+    private boolean accept(String symbol) {
+        skipWhitespace();
+        if (text.startsWith(symbol, pos)) {
+            pos += symbol.length();
+            return true;
+        }
+        return false;
+    }
+
+    private boolean acceptWord(String word) {
+        skipWhitespace();
+        int end = pos + word.length();
+        if (text.startsWith(word, pos)
+                && (end == text.length() || !(Character.isLetterOrDigit(text.charAt(end)) || text.charAt(end) == '_'))) {
+            pos = end;
+            return true;
+        }
+        return false;
+    }
+
+    private void expect(String symbol) {
+        if (!accept(symbol)) {
+            throw error("需要 " + symbol);
+        }
+    }
+
+    private void skipWhitespace() {
+        while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+            pos++;
+        }
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException("条件表达式解析失败（位置" + pos + "）：" + message + "，表达式：" + text);
+    }
+}
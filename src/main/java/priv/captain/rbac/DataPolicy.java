@@ -0,0 +1,46 @@
+package priv.captain.rbac;
+
+/**
+ * 数据权限策略，对应 abac_policy 表的一行：名称、效果（允许/拒绝）和条件表达式
+ */
+public final class DataPolicy {
+
+    public enum Effect {
+        ALLOW, DENY
+    }
+
+    private final String name;
+    private final Effect effect;
+    private final Condition condition;
+
+    private DataPolicy(String name, Effect effect, Condition condition) {
+        this.name = name;
+        this.effect = effect;
+        this.condition = condition;
+    }
+
+    public static DataPolicy allow(String name, String condition) {
+        return new DataPolicy(name, Effect.ALLOW, Condition.parse(condition));
+    }
+
+    public static DataPolicy deny(String name, String condition) {
+        return new DataPolicy(name, Effect.DENY, Condition.parse(condition));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Effect getEffect() {
+        return effect;
+    }
+
+    public Condition getCondition() {
+        return condition;
+    }
+
+    @Override
+    public String toString() {
+        return effect + " " + name + ": " + condition;
+    }
+}
@@ -0,0 +1,95 @@
+package priv.captain.rbac;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * 数据权限（ABAC）策略引擎，按用户和环境属性过滤记录集
+ * 说明：
+ * 1. 决策规则：至少一条 ALLOW 策略匹配且没有 DENY 策略匹配时可见，DENY 优先；没有 ALLOW 策略时全部不可见。
+ * 2. filter：每次请求先把所有策略 bind 到当前用户/环境属性（常量折叠后很多策略直接变成 true/false），
+ *    再基于记录集的列索引做位图运算：可见行 = OR(允许) ANDNOT OR(拒绝)。
+ * 3. allowed：逐行逐条策略解释执行，用于单条记录判断，也是 filter 的对照实现。
+ */
+@Component
+public class DataScopeEngine {
+
+    private final List<DataPolicy> policies = new CopyOnWriteArrayList<>();
+
+    public DataScopeEngine addPolicy(DataPolicy policy) {
+        policies.add(policy);
+        return this;
+    }
+
+    public boolean removePolicy(String name) {
+        return policies.removeIf(policy -> policy.getName().equals(name));
+    }
+
+    public List<DataPolicy> getPolicies() {
+        return policies;
+    }
+
+    /**
+     * 基于索引过滤，返回可见行号位图
+     *
+     * @param records 记录集
+     * @param user    用户属性，如 dept_id、region、position
+     * @param env     环境属性，如 hour、terminal、ip
+     * @return
+     */
+    public BitSet filter(RecordSet records, Map<String, ?> user, Map<String, ?> env) {
+        BitSet allowed = null;
+        BitSet denied = null;
+        for (DataPolicy policy : policies) {
+            Condition bound = policy.getCondition().bind(user, env);
+            if (bound == Condition.FALSE) {
+                continue;
+            }
+            if (policy.getEffect() == DataPolicy.Effect.DENY) {
+                if (bound == Condition.TRUE) {
+                    return new BitSet();
+                }
+                denied = or(denied, bound.select(records));
+            } else if (allowed == null || allowed.cardinality() < records.size()) {
+                // 已经全部允许时不必再计算其他允许策略
+                allowed = or(allowed, bound.select(records));
+            }
+        }
+        if (allowed == null) {
+            return new BitSet();
+        }
+        if (denied != null) {
+            allowed.andNot(denied);
+        }
+        return allowed;
+    }
+
+    /**
+     * 逐条策略判断单条记录是否可见
+     */
+    public boolean allowed(RecordSet records, int row, Map<String, ?> user, Map<String, ?> env) {
+        boolean allowed = false;
+        for (DataPolicy policy : policies) {
+            if (policy.getEffect() == DataPolicy.Effect.DENY) {
+                if (policy.getCondition().test(records, row, user, env)) {
+                    return false;
+                }
+            } else if (!allowed) {
+                allowed = policy.getCondition().test(records, row, user, env);
+            }
+        }
+        return allowed;
+    }
+
+    private static BitSet or(BitSet accumulated, BitSet rows) {
+        if (accumulated == null) {
+            return rows;
+        }
+        accumulated.or(rows);
+        return accumulated;
+    }
+}
@@ -0,0 +1,482 @@
+package priv.captain.rbac;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import priv.captain.aop.PermissionDictionary;
+import priv.captain.aop.PermissionSet;
+import priv.captain.aop.PermissionSource;
+import priv.captain.audit.AuditLogger;
+import priv.captain.audit.AuditRecord;
+import priv.captain.common.context.UserContext;
+import priv.captain.common.exception.RoleConstraintException;
+
+/**
+ * 内存 RBAC3 引擎，对应《基于RBAC设计系统笔记》中的角色继承、角色互斥和用户组
+ * 说明：
+ * 1. 角色继承：子角色拥有父角色的全部权限，支持多层级、多父角色（DAG），添加继承关系时检查成环。
+ *    每个角色预先计算继承闭包（自身 + 所有祖先角色），判断时不再遍历角色图。
+ * 2. 用户的有效角色 = 直接分配的角色 + 所在用户组的角色，再取继承闭包；有效权限物化为 PermissionSet 位图，
+ *    check(user, permission) 是一次字典查找加一次位运算，O(1)。
+ * 3. 增量更新：角色、继承关系、用户组变化时只重算受影响的角色（该角色及其子孙）和受影响的用户（有效角色包含这些角色的用户）。
+ * 4. 角色互斥：任何变更导致某个用户的有效角色同时包含一对互斥角色时，回滚变更并抛出 RoleConstraintException。
+ * 5. 写操作串行（加锁），读操作无锁：用户权限以不可变位图发布到 ConcurrentHashMap。
+ * 6. 作为 PermissionSource 接入 PermissionEvaluator，版本号在每次变更后递增。
+ * 7. 每次变更和被拒绝的变更都发布权限变更审计记录（操作人取 UserContext 当前用户）。
+ */
+@Component
+public class RbacEngine implements PermissionSource {
+
+    private final PermissionDictionary dictionary;
+    private final AtomicLong version = new AtomicLong();
+
+    private final Map<Long, Integer> roleIndex = new HashMap<>();
+    private final List<Role> roles = new ArrayList<>();
+    private final Map<Long, Group> groups = new HashMap<>();
+    private final Map<Object, UserAssignment> users = new HashMap<>();
+
+    // 发布给读线程的用户有效权限
+    private final ConcurrentMap<Object, PermissionSet> userPermissions = new ConcurrentHashMap<>();
+
+    private final AuditLogger auditLogger;
+
+    public RbacEngine(PermissionDictionary dictionary) {
+        this(dictionary, null);
+    }
+
+    @Autowired
+    public RbacEngine(PermissionDictionary dictionary, AuditLogger auditLogger) {
+        this.dictionary = dictionary;
+        this.auditLogger = auditLogger;
+    }
+
+    // ==================== 查询（无锁） ====================
+
+    /**
+     * 判断用户是否拥有权限，O(1)
+     */
+    public boolean check(Object userId, String permission) {
+        PermissionSet permissions = userPermissions.get(userId);
+        return permissions != null && permissions.contains(dictionary.find(permission));
+    }
+
+    public boolean check(Object userId, int permissionId) {
+        PermissionSet permissions = userPermissions.get(userId);
+        return permissions != null && permissions.contains(permissionId);
+    }
+
+    @Override
+    public Collection<String> loadPermissions(Object userId) {
+        PermissionSet permissions = userPermissions.getOrDefault(userId, PermissionSet.EMPTY);
+        List<String> names = new ArrayList<>(permissions.size());
+        for (int id = 0; id < dictionary.size(); id++) {
+            if (permissions.contains(id)) {
+                names.add(dictionary.nameOf(id));
+            }
+        }
+        return names;
+    }
+
+    @Override
+    public PermissionSet loadCompiled(Object userId, PermissionDictionary dictionary) {
+        if (dictionary != this.dictionary) {
+            return PermissionSource.super.loadCompiled(userId, dictionary);
+        }
+        return userPermissions.getOrDefault(userId, PermissionSet.EMPTY);
+    }
+
+    @Override
+    public long version() {
+        return version.get();
+    }
+
+    /**
+     * 用户的有效角色（含用户组角色和继承的祖先角色）
+     */
+    public synchronized Set<Long> effectiveRoles(Object userId) {
+        UserAssignment user = users.get(userId);
+        return user == null ? Collections.emptySet() : roleIds(user.effectiveRoles);
+    }
+
+    // ==================== 角色 ====================
+
+    public synchronized void createRole(long roleId, String name) {
+        if (roleIndex.containsKey(roleId)) {
+            throw new IllegalArgumentException("角色已存在：" + roleId);
+        }
+        roleIndex.put(roleId, roles.size());
+        roles.add(new Role(roleId, name, roles.size()));
+        audit("createRole", "role:" + roleId, name);
+    }
+
+    /**
+     * 授予角色权限，该角色及其子孙角色的用户立即生效
+     */
+    public synchronized void grant(long roleId, String... permissions) {
+        Role role = role(roleId);
+        for (String permission : permissions) {
+            role.permissions.set(dictionary.idOf(permission));
+        }
+        BitSet affected = descendantsOf(role.index);
+        recomputeUsers(usersWithAnyRole(affected));
+        audit("grant", "role:" + roleId, String.join(",", permissions));
+    }
+
+    public synchronized void revoke(long roleId, String... permissions) {
+        Role role = role(roleId);
+        for (String permission : permissions) {
+            int id = dictionary.find(permission);
+            if (id >= 0) {
+                role.permissions.clear(id);
+            }
+        }
+        BitSet affected = descendantsOf(role.index);
+        recomputeUsers(usersWithAnyRole(affected));
+        audit("revoke", "role:" + roleId, String.join(",", permissions));
+    }
+
+    /**
+     * 添加继承关系：child 继承 parent 的权限
+     */
+    public synchronized void addInheritance(long childRoleId, long parentRoleId) {
+        Role child = role(childRoleId);
+        Role parent = role(parentRoleId);
+        if (parent.closure.get(child.index)) {
+            throw violation("角色继承成环：" + parent.name + " 已继承 " + child.name);
+        }
+        if (child.parents.get(parent.index)) {
+            return;
+        }
+        changeInheritance(child, parent, true);
+        audit("addInheritance", "role:" + childRoleId, "parent:" + parentRoleId);
+    }
+
+    public synchronized void removeInheritance(long childRoleId, long parentRoleId) {
+        Role child = role(childRoleId);
+        Role parent = role(parentRoleId);
+        if (child.parents.get(parent.index)) {
+            changeInheritance(child, parent, false);
+            audit("removeInheritance", "role:" + childRoleId, "parent:" + parentRoleId);
+        }
+    }
+
+    /**
+     * 设置两个角色互斥，已有用户同时拥有这两个角色时拒绝
+     */
+    public synchronized void addMutex(long roleId1, long roleId2) {
+        Role role1 = role(roleId1);
+        Role role2 = role(roleId2);
+        for (Map.Entry<Object, UserAssignment> entry : users.entrySet()) {
+            BitSet effective = entry.getValue().effectiveRoles;
+            if (effective.get(role1.index) && effective.get(role2.index)) {
+                throw violation(
+                        "用户" + entry.getKey() + "已同时拥有角色 " + role1.name + " 和 " + role2.name + "，无法设置互斥");
+            }
+        }
+        role1.mutex.set(role2.index);
+        role2.mutex.set(role1.index);
+        audit("addMutex", "role:" + roleId1, "role:" + roleId2);
+    }
+
+    // ==================== 用户 ====================
+
+    public synchronized void assignRole(Object userId, long roleId) {
+        Role role = role(roleId);
+        UserAssignment user = users.computeIfAbsent(userId, id -> new UserAssignment());
+        if (user.directRoles.get(role.index)) {
+            return;
+        }
+        user.directRoles.set(role.index);
+        applyOrRollback(Collections.singleton(userId), () -> user.directRoles.clear(role.index));
+        audit("assignRole", "user:" + userId, "role:" + roleId);
+    }
+
+    public synchronized void revokeRole(Object userId, long roleId) {
+        Role role = role(roleId);
+        UserAssignment user = users.get(userId);
+        if (user != null && user.directRoles.get(role.index)) {
+            user.directRoles.clear(role.index);
+            recomputeUsers(Collections.singleton(userId));
+            audit("revokeRole", "user:" + userId, "role:" + roleId);
+        }
+    }
+
+    // ==================== 用户组 ====================
+
+    public synchronized void createGroup(long groupId, String name) {
+        if (groups.putIfAbsent(groupId, new Group(name)) != null) {
+            throw new IllegalArgumentException("用户组已存在：" + groupId);
+        }
+        audit("createGroup", "group:" + groupId, name);
+    }
+
+    public synchronized void assignRoleToGroup(long groupId, long roleId) {
+        Group group = group(groupId);
+        Role role = role(roleId);
+        if (group.roles.get(role.index)) {
+            return;
+        }
+        group.roles.set(role.index);
+        applyOrRollback(group.members, () -> group.roles.clear(role.index));
+        audit("assignRoleToGroup", "group:" + groupId, "role:" + roleId);
+    }
+
+    public synchronized void revokeRoleFromGroup(long groupId, long roleId) {
+        Group group = group(groupId);
+        Role role = role(roleId);
+        if (group.roles.get(role.index)) {
+            group.roles.clear(role.index);
+            recomputeUsers(group.members);
+            audit("revokeRoleFromGroup", "group:" + groupId, "role:" + roleId);
+        }
+    }
+
+    public synchronized void addUserToGroup(Object userId, long groupId) {
+        Group group = group(groupId);
+        UserAssignment user = users.computeIfAbsent(userId, id -> new UserAssignment());
+        if (!user.groups.add(groupId)) {
+            return;
+        }
+        group.members.add(userId);
+        applyOrRollback(Collections.singleton(userId), () -> {
+            user.groups.remove(groupId);
+            group.members.remove(userId);
+        });
+        audit("addUserToGroup", "user:" + userId, "group:" + groupId);
+    }
+
+    public synchronized void removeUserFromGroup(Object userId, long groupId) {
+        Group group = group(groupId);
+        UserAssignment user = users.get(userId);
+        if (user != null && user.groups.remove(groupId)) {
+            group.members.remove(userId);
+            recomputeUsers(Collections.singleton(userId));
+            audit("removeUserFromGroup", "user:" + userId, "group:" + groupId);
+        }
+    }
+
+    // ==================== 内部计算 ====================
+
+    private void changeInheritance(Role child, Role parent, boolean add) {
+        BitSet affected = descendantsOf(child.index);
+        // 变更前记录受影响的用户，删除继承时这些用户的有效角色会变少
+        Set<Object> affectedUsers = usersWithAnyRole(affected);
+        if (add) {
+            child.parents.set(parent.index);
+        } else {
+            child.parents.clear(parent.index);
+        }
+        recomputeClosures(affected);
+        applyOrRollback(affectedUsers, () -> {
+            if (add) {
+                child.parents.clear(parent.index);
+            } else {
+                child.parents.set(parent.index);
+            }
+            recomputeClosures(affected);
+        });
+    }
+
+    /**
+     * 重算受影响用户的有效角色并校验互斥，违反约束时执行 rollback、恢复用户数据后抛出异常
+     */
+    private void applyOrRollback(Collection<Object> userIds, Runnable rollback) {
+        Map<Object, BitSet> candidates = new HashMap<>();
+        for (Object userId : userIds) {
+            UserAssignment user = users.get(userId);
+            if (user == null) {
+                continue;
+            }
+            BitSet effective = effectiveRolesOf(user);
+            String violation = mutexViolation(effective);
+            if (violation != null) {
+                rollback.run();
+                throw violation("角色互斥，无法分配：用户" + userId + " " + violation);
+            }
+            candidates.put(userId, effective);
+        }
+        for (Map.Entry<Object, BitSet> entry : candidates.entrySet()) {
+            publish(entry.getKey(), users.get(entry.getKey()), entry.getValue());
+        }
+        version.incrementAndGet();
+    }
+
+    private void recomputeUsers(Collection<Object> userIds) {
+        for (Object userId : userIds) {
+            UserAssignment user = users.get(userId);
+            if (user != null) {
+                publish(userId, user, effectiveRolesOf(user));
+            }
+        }
+        version.incrementAndGet();
+    }
+
+    private void publish(Object userId, UserAssignment user, BitSet effectiveRoles) {
+        user.effectiveRoles = effectiveRoles;
+        BitSet permissions = new BitSet();
+        for (int i = effectiveRoles.nextSetBit(0); i >= 0; i = effectiveRoles.nextSetBit(i + 1)) {
+            permissions.or(roles.get(i).permissions);
+        }
+        userPermissions.put(userId, PermissionSet.of(permissions.toLongArray()));
+    }
+
+    private BitSet effectiveRolesOf(UserAssignment user) {
+        BitSet assigned = (BitSet) user.directRoles.clone();
+        for (Long groupId : user.groups) {
+            assigned.or(groups.get(groupId).roles);
+        }
+        BitSet effective = new BitSet();
+        for (int i = assigned.nextSetBit(0); i >= 0; i = assigned.nextSetBit(i + 1)) {
+            effective.or(roles.get(i).closure);
+        }
+        return effective;
+    }
+
+    private String mutexViolation(BitSet effectiveRoles) {
+        for (int i = effectiveRoles.nextSetBit(0); i >= 0; i = effectiveRoles.nextSetBit(i + 1)) {
+            Role role = roles.get(i);
+            if (role.mutex.intersects(effectiveRoles)) {
+                BitSet conflict = (BitSet) role.mutex.clone();
+                conflict.and(effectiveRoles);
+                return role.name + " 与 " + roles.get(conflict.nextSetBit(0)).name + " 互斥";
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 角色自身及所有继承了它的子孙角色
+     */
+    private BitSet descendantsOf(int roleIndex) {
+        BitSet descendants = new BitSet();
+        for (Role role : roles) {
+            if (role.closure.get(roleIndex)) {
+                descendants.set(role.index);
+            }
+        }
+        return descendants;
+    }
+
+    private void recomputeClosures(BitSet affected) {
+        for (int i = affected.nextSetBit(0); i >= 0; i = affected.nextSetBit(i + 1)) {
+            roles.get(i).closure = null;
+        }
+        for (int i = affected.nextSetBit(0); i >= 0; i = affected.nextSetBit(i + 1)) {
+            closureOf(roles.get(i));
+        }
+    }
+
+    private BitSet closureOf(Role role) {
+        if (role.closure != null) {
+            return role.closure;
+        }
+        BitSet closure = new BitSet();
+        closure.set(role.index);
+        for (int i = role.parents.nextSetBit(0); i >= 0; i = role.parents.nextSetBit(i + 1)) {
+            closure.or(closureOf(roles.get(i)));
+        }
+        role.closure = closure;
+        return closure;
+    }
+
+    private void audit(String action, String target, String detail) {
+        if (auditLogger != null) {
+            auditLogger.publish(AuditRecord.Type.PERMISSION_CHANGE, UserContext.getUserId(), action, target, true,
+                    detail);
+        }
+    }
+
+    /**
+     * 记录被拒绝的变更并返回约束异常
+     */
+    private RoleConstraintException violation(String message) {
+        if (auditLogger != null) {
+            auditLogger.publish(AuditRecord.Type.PERMISSION_CHANGE, UserContext.getUserId(), "constraint", null,
+                    false, message);
+        }
+        return new RoleConstraintException(message);
+    }
+
+    private Set<Object> usersWithAnyRole(BitSet roleIndexes) {
+        Set<Object> result = new LinkedHashSet<>();
+        for (Map.Entry<Object, UserAssignment> entry : users.entrySet()) {
+            if (entry.getValue().effectiveRoles.intersects(roleIndexes)) {
+                result.add(entry.getKey());
+            }
+        }
+        return result;
+    }
+
+    private Set<Long> roleIds(BitSet indexes) {
+        Set<Long> ids = new HashSet<>();
+        for (int i = indexes.nextSetBit(0); i >= 0; i = indexes.nextSetBit(i + 1)) {
+            ids.add(roles.get(i).id);
+        }
+        return ids;
+    }
+
+    private Role role(long roleId) {
+        Integer index = roleIndex.get(roleId);
+        if (index == null) {
+            throw new IllegalArgumentException("角色不存在：" + roleId);
+        }
+        return roles.get(index);
+    }
+
+    private Group group(long groupId) {
+        Group group = groups.get(groupId);
+        if (group == null) {
+            throw new IllegalArgumentException("用户组不存在：" + groupId);
+        }
+        return group;
+    }
+
+    private static final class Role {
+        private final long id;
+        private final String name;
+        private final int index;
+        private final BitSet parents = new BitSet();
+        private final BitSet mutex = new BitSet();
+        private final BitSet permissions = new BitSet();
+        // 继承闭包：自身 + 所有祖先角色
+        private BitSet closure;
+
+        Role(long id, String name, int index) {
+            this.id = id;
+            this.name = name;
+            this.index = index;
+            this.closure = new BitSet();
+            this.closure.set(index);
+        }
+    }
+
+    private static final class Group {
+        private final String name;
+        private final BitSet roles = new BitSet();
+        private final Set<Object> members = new HashSet<>();
+
+        Group(String name) {
+            this.name = name;
+        }
+    }
+
+    private static final class UserAssignment {
+        private final BitSet directRoles = new BitSet();
+        private final Set<Long> groups = new HashSet<>();
+        private BitSet effectiveRoles = new BitSet();
+    }
+}
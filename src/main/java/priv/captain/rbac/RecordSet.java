@@ -0,0 +1,113 @@
+package priv.captain.rbac;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 按列存储的内存记录集，供数据权限过滤使用
+ * 说明：
+ * 1. 每个属性一列 Object[]，行号即记录下标。
+ * 2. 每列按需建立 值 -> 行号位图 的倒排索引，第一次被过滤条件用到时构建，之后追加记录时同步更新。
+ *    政务数据的部门、区域、敏感等级等属性取值个数远小于记录数，等值、IN、范围条件都只需遍历不同取值、合并位图。
+ * 3. 整数统一存成 Long，保证 101 和 101L 在索引中是同一个键。
+ * 4. 按“先装载、后查询”使用，追加记录与过滤并发执行时需要调用方同步。
+ */
+public class RecordSet {
+
+    private final Map<String, Integer> columnIndex = new LinkedHashMap<>();
+    private Object[][] columns;
+    private int size;
+    private final ConcurrentMap<String, Map<Object, BitSet>> indexes = new ConcurrentHashMap<>();
+
+    public RecordSet(String... attributes) {
+        for (String attribute : attributes) {
+            columnIndex.put(attribute, columnIndex.size());
+        }
+        this.columns = new Object[attributes.length][16];
+    }
+
+    /**
+     * 追加一条记录，values 按构造时的属性顺序排列
+     *
+     * @return 行号
+     */
+    public synchronized int add(Object... values) {
+        if (values.length != columns.length) {
+            throw new IllegalArgumentException("属性个数不匹配，需要" + columns.length + "个，实际" + values.length + "个");
+        }
+        if (size == columns[0].length) {
+            for (int i = 0; i < columns.length; i++) {
+                columns[i] = Arrays.copyOf(columns[i], size * 2);
+            }
+        }
+        int row = size;
+        for (String attribute : columnIndex.keySet()) {
+            int column = columnIndex.get(attribute);
+            Object value = normalize(values[column]);
+            columns[column][row] = value;
+            Map<Object, BitSet> index = indexes.get(attribute);
+            if (index != null && value != null) {
+                index.computeIfAbsent(value, v -> new BitSet()).set(row);
+            }
+        }
+        size = row + 1;
+        return row;
+    }
+
+    public Object get(int row, String attribute) {
+        return columns[column(attribute)][row];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public Set<String> attributes() {
+        return columnIndex.keySet();
+    }
+
+    /**
+     * 属性的倒排索引：取值 -> 行号位图，null 值不进索引
+     */
+    public Map<Object, BitSet> index(String attribute) {
+        Map<Object, BitSet> index = indexes.get(attribute);
+        if (index != null) {
+            return index;
+        }
+        synchronized (this) {
+            return indexes.computeIfAbsent(attribute, this::buildIndex);
+        }
+    }
+
+    private Map<Object, BitSet> buildIndex(String attribute) {
+        Object[] values = columns[column(attribute)];
+        Map<Object, BitSet> index = new HashMap<>();
+        for (int row = 0; row < size; row++) {
+            if (values[row] != null) {
+                index.computeIfAbsent(values[row], v -> new BitSet()).set(row);
+            }
+        }
+        return index;
+    }
+
+    private int column(String attribute) {
+        Integer column = columnIndex.get(attribute);
+        if (column == null) {
+            throw new IllegalArgumentException("记录集没有属性：" + attribute);
+        }
+        return column;
+    }
+
+    static Object normalize(Object value) {
+        if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return ((Number) value).longValue();
+        }
+        return value;
+    }
+}
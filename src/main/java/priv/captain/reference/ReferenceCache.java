@@ -0,0 +1,399 @@
+package priv.captain.reference;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * 基于软/弱引用的内存敏感缓存，可以代替 WeakHashMap
+ * 说明：
+ * 1. 底层是 ConcurrentHashMap，可以并发读写；WeakHashMap 不是线程安全的，而且每次操作都要把引用队列清空，单次耗时没有上限。
+ * 2. 键可以是强引用或弱引用，值可以是强引用、软引用或弱引用：
+ *    弱引用的键按 == 比较（与 Guava 的 weakKeys 一致），否则一个 equals 相等的新对象会让条目的生命周期变得不可预测；
+ *    软引用的值在内存不足（Full GC 前）才会被回收，适合做缓存；弱引用的值下一次 GC 就可能被回收。
+ * 3. 被 GC 回收的键或值会进入 ReferenceQueue，写操作时顺便清理，每次最多处理 DRAIN_LIMIT 个，
+ *    并且用 tryLock 保证同一时刻只有一个线程在清理，不需要专门的清理线程；也可以手动调用 cleanUp 全部清理。
+ * 4. 读到值已被回收的条目按未命中处理。stats 中 gcCleared 是因键或值被 GC 回收而清理掉的条目数。
+ */
+public final class ReferenceCache<K, V> {
+
+    /**
+     * 每次写操作最多清理的引用数
+     */
+    static final int DRAIN_LIMIT = 16;
+
+    public enum Strength {
+        STRONG, SOFT, WEAK
+    }
+
+    private final ConcurrentHashMap<Object, ValueHolder<V>> map = new ConcurrentHashMap<>();
+    private final ReferenceQueue<Object> queue = new ReferenceQueue<>();
+    private final ReentrantLock drainLock = new ReentrantLock();
+    private final Strength keyStrength;
+    private final Strength valueStrength;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder puts = new LongAdder();
+    private final LongAdder gcCleared = new LongAdder();
+
+    private ReferenceCache(Strength keyStrength, Strength valueStrength) {
+        if (keyStrength == Strength.SOFT) {
+            throw new IllegalArgumentException("键只支持 STRONG 或 WEAK");
+        }
+        this.keyStrength = Objects.requireNonNull(keyStrength, "keyStrength");
+        this.valueStrength = Objects.requireNonNull(valueStrength, "valueStrength");
+    }
+
+    /**
+     * 弱引用键 + 软引用值，内存紧张时回收
+     */
+    public static <K, V> ReferenceCache<K, V> weakKeysSoftValues() {
+        return new ReferenceCache<>(Strength.WEAK, Strength.SOFT);
+    }
+
+    /**
+     * 弱引用键 + 弱引用值
+     */
+    public static <K, V> ReferenceCache<K, V> weakKeysWeakValues() {
+        return new ReferenceCache<>(Strength.WEAK, Strength.WEAK);
+    }
+
+    public static <K, V> ReferenceCache<K, V> of(Strength keyStrength, Strength valueStrength) {
+        return new ReferenceCache<>(keyStrength, valueStrength);
+    }
+
+    public V get(K key) {
+        ValueHolder<V> holder = map.get(lookupKey(key));
+        V value = holder == null ? null : holder.get();
+        if (value == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return value;
+    }
+
+    /**
+     * @return 之前的值，没有或已被回收时返回 null
+     */
+    public V put(K key, V value) {
+        Objects.requireNonNull(value, "value");
+        drain(DRAIN_LIMIT);
+        Object mapKey = storeKey(key);
+        ValueHolder<V> previous = map.put(mapKey, newValue(mapKey, value));
+        puts.increment();
+        return previous == null ? null : previous.get();
+    }
+
+    /**
+     * 不存在或值已被回收时用 loader 计算，同一个键并发调用时 loader 只执行一次
+     */
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> loader) {
+        V value = get(key);
+        if (value != null) {
+            return value;
+        }
+        drain(DRAIN_LIMIT);
+        Object mapKey = storeKey(key);
+        Object[] result = new Object[1];
+        map.compute(mapKey, (k, holder) -> {
+            V existing = holder == null ? null : holder.get();
+            if (existing != null) {
+                result[0] = existing;
+                return holder;
+            }
+            V loaded = loader.apply(key);
+            result[0] = loaded;
+            if (loaded == null) {
+                return null;
+            }
+            puts.increment();
+            return newValue(k, loaded);
+        });
+        @SuppressWarnings("unchecked")
+        V loaded = (V) result[0];
+        return loaded;
+    }
+
+    public V remove(K key) {
+        drain(DRAIN_LIMIT);
+        ValueHolder<V> previous = map.remove(lookupKey(key));
+        return previous == null ? null : previous.get();
+    }
+
+    public void clear() {
+        map.clear();
+        // 已经入队的引用对应的条目不再存在，清掉以免误计数
+        while (queue.poll() != null) {
+            // 丢弃
+        }
+    }
+
+    /**
+     * 条目数，包含已被回收但还没清理的条目
+     */
+    public int size() {
+        return map.size();
+    }
+
+    /**
+     * 清理所有已被回收的条目
+     */
+    public void cleanUp() {
+        drainLock.lock();
+        try {
+            drainQueue(Integer.MAX_VALUE);
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    public Stats stats() {
+        return new Stats(hits.sum(), misses.sum(), puts.sum(), gcCleared.sum(), map.size());
+    }
+
+    public Strength getKeyStrength() {
+        return keyStrength;
+    }
+
+    public Strength getValueStrength() {
+        return valueStrength;
+    }
+
+    private void drain(int limit) {
+        if (drainLock.tryLock()) {
+            try {
+                drainQueue(limit);
+            } finally {
+                drainLock.unlock();
+            }
+        }
+    }
+
+    private void drainQueue(int limit) {
+        for (int i = 0; i < limit; i++) {
+            Reference<?> reference = queue.poll();
+            if (reference == null) {
+                return;
+            }
+            boolean removed;
+            if (reference instanceof WeakKey) {
+                // 清除后的 WeakKey 只与自身相等，可以直接按它删除
+                removed = map.remove(reference) != null;
+            } else {
+                ValueHolder<?> holder = (ValueHolder<?>) reference;
+                // 条件删除：这个键可能已经放入了新值
+                removed = map.remove(holder.key(), holder);
+            }
+            if (removed) {
+                gcCleared.increment();
+            }
+        }
+    }
+
+    private Object lookupKey(K key) {
+        Objects.requireNonNull(key, "key");
+        return keyStrength == Strength.WEAK ? new LookupKey(key) : key;
+    }
+
+    private Object storeKey(K key) {
+        Objects.requireNonNull(key, "key");
+        return keyStrength == Strength.WEAK ? new WeakKey(key, queue) : key;
+    }
+
+    private ValueHolder<V> newValue(Object mapKey, V value) {
+        switch (valueStrength) {
+            case SOFT:
+                return new SoftValue<>(mapKey, value, queue);
+            case WEAK:
+                return new WeakValue<>(mapKey, value, queue);
+            default:
+                return new StrongValue<>(mapKey, value);
+        }
+    }
+
+    /**
+     * 按引用对象比较的键，WeakKey 与 LookupKey 的 equals/hashCode 规则一致
+     */
+    private interface IdentityKey {
+        Object referent();
+    }
+
+    private static boolean identityEquals(IdentityKey self, Object other) {
+        if (self == other) {
+            return true;
+        }
+        if (!(other instanceof IdentityKey)) {
+            return false;
+        }
+        Object referent = self.referent();
+        return referent != null && referent == ((IdentityKey) other).referent();
+    }
+
+    private static final class WeakKey extends WeakReference<Object> implements IdentityKey {
+        private final int hash;
+
+        WeakKey(Object key, ReferenceQueue<Object> queue) {
+            super(key, queue);
+            this.hash = System.identityHashCode(key);
+        }
+
+        @Override
+        public Object referent() {
+            return get();
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return identityEquals(this, other);
+        }
+    }
+
+    /**
+     * 查询用的临时键，不是引用对象，不会入队
+     */
+    private static final class LookupKey implements IdentityKey {
+        private final Object key;
+
+        LookupKey(Object key) {
+            this.key = key;
+        }
+
+        @Override
+        public Object referent() {
+            return key;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(key);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return identityEquals(this, other);
+        }
+    }
+
+    /**
+     * 值的持有者，记住 map 中的键，值被回收后据此删除条目
+     */
+    private interface ValueHolder<V> {
+        V get();
+
+        Object key();
+    }
+
+    private static final class StrongValue<V> implements ValueHolder<V> {
+        private final Object key;
+        private final V value;
+
+        StrongValue(Object key, V value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        @Override
+        public V get() {
+            return value;
+        }
+
+        @Override
+        public Object key() {
+            return key;
+        }
+    }
+
+    private static final class SoftValue<V> extends SoftReference<V> implements ValueHolder<V> {
+        private final Object key;
+
+        SoftValue(Object key, V value, ReferenceQueue<Object> queue) {
+            super(value, queue);
+            this.key = key;
+        }
+
+        @Override
+        public Object key() {
+            return key;
+        }
+    }
+
+    private static final class WeakValue<V> extends WeakReference<V> implements ValueHolder<V> {
+        private final Object key;
+
+        WeakValue(Object key, V value, ReferenceQueue<Object> queue) {
+            super(value, queue);
+            this.key = key;
+        }
+
+        @Override
+        public Object key() {
+            return key;
+        }
+    }
+
+    /**
+     * 统计快照
+     */
+    public static final class Stats {
+        private final long hitCount;
+        private final long missCount;
+        private final long putCount;
+        private final long gcClearedCount;
+        private final int size;
+
+        Stats(long hitCount, long missCount, long putCount, long gcClearedCount, int size) {
+            this.hitCount = hitCount;
+            this.missCount = missCount;
+            this.putCount = putCount;
+            this.gcClearedCount = gcClearedCount;
+            this.size = size;
+        }
+
+        public long getHitCount() {
+            return hitCount;
+        }
+
+        public long getMissCount() {
+            return missCount;
+        }
+
+        public double getHitRate() {
+            long total = hitCount + missCount;
+            return total == 0 ? 0 : (double) hitCount / total;
+        }
+
+        public long getPutCount() {
+            return putCount;
+        }
+
+        /**
+         * 因键或值被 GC 回收而清理掉的条目数
+         */
+        public long getGcClearedCount() {
+            return gcClearedCount;
+        }
+
+        public int getSize() {
+            return size;
+        }
+
+        @Override
+        public String toString() {
+            return "Stats{hits=" + hitCount + ", misses=" + missCount + ", puts=" + putCount + ", gcCleared="
+                    + gcClearedCount + ", size=" + size + "}";
+        }
+    }
+}
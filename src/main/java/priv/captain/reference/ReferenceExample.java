@@ -45,6 +45,23 @@ public class ReferenceExample {
             System.out.println("引用已经被添加至队列中: " + refFromQueue);
             doSomeThing();
         }
+
+        cacheExample();
+    }
+
+    /**
+     * 可复用的写法：ReferenceCache 在写操作时顺便清理引用队列，不需要手动 poll
+     */
+    public static void cacheExample() {
+        ReferenceCache<MyObject, String> cache = ReferenceCache.weakKeysSoftValues();
+        MyObject key = new MyObject();
+        key.setName("小新");
+        cache.put(key, "小新的缓存数据");
+        cache.put(new MyObject(), "没有强引用的键，GC 后条目会被清理");
+
+        System.gc();
+        cache.cleanUp();
+        System.out.println(cache.get(key) + "，" + cache.stats());
     }
 
     public static void doSomeThing(){
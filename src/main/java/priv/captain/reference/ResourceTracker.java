@@ -0,0 +1,375 @@
+package priv.captain.reference;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.ref.Cleaner;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * 堆外内存、文件句柄等资源的跟踪器，基于 java.lang.ref.Cleaner
+ * 说明：
+ * 1. 资源通过 allocateDirect/open/track 包装成 TrackedResource，正常情况下调用 close（try-with-resources）立即释放：
+ *    直接内存用 Unsafe.invokeCleaner 马上归还，不用等 GC 和 DirectByteBuffer 自带的 Cleaner。
+ * 2. 兜底：TrackedResource 变成虚可达（没有 close 就丢了）时，Cleaner 线程记为一次泄漏，只报告、不释放。
+ *    包装对象不可达不代表底层资源不可达：调用方常常只保留 get() 的返回值（如 tracker.open(p).get()），
+ *    这时关闭通道会让后续读写抛 ClosedChannelException，invokeCleaner 更会让后续读写访问已释放的内存导致 JVM 崩溃。
+ *    所以释放动作只在显式 close 时执行；泄漏后清理动作不再引用资源，由资源自己的回收机制处理，
+ *    如 DirectByteBuffer 自带的 Cleaner 在 buffer 本身不可达后回收。
+ *    清理动作只持有底层资源，不持有 TrackedResource 本身，否则对象永远不会变成虚可达。
+ * 3. 泄漏定位：按 sampleRate 的比例在分配时记录调用栈（new Throwable），泄漏报告里带上分配位置；
+ *    采样率低时开销很小，可以在生产环境常开，比如 0.01。
+ * 4. 统计：当前存活个数和字节数、累计分配、正常关闭、泄漏次数，最近的泄漏报告保留 MAX_REPORTS 条。
+ */
+public final class ResourceTracker {
+
+    static final int MAX_REPORTS = 100;
+
+    private static final MethodHandle INVOKE_CLEANER = invokeCleanerHandle();
+    private static final ResourceTracker DEFAULT = new ResourceTracker("default",
+            Double.parseDouble(System.getProperty("resource.tracker.sampleRate", "0.01")),
+            ResourceTracker::printLeak);
+
+    private final String name;
+    private final double sampleRate;
+    private final Consumer<LeakReport> leakListener;
+    private final Cleaner cleaner;
+    private final AtomicLong ids = new AtomicLong();
+    private final LongAdder allocated = new LongAdder();
+    private final LongAdder closed = new LongAdder();
+    private final LongAdder leaked = new LongAdder();
+    private final AtomicLong liveCount = new AtomicLong();
+    private final AtomicLong liveBytes = new AtomicLong();
+    private final Deque<LeakReport> reports = new ArrayDeque<>();
+
+    /**
+     * @param sampleRate   记录分配调用栈的比例，0 不记录，1 全部记录
+     * @param leakListener 发现泄漏时回调，在 Cleaner 线程中执行
+     */
+    public ResourceTracker(String name, double sampleRate, Consumer<LeakReport> leakListener) {
+        if (sampleRate < 0 || sampleRate > 1) {
+            throw new IllegalArgumentException("sampleRate 必须在 [0, 1] 之间：" + sampleRate);
+        }
+        this.name = name;
+        this.sampleRate = sampleRate;
+        this.leakListener = leakListener;
+        this.cleaner = Cleaner.create(runnable -> {
+            Thread thread = new Thread(runnable, "resource-tracker-" + name);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 默认实例，采样率由系统属性 resource.tracker.sampleRate 指定（默认 0.01），泄漏打印到 System.err
+     */
+    public static ResourceTracker getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * 分配直接内存
+     */
+    public TrackedResource<ByteBuffer> allocateDirect(int capacity) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(capacity);
+        return register(buffer, "DirectByteBuffer", capacity, ResourceTracker::free);
+    }
+
+    /**
+     * 打开文件通道
+     */
+    public TrackedResource<FileChannel> open(Path path, OpenOption... options) throws IOException {
+        FileChannel channel = FileChannel.open(path, options);
+        return register(channel, "FileChannel(" + path + ")", 0, ResourceTracker::close);
+    }
+
+    /**
+     * 跟踪任意 AutoCloseable 资源
+     *
+     * @param size 资源占用的字节数，不关心时传 0
+     */
+    public <R extends AutoCloseable> TrackedResource<R> track(R resource, String type, long size) {
+        return register(resource, type, size, ResourceTracker::close);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Stats stats() {
+        return new Stats(allocated.sum(), closed.sum(), leaked.sum(), liveCount.get(), liveBytes.get());
+    }
+
+    /**
+     * 最近的泄漏报告，旧的在前
+     */
+    public List<LeakReport> recentLeaks() {
+        synchronized (reports) {
+            return new ArrayList<>(reports);
+        }
+    }
+
+    /**
+     * @param releaser 显式 close 时的释放动作，泄漏时不调用，见类说明第 2 点
+     */
+    private <R> TrackedResource<R> register(R resource, String type, long size, Consumer<? super R> releaser) {
+        Throwable allocationSite = sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate
+                ? new Throwable("资源分配位置")
+                : null;
+        State<R> state = new State<>(ids.incrementAndGet(), type, size, resource, releaser, allocationSite);
+        TrackedResource<R> tracked = new TrackedResource<>(resource, state);
+        tracked.cleanable = cleaner.register(tracked, state);
+        allocated.increment();
+        liveCount.incrementAndGet();
+        liveBytes.addAndGet(size);
+        return tracked;
+    }
+
+    private void onLeak(LeakReport report) {
+        leaked.increment();
+        synchronized (reports) {
+            if (reports.size() == MAX_REPORTS) {
+                reports.removeFirst();
+            }
+            reports.addLast(report);
+        }
+        if (leakListener != null) {
+            try {
+                leakListener.accept(report);
+            } catch (RuntimeException e) {
+                // 回调异常不能影响 Cleaner 线程
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private static void printLeak(LeakReport report) {
+        System.err.println("[ResourceTracker] " + report);
+        if (report.getAllocationSite() != null) {
+            report.getAllocationSite().printStackTrace();
+        }
+    }
+
+    /**
+     * 立即释放直接内存；拿不到 invokeCleaner 时什么都不做，等 GC 回收
+     */
+    static void free(ByteBuffer buffer) {
+        if (INVOKE_CLEANER == null || !buffer.isDirect()) {
+            return;
+        }
+        try {
+            INVOKE_CLEANER.invokeExact(buffer);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void close(AutoCloseable resource) {
+        try {
+            resource.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static MethodHandle invokeCleanerHandle() {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            return MethodHandles.lookup()
+                    .findVirtual(unsafeClass, "invokeCleaner", MethodType.methodType(void.class, ByteBuffer.class))
+                    .bindTo(field.get(null));
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 清理动作：只引用底层资源，不引用 TrackedResource
+     */
+    private final class State<R> implements Runnable {
+        private final long id;
+        private final String type;
+        private final long size;
+        private final R resource;
+        private final Consumer<? super R> releaser;
+        private final Throwable allocationSite;
+        private final long allocatedAt = System.currentTimeMillis();
+        private final AtomicBoolean closedExplicitly = new AtomicBoolean();
+
+        State(long id, String type, long size, R resource, Consumer<? super R> releaser, Throwable allocationSite) {
+            this.id = id;
+            this.type = type;
+            this.size = size;
+            this.resource = resource;
+            this.releaser = releaser;
+            this.allocationSite = allocationSite;
+        }
+
+        /**
+         * Cleanable.clean 保证只执行一次：要么由 close 触发，要么由 Cleaner 线程在对象不可达后触发
+         */
+        @Override
+        public void run() {
+            liveCount.decrementAndGet();
+            liveBytes.addAndGet(-size);
+            if (closedExplicitly.get()) {
+                closed.increment();
+                releaser.accept(resource);
+                return;
+            }
+            onLeak(new LeakReport(id, type, size, allocatedAt, allocationSite));
+        }
+    }
+
+    /**
+     * 被跟踪的资源，用完必须 close
+     */
+    public static final class TrackedResource<R> implements AutoCloseable {
+        private final R resource;
+        private final ResourceTracker.State<R> state;
+        private Cleaner.Cleanable cleanable;
+
+        private TrackedResource(R resource, ResourceTracker.State<R> state) {
+            this.resource = resource;
+            this.state = state;
+        }
+
+        public R get() {
+            if (state.closedExplicitly.get()) {
+                throw new IllegalStateException("资源已关闭：" + state.type + "#" + state.id);
+            }
+            return resource;
+        }
+
+        public long getId() {
+            return state.id;
+        }
+
+        public boolean isClosed() {
+            return state.closedExplicitly.get();
+        }
+
+        /**
+         * 立即释放，重复调用无效果
+         */
+        @Override
+        public void close() {
+            if (state.closedExplicitly.compareAndSet(false, true)) {
+                cleanable.clean();
+            }
+        }
+    }
+
+    /**
+     * 一次泄漏：资源没有 close；ResourceTracker 不释放资源，直接内存由 DirectByteBuffer 自带的 Cleaner 回收，
+     * 文件通道等资源在调用方仍持有时保持可用，需要按分配位置修复调用方
+     */
+    public static final class LeakReport {
+        private final long id;
+        private final String type;
+        private final long size;
+        private final long allocatedAt;
+        private final Throwable allocationSite;
+
+        LeakReport(long id, String type, long size, long allocatedAt, Throwable allocationSite) {
+            this.id = id;
+            this.type = type;
+            this.size = size;
+            this.allocatedAt = allocatedAt;
+            this.allocationSite = allocationSite;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public long getAllocatedAt() {
+            return allocatedAt;
+        }
+
+        /**
+         * 分配时的调用栈，未被采样时为 null
+         */
+        public Throwable getAllocationSite() {
+            return allocationSite;
+        }
+
+        @Override
+        public String toString() {
+            return "泄漏 " + type + "#" + id + "，" + size + " 字节，存活 "
+                    + (System.currentTimeMillis() - allocatedAt) + " ms"
+                    + (allocationSite == null ? "（未采样分配位置）" : "");
+        }
+    }
+
+    public static final class Stats {
+        private final long allocated;
+        private final long closed;
+        private final long leaked;
+        private final long liveCount;
+        private final long liveBytes;
+
+        Stats(long allocated, long closed, long leaked, long liveCount, long liveBytes) {
+            this.allocated = allocated;
+            this.closed = closed;
+            this.leaked = leaked;
+            this.liveCount = liveCount;
+            this.liveBytes = liveBytes;
+        }
+
+        public long getAllocated() {
+            return allocated;
+        }
+
+        public long getClosed() {
+            return closed;
+        }
+
+        public long getLeaked() {
+            return leaked;
+        }
+
+        public long getLiveCount() {
+            return liveCount;
+        }
+
+        public long getLiveBytes() {
+            return liveBytes;
+        }
+
+        @Override
+        public String toString() {
+            return "Stats{allocated=" + allocated + ", closed=" + closed + ", leaked=" + leaked + ", liveCount="
+                    + liveCount + ", liveBytes=" + liveBytes + "}";
+        }
+    }
+}
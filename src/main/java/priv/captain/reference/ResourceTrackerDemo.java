@@ -0,0 +1,44 @@
+package priv.captain.reference;
+
+import java.nio.ByteBuffer;
+
+/**
+ * ResourceTracker 演示：正常关闭的直接内存立即释放，忘记关闭的报告分配位置，内存由 DirectByteBuffer 自带的 Cleaner 回收
+ */
+public class ResourceTrackerDemo {
+
+    public static void main(String[] args) throws InterruptedException {
+        // 演示用，全部采样
+        ResourceTracker tracker = new ResourceTracker("demo", 1.0, report -> {
+            System.out.println(report);
+            StackTraceElement[] stack = report.getAllocationSite().getStackTrace();
+            // 第一帧是 ResourceTracker 内部，往后找到业务代码
+            for (StackTraceElement element : stack) {
+                String className = element.getClassName();
+                if (!className.equals(ResourceTracker.class.getName())
+                        && !className.startsWith(ResourceTracker.class.getName() + "$")) {
+                    System.out.println("    分配位置：" + element);
+                    break;
+                }
+            }
+        });
+
+        try (ResourceTracker.TrackedResource<ByteBuffer> buffer = tracker.allocateDirect(1024 * 1024)) {
+            buffer.get().putLong(0, 42L);
+        }
+        System.out.println("正常关闭后：" + tracker.stats());
+
+        leak(tracker);
+        System.out.println("泄漏后：" + tracker.stats());
+
+        System.gc();
+        Thread.sleep(500);
+        System.out.println("GC 发现泄漏后：" + tracker.stats());
+    }
+
+    private static void leak(ResourceTracker tracker) {
+        // 忘记 close
+        ResourceTracker.TrackedResource<ByteBuffer> buffer = tracker.allocateDirect(4 * 1024 * 1024);
+        buffer.get().put((byte) 1);
+    }
+}
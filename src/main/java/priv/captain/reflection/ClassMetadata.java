@@ -0,0 +1,200 @@
+package priv.captain.reflection;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * 一个类的反射元数据，由 ReflectionCache 按类缓存，只在第一次使用时解析
+ * 说明：
+ * 1. 方法、字段、类注解在创建时解析好，getMethods/getDeclaredFields 每次调用都会复制数组，这里只复制一次。
+ * 2. JavaBean 属性访问器第一次用到时生成（LambdaMetafactory 生成类有一定开销，不用的类不生成）。
+ * 3. 方法调用器按 Method 缓存。
+ */
+public final class ClassMetadata {
+
+    private final Class<?> type;
+    private final Method[] methods;
+    private final Map<String, List<Method>> methodsByName = new HashMap<>();
+    private final Field[] fields;
+    private final Map<String, Field> fieldsByName = new HashMap<>();
+    private final Map<Class<? extends Annotation>, Annotation> annotations = new HashMap<>();
+    private final ConcurrentMap<Method, MethodInvoker> invokers = new ConcurrentHashMap<>();
+    private volatile Map<String, PropertyAccessor> properties;
+
+    ClassMetadata(Class<?> type) {
+        this.type = type;
+        this.methods = type.getMethods();
+        for (Method method : methods) {
+            methodsByName.computeIfAbsent(method.getName(), name -> new ArrayList<>(1)).add(method);
+        }
+        List<Field> allFields = new ArrayList<>();
+        for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+            for (Field field : c.getDeclaredFields()) {
+                if (!field.isSynthetic()) {
+                    allFields.add(field);
+                    // 子类字段优先
+                    fieldsByName.putIfAbsent(field.getName(), field);
+                }
+            }
+        }
+        this.fields = allFields.toArray(new Field[0]);
+        for (Annotation annotation : type.getAnnotations()) {
+            annotations.put(annotation.annotationType(), annotation);
+        }
+    }
+
+    public Class<?> getType() {
+        return type;
+    }
+
+    /**
+     * 所有 public 方法（含继承的），返回的是缓存数组本身，调用方不要修改
+     */
+    public Method[] methods() {
+        return methods;
+    }
+
+    /**
+     * 按方法名和参数类型查找 public 方法
+     *
+     * @return 不存在时返回 null
+     */
+    public Method method(String name, Class<?>... parameterTypes) {
+        List<Method> candidates = methodsByName.get(name);
+        if (candidates == null) {
+            return null;
+        }
+        for (Method method : candidates) {
+            if (Arrays.equals(method.getParameterTypes(), parameterTypes)) {
+                return method;
+            }
+        }
+        return null;
+    }
+
+    public List<Method> methods(String name) {
+        return methodsByName.getOrDefault(name, Collections.emptyList());
+    }
+
+    /**
+     * 本类及父类声明的所有字段，返回的是缓存数组本身，调用方不要修改
+     */
+    public Field[] fields() {
+        return fields;
+    }
+
+    public Field field(String name) {
+        return fieldsByName.get(name);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <A extends Annotation> A annotation(Class<A> annotationType) {
+        return (A) annotations.get(annotationType);
+    }
+
+    public MethodInvoker invoker(Method method) {
+        MethodInvoker invoker = invokers.get(method);
+        if (invoker == null) {
+            invoker = invokers.computeIfAbsent(method, ReflectionCache::newInvoker);
+        }
+        return invoker;
+    }
+
+    /**
+     * JavaBean 属性，按属性名排序
+     */
+    public Map<String, PropertyAccessor> properties() {
+        Map<String, PropertyAccessor> result = properties;
+        if (result == null) {
+            synchronized (this) {
+                result = properties;
+                if (result == null) {
+                    result = Collections.unmodifiableMap(resolveProperties());
+                    properties = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    public PropertyAccessor property(String name) {
+        return properties().get(name);
+    }
+
+    private Map<String, PropertyAccessor> resolveProperties() {
+        Map<String, Method> getters = new HashMap<>();
+        Map<String, List<Method>> setters = new HashMap<>();
+        for (Method method : methods) {
+            if (Modifier.isStatic(method.getModifiers()) || method.isBridge()
+                    || method.getDeclaringClass() == Object.class) {
+                continue;
+            }
+            String name = method.getName();
+            int parameterCount = method.getParameterCount();
+            Class<?> returnType = method.getReturnType();
+            if (parameterCount == 0 && returnType != void.class && name.startsWith("get") && name.length() > 3) {
+                getters.put(propertyName(name, 3), method);
+            } else if (parameterCount == 0 && returnType == boolean.class && name.startsWith("is")
+                    && name.length() > 2) {
+                getters.putIfAbsent(propertyName(name, 2), method);
+            } else if (parameterCount == 1 && returnType == void.class && name.startsWith("set")
+                    && name.length() > 3) {
+                setters.computeIfAbsent(propertyName(name, 3), n -> new ArrayList<>(1)).add(method);
+            }
+        }
+        Map<String, PropertyAccessor> result = new LinkedHashMap<>();
+        List<String> names = new ArrayList<>(getters.keySet());
+        for (String name : setters.keySet()) {
+            if (!getters.containsKey(name)) {
+                names.add(name);
+            }
+        }
+        Collections.sort(names);
+        for (String name : names) {
+            Method getter = getters.get(name);
+            Method setter = setter(setters.getOrDefault(name, Collections.emptyList()), getter);
+            Class<?> propertyType = getter != null ? getter.getReturnType() : setter.getParameterTypes()[0];
+            Function<Object, Object> getterFunction = getter == null ? null : ReflectionCache.getter(getter);
+            BiConsumer<Object, Object> setterFunction = setter == null ? null : ReflectionCache.setter(setter);
+            result.put(name, new PropertyAccessor(name, propertyType, getterFunction, setterFunction));
+        }
+        return result;
+    }
+
+    /**
+     * 同名重载的 setter 取参数类型与 getter 返回类型一致的那个，没有 getter 时取第一个
+     */
+    private static Method setter(List<Method> candidates, Method getter) {
+        if (getter == null) {
+            return candidates.isEmpty() ? null : candidates.get(0);
+        }
+        for (Method candidate : candidates) {
+            if (candidate.getParameterTypes()[0] == getter.getReturnType()) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    private static String propertyName(String methodName, int prefixLength) {
+        String name = methodName.substring(prefixLength);
+        // 与 java.beans.Introspector.decapitalize 一致：URL 这样连续大写的保持不变
+        if (name.length() > 1 && Character.isUpperCase(name.charAt(1)) && Character.isUpperCase(name.charAt(0))) {
+            return name;
+        }
+        return Character.toLowerCase(name.charAt(0)) + name.substring(1);
+    }
+}
@@ -0,0 +1,38 @@
+package priv.captain.reflection;
+
+/**
+ * 字节码生成代理的父类，生成的代理类只包含接口方法，其余逻辑写在这里
+ * 说明：
+ * 1. target 是目标对象，生成的方法先 checkcast 成接口再 invokeinterface 直接调用。
+ * 2. invokeTarget 由生成的类实现：按方法下标 switch 到对应方法的 invokeinterface 调用，
+ *    有拦截器的方法在链的末端通过它调用目标，同样不经过 MethodHandle 或反射。
+ * 3. equals/hashCode/toString 与 JDK 代理模式保持一致：代理同一个目标对象时相等，toString 转给目标对象。
+ */
+abstract class GeneratedProxy {
+
+    protected final Object target;
+
+    protected GeneratedProxy(Object target) {
+        this.target = target;
+    }
+
+    /**
+     * 拆开参数数组调用目标对象的第 methodIndex 个方法，返回值装箱
+     */
+    protected abstract Object invokeTarget(int methodIndex, Object[] args) throws Throwable;
+
+    @Override
+    public boolean equals(Object other) {
+        return other == this || (other instanceof GeneratedProxy && ((GeneratedProxy) other).target == target);
+    }
+
+    @Override
+    public int hashCode() {
+        return System.identityHashCode(target);
+    }
+
+    @Override
+    public String toString() {
+        return target.toString();
+    }
+}
@@ -0,0 +1,98 @@
+package priv.captain.reflection;
+
+import java.lang.reflect.Method;
+import java.util.List;
+
+/**
+ * 单个方法预先展开的拦截器链，在构建代理时创建，之后每次调用直接使用
+ * 说明：
+ * 1. 拦截器存成数组，用下标推进，不再递归创建 lambda；每次调用只分配一个 Invocation 对象，
+ *    没有拦截器的方法直接调用目标，零分配。
+ *    Invocation 在调用拦截器期间推进下标、返回后恢复，拦截器多次调用 proceed（如重试）时每次都会走完后面的整条链。
+ * 2. 目标方法通过 ReflectionCache.invoker 调用（按方法缓存的 MethodHandle 调用器，拿不到 Lookup 时由它退回反射），
+ *    与 PropertyCopier 等共用同一套调用器，避免 Method.invoke 的访问检查和 InvocationTargetException 包装。
+ * 3. 目标方法抛出的异常原样抛出，不会被包装成 InvocationTargetException。
+ * 4. 字节码生成的代理调用 invoke(GeneratedProxy, Object[], int)，链的末端由生成类的 invokeTarget 直接调用目标。
+ */
+final class InterceptorChain {
+
+    private static final MethodInterceptor[] NO_INTERCEPTORS = new MethodInterceptor[0];
+
+    private final Method method;
+    private final MethodInterceptor[] interceptors;
+    private final Object target;
+    private final MethodInvoker invoker;
+
+    private InterceptorChain(Method method, MethodInterceptor[] interceptors, Object target, MethodInvoker invoker) {
+        this.method = method;
+        this.interceptors = interceptors;
+        this.target = target;
+        this.invoker = invoker;
+    }
+
+    static InterceptorChain of(Object target, Method method, List<MethodInterceptor> interceptors) {
+        return new InterceptorChain(method, interceptors.toArray(NO_INTERCEPTORS), target,
+                ReflectionCache.invoker(method));
+    }
+
+    Method method() {
+        return method;
+    }
+
+    boolean hasInterceptors() {
+        return interceptors.length > 0;
+    }
+
+    /**
+     * 执行拦截器链，最后调用目标方法
+     */
+    Object invoke(Object proxy, Object[] args) throws Throwable {
+        if (interceptors.length == 0) {
+            return invokeTarget(args);
+        }
+        return new Invocation(proxy, args, null, -1).proceed();
+    }
+
+    /**
+     * 字节码生成的代理调用的入口
+     */
+    Object invoke(GeneratedProxy proxy, Object[] args, int methodIndex) throws Throwable {
+        return new Invocation(proxy, args, proxy, methodIndex).proceed();
+    }
+
+    Object invokeTarget(Object[] args) throws Throwable {
+        return invoker.invoke(target, args);
+    }
+
+    /**
+     * 一次调用的链上位置
+     */
+    private final class Invocation implements MethodInvocation {
+        private final Object proxy;
+        private final Object[] args;
+        private final GeneratedProxy generated;
+        private final int methodIndex;
+        private int index;
+
+        Invocation(Object proxy, Object[] args, GeneratedProxy generated, int methodIndex) {
+            this.proxy = proxy;
+            this.args = args;
+            this.generated = generated;
+            this.methodIndex = methodIndex;
+        }
+
+        @Override
+        public Object proceed() throws Throwable {
+            int current = index;
+            if (current == interceptors.length) {
+                return generated != null ? generated.invokeTarget(methodIndex, args) : invokeTarget(args);
+            }
+            index = current + 1;
+            try {
+                return interceptors[current].invoke(proxy, method, args, this);
+            } finally {
+                index = current;
+            }
+        }
+    }
+}
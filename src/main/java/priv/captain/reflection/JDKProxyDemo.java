@@ -31,6 +31,20 @@ public class JDKProxyDemo {
                 .build();
 
         advanceProxy.getNameById(1l);
+
+        // 🔹 拦截器只作用于匹配的方法，不匹配的方法直接调用目标对象
+        UserService matchedProxy = ProxyBuilder.of(userService, UserService.class)
+                .addInterceptor(MethodMatcher.byName("getNameById"), new LogInterceptor())
+                .build();
+
+        matchedProxy.getNameById(2l);
+
+        // 🔹 字节码生成的代理，不经过 InvocationHandler，性能对比见 ProxyBenchmark
+        UserService generatedProxy = ProxyBuilder.of(userService, UserService.class)
+                .addInterceptor(new LogInterceptor())
+                .buildGenerated();
+
+        generatedProxy.getNameById(3l);
     }
 
 }
@@ -0,0 +1,162 @@
+package priv.captain.reflection;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.springframework.beans.BeanUtils;
+
+import priv.captain.reflection.service.User;
+import priv.captain.reflection.service.UserDTO;
+import priv.captain.reflection.service.UserMapper;
+
+/**
+ * 对象转换性能对比：User -> UserDTO
+ * 说明：
+ * 1. 对比手写转换、mapstruct 生成的 UserMapper、PropertyCopier（ReflectionCache）、Spring BeanUtils.copyProperties、
+ *    以及每次都 getMethods 再 Method.invoke 的朴素反射拷贝。
+ * 2. 与 ProxyBenchmark 一样，每种方式在单独的 JVM 进程中运行，先预热再测量多轮，取平均每次转换耗时。
+ * 3. mapstruct 模式需要用 Maven 编译（mapstruct-processor 生成 UserMapperImpl），IDE 里没有开启注解处理时会跳过；
+ *    只有注解处理器实际运行过，这一项的结果才代表生成代码的性能，不要用手写的替代实现得出的数字代替。
+ */
+public class MapperBenchmark {
+
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int ROUNDS = 5;
+    private static final int CALLS_PER_ROUND = 2_000_000;
+
+    static volatile int sink;
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Map<String, Supplier<Function<User, UserDTO>>> modes = modes();
+        if (args.length > 0) {
+            Function<User, UserDTO> mapper;
+            try {
+                mapper = modes.get(args[0]).get();
+            } catch (Throwable e) {
+                System.out.printf("%-18s 跳过：%s%n", args[0], e.getCause() != null ? e.getCause() : e);
+                return;
+            }
+            run(args[0], mapper);
+            return;
+        }
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        for (String mode : modes.keySet()) {
+            new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"), MapperBenchmark.class.getName(),
+                    mode).inheritIO().start().waitFor();
+        }
+    }
+
+    private static Map<String, Supplier<Function<User, UserDTO>>> modes() {
+        Map<String, Supplier<Function<User, UserDTO>>> modes = new LinkedHashMap<>();
+        modes.put("manual", () -> MapperBenchmark::manual);
+        modes.put("mapstruct", () -> {
+            UserMapper mapper = UserMapper.INSTANCE;
+            return mapper::toDto;
+        });
+        modes.put("property-copier", () -> {
+            PropertyCopier<User, UserDTO> copier = PropertyCopier.of(User.class, UserDTO.class);
+            return user -> copier.copy(user, new UserDTO());
+        });
+        modes.put("spring-beanutils", () -> user -> {
+            UserDTO dto = new UserDTO();
+            BeanUtils.copyProperties(user, dto);
+            return dto;
+        });
+        modes.put("naive-reflection", () -> user -> {
+            UserDTO dto = new UserDTO();
+            naiveCopy(user, dto);
+            return dto;
+        });
+        return modes;
+    }
+
+    private static void run(String name, Function<User, UserDTO> mapper) {
+        User[] users = users();
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            round(mapper, users);
+        }
+        long total = 0;
+        for (int i = 0; i < ROUNDS; i++) {
+            total += round(mapper, users);
+        }
+        System.out.printf("%-18s %8.2f ns/op%n", name, (double) total / ROUNDS / CALLS_PER_ROUND);
+    }
+
+    private static long round(Function<User, UserDTO> mapper, User[] users) {
+        int hash = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < CALLS_PER_ROUND; i++) {
+            UserDTO dto = mapper.apply(users[i & (users.length - 1)]);
+            hash += dto.getAge() + dto.getName().length();
+        }
+        long elapsed = System.nanoTime() - start;
+        sink += hash;
+        return elapsed;
+    }
+
+    private static User[] users() {
+        User[] users = new User[128];
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < users.length; i++) {
+            User user = new User();
+            user.setId((long) i);
+            user.setName("用户" + i);
+            user.setAge(20 + i % 40);
+            user.setEmail("user" + i + "@example.com");
+            user.setEnabled(i % 3 != 0);
+            user.setPassword("secret" + i);
+            user.setCreateTime(now.minusDays(i));
+            users[i] = user;
+        }
+        return users;
+    }
+
+    private static UserDTO manual(User user) {
+        UserDTO dto = new UserDTO();
+        dto.setId(user.getId());
+        dto.setName(user.getName());
+        dto.setAge(user.getAge());
+        dto.setEmail(user.getEmail());
+        dto.setEnabled(user.isEnabled());
+        dto.setCreateTime(user.getCreateTime());
+        return dto;
+    }
+
+    /**
+     * 没有任何缓存的反射拷贝：每次都重新查找方法
+     */
+    private static void naiveCopy(Object source, Object target) {
+        try {
+            for (Method setter : target.getClass().getMethods()) {
+                String name = setter.getName();
+                if (!name.startsWith("set") || setter.getParameterCount() != 1) {
+                    continue;
+                }
+                Method getter = getter(source.getClass(), name.substring(3));
+                if (getter != null && setter.getParameterTypes()[0] == getter.getReturnType()) {
+                    setter.invoke(target, getter.invoke(source));
+                }
+            }
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Method getter(Class<?> type, String property) {
+        for (String prefix : new String[] { "get", "is" }) {
+            try {
+                return type.getMethod(prefix + property);
+            } catch (NoSuchMethodException e) {
+                // 继续尝试下一个前缀
+            }
+        }
+        return null;
+    }
+}
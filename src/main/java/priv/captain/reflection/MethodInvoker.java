@@ -0,0 +1,11 @@
+package priv.captain.reflection;
+
+/**
+ * 方法调用器，由 ReflectionCache 生成并缓存，代替 Method.invoke
+ * 目标方法抛出的异常原样抛出，不包装成 InvocationTargetException
+ */
+@FunctionalInterface
+public interface MethodInvoker {
+
+    Object invoke(Object target, Object[] args) throws Throwable;
+}
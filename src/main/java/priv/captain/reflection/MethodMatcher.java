@@ -0,0 +1,78 @@
+package priv.captain.reflection;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * 方法匹配器，决定拦截器作用于哪些方法（相当于 Spring AOP 的切入点）
+ * 说明：
+ * 1. 只在 ProxyBuilder.build 时对每个方法判断一次，结果固化在方法的拦截器链里，调用时不再匹配。
+ * 2. targetClass 是目标对象的实际类型，用于查找实现类方法上的注解。
+ */
+@FunctionalInterface
+public interface MethodMatcher {
+
+    boolean matches(Method method, Class<?> targetClass);
+
+    default MethodMatcher and(MethodMatcher other) {
+        return (method, targetClass) -> matches(method, targetClass) && other.matches(method, targetClass);
+    }
+
+    default MethodMatcher or(MethodMatcher other) {
+        return (method, targetClass) -> matches(method, targetClass) || other.matches(method, targetClass);
+    }
+
+    default MethodMatcher negate() {
+        return (method, targetClass) -> !matches(method, targetClass);
+    }
+
+    /**
+     * 匹配所有方法
+     */
+    static MethodMatcher any() {
+        return (method, targetClass) -> true;
+    }
+
+    /**
+     * 按方法名匹配
+     */
+    static MethodMatcher byName(String... names) {
+        Set<String> nameSet = new HashSet<>(Arrays.asList(names));
+        return (method, targetClass) -> nameSet.contains(method.getName());
+    }
+
+    /**
+     * 按方法名正则匹配，如 get.* 匹配所有 getter
+     */
+    static MethodMatcher namePattern(String regex) {
+        Pattern pattern = Pattern.compile(regex);
+        return (method, targetClass) -> pattern.matcher(method.getName()).matches();
+    }
+
+    /**
+     * 按方法签名（方法名 + 参数类型）精确匹配
+     */
+    static MethodMatcher signature(String name, Class<?>... parameterTypes) {
+        Class<?>[] types = parameterTypes.clone();
+        return (method, targetClass) -> method.getName().equals(name)
+                && Arrays.equals(method.getParameterTypes(), types);
+    }
+
+    /**
+     * 接口方法或目标类的实现方法上有指定注解
+     */
+    static MethodMatcher annotatedWith(Class<? extends Annotation> annotationType) {
+        return (method, targetClass) -> {
+            if (method.isAnnotationPresent(annotationType)) {
+                return true;
+            }
+            Method implementation = ReflectionCache.forClass(targetClass)
+                    .method(method.getName(), method.getParameterTypes());
+            return implementation != null && implementation.isAnnotationPresent(annotationType);
+        };
+    }
+}
@@ -27,7 +27,8 @@ public class MyInvocationHandler implements InvocationHandler {
 
         System.out.println("前置增强");
 
-        Object result = method.invoke(tarObject, args);
+        // 调用器按方法缓存，目标方法的异常原样抛出
+        Object result = ReflectionCache.invoker(method).invoke(tarObject, args);
 
         System.out.println("后置增强");
         return result;
@@ -0,0 +1,60 @@
+package priv.captain.reflection;
+
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * JavaBean 属性访问器，getter/setter 由 LambdaMetafactory 生成，调用开销接近直接调用
+ */
+public final class PropertyAccessor {
+
+    private final String name;
+    private final Class<?> type;
+    private final Function<Object, Object> getter;
+    private final BiConsumer<Object, Object> setter;
+
+    PropertyAccessor(String name, Class<?> type, Function<Object, Object> getter, BiConsumer<Object, Object> setter) {
+        this.name = name;
+        this.type = type;
+        this.getter = getter;
+        this.setter = setter;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Class<?> getType() {
+        return type;
+    }
+
+    public boolean isReadable() {
+        return getter != null;
+    }
+
+    public boolean isWritable() {
+        return setter != null;
+    }
+
+    public Object get(Object bean) {
+        if (getter == null) {
+            throw new UnsupportedOperationException("属性不可读：" + name);
+        }
+        return getter.apply(bean);
+    }
+
+    public void set(Object bean, Object value) {
+        if (setter == null) {
+            throw new UnsupportedOperationException("属性不可写：" + name);
+        }
+        setter.accept(bean, value);
+    }
+
+    public Function<Object, Object> getter() {
+        return getter;
+    }
+
+    public BiConsumer<Object, Object> setter() {
+        return setter;
+    }
+}
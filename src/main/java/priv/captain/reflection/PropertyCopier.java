@@ -0,0 +1,108 @@
+package priv.captain.reflection;
+
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * 基于 ReflectionCache 的同名属性拷贝，用于没有编译期 Mapper 的场景
+ * 说明：
+ * 1. 源类型、目标类型的属性配对在第一次使用时算好，之后每次拷贝只是遍历 getter/setter 数组，
+ *    getter/setter 都是 LambdaMetafactory 生成的实现，不走 Method.invoke。
+ * 2. 只拷贝同名且类型兼容的属性（基本类型与包装类型视为兼容），源属性为 null 而目标是基本类型时跳过。
+ * 3. 配对结果按源类型存在 ClassValue 中，再按目标类型查 ConcurrentHashMap。
+ * 4. 能用 mapstruct 生成 Mapper 的地方优先用 Mapper（见 UserMapper），这里是通用的兜底。
+ */
+public final class PropertyCopier<S, T> {
+
+    private static final ClassValue<ConcurrentMap<Class<?>, PropertyCopier<?, ?>>> COPIERS =
+            new ClassValue<ConcurrentMap<Class<?>, PropertyCopier<?, ?>>>() {
+                @Override
+                protected ConcurrentMap<Class<?>, PropertyCopier<?, ?>> computeValue(Class<?> type) {
+                    return new ConcurrentHashMap<>();
+                }
+            };
+
+    private final Class<S> sourceType;
+    private final Class<T> targetType;
+    private final Function<Object, Object>[] getters;
+    private final BiConsumer<Object, Object>[] setters;
+    private final boolean[] skipNull;
+
+    @SuppressWarnings("unchecked")
+    private PropertyCopier(Class<S> sourceType, Class<T> targetType) {
+        this.sourceType = sourceType;
+        this.targetType = targetType;
+        ClassMetadata source = ReflectionCache.forClass(sourceType);
+        ClassMetadata target = ReflectionCache.forClass(targetType);
+        List<PropertyAccessor> from = new ArrayList<>();
+        List<PropertyAccessor> to = new ArrayList<>();
+        for (PropertyAccessor targetProperty : target.properties().values()) {
+            PropertyAccessor sourceProperty = source.property(targetProperty.getName());
+            if (targetProperty.isWritable() && sourceProperty != null && sourceProperty.isReadable()
+                    && wrap(targetProperty.getType()).isAssignableFrom(wrap(sourceProperty.getType()))) {
+                from.add(sourceProperty);
+                to.add(targetProperty);
+            }
+        }
+        this.getters = (Function<Object, Object>[]) new Function<?, ?>[from.size()];
+        this.setters = (BiConsumer<Object, Object>[]) new BiConsumer<?, ?>[to.size()];
+        this.skipNull = new boolean[to.size()];
+        for (int i = 0; i < getters.length; i++) {
+            getters[i] = from.get(i).getter();
+            setters[i] = to.get(i).setter();
+            skipNull[i] = to.get(i).getType().isPrimitive();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <S, T> PropertyCopier<S, T> of(Class<S> sourceType, Class<T> targetType) {
+        ConcurrentMap<Class<?>, PropertyCopier<?, ?>> copiers = COPIERS.get(sourceType);
+        PropertyCopier<?, ?> copier = copiers.get(targetType);
+        if (copier == null) {
+            copier = copiers.computeIfAbsent(targetType, t -> new PropertyCopier<S, T>(sourceType, targetType));
+        }
+        return (PropertyCopier<S, T>) copier;
+    }
+
+    /**
+     * 按运行时类型拷贝，等价于 BeanUtils.copyProperties(source, target)
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    public static void copyProperties(Object source, Object target) {
+        ((PropertyCopier) of(source.getClass(), target.getClass())).copy(source, target);
+    }
+
+    public T copy(S source, T target) {
+        for (int i = 0; i < getters.length; i++) {
+            Object value = getters[i].apply(source);
+            if (value != null || !skipNull[i]) {
+                setters[i].accept(target, value);
+            }
+        }
+        return target;
+    }
+
+    public Class<S> getSourceType() {
+        return sourceType;
+    }
+
+    public Class<T> getTargetType() {
+        return targetType;
+    }
+
+    /**
+     * 参与拷贝的属性个数
+     */
+    public int size() {
+        return getters.length;
+    }
+
+    private static Class<?> wrap(Class<?> type) {
+        return type.isPrimitive() ? MethodType.methodType(type).wrap().returnType() : type;
+    }
+}
@@ -0,0 +1,126 @@
+package priv.captain.reflection;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import org.springframework.cglib.proxy.Enhancer;
+
+import priv.captain.reflection.service.UserDTO;
+import priv.captain.reflection.service.UserService;
+
+/**
+ * 代理方式性能对比：UserService.getNameById
+ * 说明：
+ * 1. 对比直接调用、JDK Proxy + 反射、ProxyBuilder（JDK 代理）、CGLIB invokeSuper、ProxyBuilder.buildGenerated（字节码生成）。
+ *    除直接调用和“无拦截器”一项外，都带一个只调用 proceed 的空拦截器，比较的是代理本身的开销。
+ * 2. 每种方式在单独的 JVM 进程中运行（类似 JMH 的 fork），避免前面的方式把调用点的类型profile污染成多态，
+ *    先预热再测量多轮，取平均每次调用耗时；结果累加到 sink，防止调用被 JIT 消除。
+ * 3. 业务实现不打印、不拼接字符串，否则 IO 和分配的开销会盖过代理开销。
+ */
+public class ProxyBenchmark {
+
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int ROUNDS = 5;
+    private static final int CALLS_PER_ROUND = 10_000_000;
+
+    static volatile int sink;
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Map<String, Supplier<UserService>> modes = modes();
+        if (args.length > 0) {
+            run(args[0], modes.get(args[0]).get());
+            return;
+        }
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        for (String mode : modes.keySet()) {
+            new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"), ProxyBenchmark.class.getName(),
+                    mode).inheritIO().start().waitFor();
+        }
+    }
+
+    private static Map<String, Supplier<UserService>> modes() {
+        UserService target = new QuietUserService();
+        Map<String, Supplier<UserService>> modes = new LinkedHashMap<>();
+        modes.put("direct", () -> target);
+        modes.put("jdk-proxy", () -> (UserService) Proxy.newProxyInstance(UserService.class.getClassLoader(),
+                new Class<?>[] { UserService.class }, (proxy, method, methodArgs) -> method.invoke(target, methodArgs)));
+        modes.put("proxy-builder", () -> ProxyBuilder.of(target, UserService.class)
+                .addInterceptor(new PassThroughInterceptor())
+                .build());
+        modes.put("cglib", () -> {
+            Enhancer enhancer = new Enhancer();
+            enhancer.setSuperclass(QuietUserService.class);
+            enhancer.setCallback((org.springframework.cglib.proxy.MethodInterceptor) (obj, method, methodArgs,
+                    methodProxy) -> methodProxy.invokeSuper(obj, methodArgs));
+            return (UserService) enhancer.create();
+        });
+        modes.put("generated", () -> ProxyBuilder.of(target, UserService.class)
+                .addInterceptor(new PassThroughInterceptor())
+                .buildGenerated());
+        modes.put("generated-no-interceptor", () -> ProxyBuilder.of(target, UserService.class)
+                .addInterceptor(MethodMatcher.byName("none"), new PassThroughInterceptor())
+                .buildGenerated());
+        return modes;
+    }
+
+    private static void run(String name, UserService service) {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            round(service);
+        }
+        long total = 0;
+        for (int i = 0; i < ROUNDS; i++) {
+            total += round(service);
+        }
+        System.out.printf("%-26s %6.2f ns/op%n", name, (double) total / ROUNDS / CALLS_PER_ROUND);
+    }
+
+    private static long round(UserService service) {
+        int hash = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < CALLS_PER_ROUND; i++) {
+            hash += service.getNameById((long) (i & 127)).length();
+        }
+        long elapsed = System.nanoTime() - start;
+        sink += hash;
+        return elapsed;
+    }
+
+    /**
+     * 不打印、不分配的 UserService 实现
+     */
+    public static class QuietUserService implements UserService {
+        private static final String[] NAMES = new String[128];
+
+        static {
+            for (int i = 0; i < NAMES.length; i++) {
+                NAMES[i] = "用户" + i;
+            }
+        }
+
+        @Override
+        public String getNameById(Long id) {
+            return NAMES[(int) (id & 127)];
+        }
+
+        @Override
+        public UserDTO getUser(Long id) {
+            UserDTO dto = new UserDTO();
+            dto.setId(id);
+            dto.setName(getNameById(id));
+            return dto;
+        }
+    }
+
+    private static final class PassThroughInterceptor implements MethodInterceptor {
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args, MethodInvocation original)
+                throws Throwable {
+            return original.proceed();
+        }
+    }
+}
@@ -4,55 +4,156 @@ import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * 代理工具类
+ * 说明：
+ * 1. build 时为接口的每个方法预先生成 InterceptorChain（拦截器数组 + 目标方法的 MethodHandle），
+ *    调用时按 Method 查表，不再逐层递归、逐层创建 lambda，也不再走 Method.invoke。
+ * 2. 拦截器可以带 MethodMatcher，build 时逐个方法匹配，只把匹配的拦截器放进该方法的链；
+ *    没有任何拦截器匹配的方法直接调用目标，没有拦截器开销。
+ * 3. 可以用 addInterface 同时代理目标对象实现的多个接口。
+ * 4. equals/hashCode/toString 不经过拦截器：两个代理同一个目标对象时相等，toString 转给目标对象。
+ * 5. buildGenerated 用 ASM 生成代理类（见 ProxyClassGenerator），没有拦截器的方法直接 invokeinterface 调用目标，
+ *    有拦截器的方法直接调用该方法的拦截器链，不经过 InvocationHandler；
+ *    接口不是 public 或对生成类的加载器不可见时退回 build 的 JDK 代理。
  */
 public class ProxyBuilder<T> {
 
     private final T target;
     private final Class<T> interfaceType;
 
-    private final List<MethodInterceptor> interceptors = new ArrayList<>();
+    private final Set<Class<?>> interfaces = new LinkedHashSet<>();
+    private final List<Advisor> advisors = new ArrayList<>();
 
     private ProxyBuilder(T target, Class<T> interfaceType) {
         this.target = target;
         this.interfaceType = interfaceType;
+        addInterface(interfaceType);
     }
 
     public static <T> ProxyBuilder<T> of(T target, Class<T> interfaceType) {
         return new ProxyBuilder<T>(target, interfaceType);
     }
 
-    // 添加拦截器（链式调用）
+    // 添加拦截器（链式调用），作用于所有方法
     public ProxyBuilder<T> addInterceptor(MethodInterceptor interceptor) {
-        interceptors.add(interceptor);
+        return addInterceptor(MethodMatcher.any(), interceptor);
+    }
+
+    // 添加只作用于匹配方法的拦截器，拦截器按添加顺序执行
+    public ProxyBuilder<T> addInterceptor(MethodMatcher matcher, MethodInterceptor interceptor) {
+        advisors.add(new Advisor(matcher, interceptor));
+        return this;
+    }
+
+    // 额外代理的接口，目标对象必须实现
+    public ProxyBuilder<T> addInterface(Class<?> otherInterface) {
+        if (!otherInterface.isInterface() || !otherInterface.isInstance(target)) {
+            throw new IllegalArgumentException("目标对象没有实现接口：" + otherInterface.getName());
+        }
+        interfaces.add(otherInterface);
         return this;
     }
 
-    
+
     @SuppressWarnings("unchecked")
     public T build() {
         return (T) Proxy.newProxyInstance(
                 target.getClass().getClassLoader(),
-                new Class[]{interfaceType},
-                new InvocationHandler() {
-                    @Override
-                    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
-                        return proceedChain(0, proxy, method, args);
-                    }
-
-                    // 递归执行拦截器链
-                    private Object proceedChain(int index, Object proxy, Method method, Object[] args) throws Throwable {
-                        if (index == interceptors.size()) {
-                            // 最后调用目标对象方法
-                            return method.invoke(target, args);
-                        }
-                        MethodInterceptor interceptor = interceptors.get(index);
-                        return interceptor.invoke(proxy, method, args, () -> proceedChain(index + 1, proxy, method, args));
-                    }
-                }
+                interfaces.toArray(new Class<?>[0]),
+                new ChainInvocationHandler(target, chains())
         );
     }
+
+    // 字节码生成的代理
+    @SuppressWarnings("unchecked")
+    public T buildGenerated() {
+        if (!ProxyClassGenerator.supports(interfaces)) {
+            return build();
+        }
+        return (T) ProxyClassGenerator.newProxy(target, new ArrayList<>(interfaces), chains());
+    }
+
+    private Map<Method, InterceptorChain> chains() {
+        Map<Method, InterceptorChain> chains = new HashMap<>();
+        for (Class<?> type : interfaces) {
+            for (Method method : type.getMethods()) {
+                chains.put(method, InterceptorChain.of(target, method, matchedInterceptors(method)));
+            }
+        }
+        return chains;
+    }
+
+    private List<MethodInterceptor> matchedInterceptors(Method method) {
+        List<MethodInterceptor> matched = new ArrayList<>(advisors.size());
+        for (Advisor advisor : advisors) {
+            if (advisor.matcher.matches(method, target.getClass())) {
+                matched.add(advisor.interceptor);
+            }
+        }
+        return matched;
+    }
+
+    /**
+     * 拦截器和它的方法匹配器
+     */
+    private static final class Advisor {
+        private final MethodMatcher matcher;
+        private final MethodInterceptor interceptor;
+
+        Advisor(MethodMatcher matcher, MethodInterceptor interceptor) {
+            this.matcher = matcher;
+            this.interceptor = interceptor;
+        }
+    }
+
+    /**
+     * 按 Method 查预先生成的拦截器链
+     */
+    private static final class ChainInvocationHandler implements InvocationHandler {
+        private final Object target;
+        private final Map<Method, InterceptorChain> chains;
+
+        ChainInvocationHandler(Object target, Map<Method, InterceptorChain> chains) {
+            this.target = target;
+            this.chains = chains;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            InterceptorChain chain = chains.get(method);
+            if (chain != null) {
+                return chain.invoke(proxy, args);
+            }
+            if (method.getDeclaringClass() == Object.class) {
+                return invokeObjectMethod(proxy, method, args);
+            }
+            throw new IllegalStateException("代理没有这个方法：" + method);
+        }
+
+        private Object invokeObjectMethod(Object proxy, Method method, Object[] args) {
+            switch (method.getName()) {
+            case "equals":
+                Object other = args[0];
+                if (other == proxy) {
+                    return true;
+                }
+                if (other == null || !Proxy.isProxyClass(other.getClass())) {
+                    return false;
+                }
+                InvocationHandler handler = Proxy.getInvocationHandler(other);
+                return handler instanceof ChainInvocationHandler && ((ChainInvocationHandler) handler).target == target;
+            case "hashCode":
+                return System.identityHashCode(target);
+            default:
+                return target.toString();
+            }
+        }
+    }
 }
@@ -0,0 +1,382 @@
+package priv.captain.reflection;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.asm.ClassWriter;
+import org.springframework.asm.Label;
+import org.springframework.asm.MethodVisitor;
+import org.springframework.asm.Opcodes;
+import org.springframework.asm.Type;
+
+/**
+ * 用 Spring 自带的 ASM 生成代理类，代替 java.lang.reflect.Proxy
+ * 说明：
+ * 1. 生成的类继承 GeneratedProxy、实现全部接口，用 MethodHandles.Lookup#defineClass 定义在本包中，
+ *    因此可以直接访问包内的 InterceptorChain。
+ * 2. 没有拦截器的方法：target checkcast 成接口后直接 invokeinterface，参数原样传递，没有 Object[] 和装箱。
+ * 3. 有拦截器的方法：每个方法一个 final InterceptorChain 字段，直接 invokevirtual 到这条链，
+ *    不再经过 InvocationHandler 和 Method 查表；链的末端回调生成的 invokeTarget，按方法下标 tableswitch 后
+ *    invokeinterface 调用目标。拦截器接口本身需要 Object[] 参数，这部分装箱无法避免。
+ * 4. 代理类的结构只取决于接口和“哪些方法有拦截器”，按这两项缓存，相同结构的代理共用一个类；
+ *    缓存挂在第一个接口的 ClassValue 上，接口所在的类加载器可以被回收，不会被 static Map 拖住。
+ * 5. 与 JDK 代理不同，接口没有声明的受检异常不会被包装成 UndeclaredThrowableException，而是原样抛出。
+ * 6. 生成的类定义在本类的类加载器中，只能访问 public 且从这个加载器可见的类型；
+ *    接口或方法签名中的类型不满足时 supports 返回 false，由 ProxyBuilder 退回 JDK 代理，而不是在调用时抛 IllegalAccessError。
+ */
+final class ProxyClassGenerator {
+
+    private static final String SUPER_NAME = Type.getInternalName(GeneratedProxy.class);
+    private static final String CHAIN_NAME = Type.getInternalName(InterceptorChain.class);
+    private static final String CHAIN_DESC = Type.getDescriptor(InterceptorChain.class);
+    private static final String INVOKE_DESC = Type.getMethodDescriptor(Type.getType(Object.class),
+            Type.getType(GeneratedProxy.class), Type.getType(Object[].class), Type.INT_TYPE);
+    private static final String INVOKE_TARGET_DESC = Type.getMethodDescriptor(Type.getType(Object.class),
+            Type.INT_TYPE, Type.getType(Object[].class));
+    private static final String CONSTRUCTOR_DESC = Type.getMethodDescriptor(Type.VOID_TYPE,
+            Type.getType(Object.class), Type.getType(InterceptorChain[].class));
+    private static final MethodType CONSTRUCTOR_TYPE = MethodType.methodType(void.class, Object.class,
+            InterceptorChain[].class);
+
+    private static final AtomicInteger COUNTER = new AtomicInteger();
+    private static final ClassValue<ConcurrentMap<List<Object>, MethodHandle>> CONSTRUCTORS =
+            new ClassValue<ConcurrentMap<List<Object>, MethodHandle>>() {
+                @Override
+                protected ConcurrentMap<List<Object>, MethodHandle> computeValue(Class<?> type) {
+                    return new ConcurrentHashMap<>();
+                }
+            };
+
+    private ProxyClassGenerator() {
+    }
+
+    /**
+     * 生成的代理类能否访问这些接口以及接口方法签名中的全部类型
+     */
+    static boolean supports(Collection<Class<?>> interfaces) {
+        for (Class<?> type : interfaces) {
+            if (!accessible(type)) {
+                return false;
+            }
+            for (Method method : type.getMethods()) {
+                if (Modifier.isStatic(method.getModifiers())) {
+                    continue;
+                }
+                if (!accessible(method.getReturnType())) {
+                    return false;
+                }
+                for (Class<?> parameterType : method.getParameterTypes()) {
+                    if (!accessible(parameterType)) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    private static boolean accessible(Class<?> type) {
+        while (type.isArray()) {
+            type = type.getComponentType();
+        }
+        if (type.isPrimitive()) {
+            return true;
+        }
+        if (!Modifier.isPublic(type.getModifiers())) {
+            return false;
+        }
+        try {
+            return Class.forName(type.getName(), false, ProxyClassGenerator.class.getClassLoader()) == type;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    /**
+     * 创建代理对象，调用前应先用 supports 检查
+     *
+     * @param target     目标对象
+     * @param interfaces 代理的接口，第一个作为类名的一部分
+     * @param chains     每个接口方法的拦截器链
+     * @return
+     */
+    static Object newProxy(Object target, List<Class<?>> interfaces, Map<Method, InterceptorChain> chains) {
+        Map<String, Method> methods = proxiedMethods(interfaces);
+        List<Object> key = new ArrayList<>(interfaces);
+        InterceptorChain[] intercepted = new InterceptorChain[methods.size()];
+        int i = 0;
+        for (Method method : methods.values()) {
+            InterceptorChain chain = chains.get(method);
+            if (chain != null && chain.hasInterceptors()) {
+                intercepted[i] = chain;
+            }
+            key.add(intercepted[i] != null);
+            i++;
+        }
+        MethodHandle constructor = CONSTRUCTORS.get(interfaces.get(0)).computeIfAbsent(key,
+                k -> defineProxyClass(interfaces, methods.values(), intercepted));
+        try {
+            return constructor.invoke(target, intercepted);
+        } catch (Throwable e) {
+            throw new IllegalStateException("创建代理对象失败", e);
+        }
+    }
+
+    /**
+     * 接口的全部实例方法，签名相同的方法（多个接口都声明）只生成一次
+     */
+    private static Map<String, Method> proxiedMethods(List<Class<?>> interfaces) {
+        Map<String, Method> methods = new LinkedHashMap<>();
+        for (Class<?> type : interfaces) {
+            for (Method method : type.getMethods()) {
+                if (!Modifier.isStatic(method.getModifiers())) {
+                    methods.putIfAbsent(method.getName() + Type.getMethodDescriptor(method), method);
+                }
+            }
+        }
+        return methods;
+    }
+
+    private static MethodHandle defineProxyClass(List<Class<?>> interfaces, Iterable<Method> methods,
+            InterceptorChain[] intercepted) {
+        String className = Type.getInternalName(ProxyClassGenerator.class).replace("ProxyClassGenerator",
+                "GeneratedProxy$$" + interfaces.get(0).getSimpleName() + "$$" + COUNTER.incrementAndGet());
+        String[] interfaceNames = interfaces.stream().map(Type::getInternalName).toArray(String[]::new);
+
+        ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS | ClassWriter.COMPUTE_FRAMES);
+        cw.visit(Opcodes.V11, Opcodes.ACC_PUBLIC | Opcodes.ACC_FINAL | Opcodes.ACC_SUPER, className, null,
+                SUPER_NAME, interfaceNames);
+        for (int i = 0; i < intercepted.length; i++) {
+            if (intercepted[i] != null) {
+                cw.visitField(Opcodes.ACC_PRIVATE | Opcodes.ACC_FINAL, "chain" + i, CHAIN_DESC, null, null)
+                        .visitEnd();
+            }
+        }
+        generateConstructor(cw, className, intercepted);
+        generateInvokeTarget(cw, methods, intercepted);
+        int i = 0;
+        for (Method method : methods) {
+            if (intercepted[i] != null) {
+                generateInterceptedMethod(cw, className, method, i);
+            } else {
+                generateDirectMethod(cw, method);
+            }
+            i++;
+        }
+        cw.visitEnd();
+
+        try {
+            Class<?> proxyClass = MethodHandles.lookup().defineClass(cw.toByteArray());
+            return MethodHandles.lookup().findConstructor(proxyClass, CONSTRUCTOR_TYPE);
+        } catch (IllegalAccessException | NoSuchMethodException e) {
+            throw new IllegalStateException("生成代理类失败：" + Arrays.toString(interfaceNames), e);
+        }
+    }
+
+    private static void generateConstructor(ClassWriter cw, String className, InterceptorChain[] intercepted) {
+        MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PUBLIC, "<init>", CONSTRUCTOR_DESC, null, null);
+        mv.visitCode();
+        mv.visitVarInsn(Opcodes.ALOAD, 0);
+        mv.visitVarInsn(Opcodes.ALOAD, 1);
+        mv.visitMethodInsn(Opcodes.INVOKESPECIAL, SUPER_NAME, "<init>", "(Ljava/lang/Object;)V", false);
+        for (int i = 0; i < intercepted.length; i++) {
+            if (intercepted[i] != null) {
+                mv.visitVarInsn(Opcodes.ALOAD, 0);
+                mv.visitVarInsn(Opcodes.ALOAD, 2);
+                pushInt(mv, i);
+                mv.visitInsn(Opcodes.AALOAD);
+                mv.visitFieldInsn(Opcodes.PUTFIELD, className, "chain" + i, CHAIN_DESC);
+            }
+        }
+        mv.visitInsn(Opcodes.RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+    }
+
+    /**
+     * ((Iface) target).method(args...)
+     */
+    private static void generateDirectMethod(ClassWriter cw, Method method) {
+        String descriptor = Type.getMethodDescriptor(method);
+        String owner = Type.getInternalName(method.getDeclaringClass());
+        MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_FINAL, method.getName(), descriptor,
+                null, exceptions(method));
+        mv.visitCode();
+        mv.visitVarInsn(Opcodes.ALOAD, 0);
+        mv.visitFieldInsn(Opcodes.GETFIELD, SUPER_NAME, "target", "Ljava/lang/Object;");
+        mv.visitTypeInsn(Opcodes.CHECKCAST, owner);
+        int slot = 1;
+        for (Type argumentType : Type.getArgumentTypes(method)) {
+            mv.visitVarInsn(argumentType.getOpcode(Opcodes.ILOAD), slot);
+            slot += argumentType.getSize();
+        }
+        mv.visitMethodInsn(Opcodes.INVOKEINTERFACE, owner, method.getName(), descriptor, true);
+        mv.visitInsn(Type.getReturnType(method).getOpcode(Opcodes.IRETURN));
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+    }
+
+    /**
+     * invokeTarget(index, args)：switch (index) { case N: return box(((Iface) target).methodN(unbox(args[0])...)); }
+     */
+    private static void generateInvokeTarget(ClassWriter cw, Iterable<Method> methods, InterceptorChain[] intercepted) {
+        MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PROTECTED, "invokeTarget", INVOKE_TARGET_DESC, null,
+                new String[] { "java/lang/Throwable" });
+        mv.visitCode();
+        Label unknown = new Label();
+        Label[] labels = new Label[intercepted.length];
+        for (int i = 0; i < labels.length; i++) {
+            labels[i] = intercepted[i] != null ? new Label() : unknown;
+        }
+        if (labels.length > 0) {
+            mv.visitVarInsn(Opcodes.ILOAD, 1);
+            mv.visitTableSwitchInsn(0, labels.length - 1, unknown, labels);
+        }
+        int i = 0;
+        for (Method method : methods) {
+            if (intercepted[i] != null) {
+                mv.visitLabel(labels[i]);
+                String owner = Type.getInternalName(method.getDeclaringClass());
+                mv.visitVarInsn(Opcodes.ALOAD, 0);
+                mv.visitFieldInsn(Opcodes.GETFIELD, SUPER_NAME, "target", "Ljava/lang/Object;");
+                mv.visitTypeInsn(Opcodes.CHECKCAST, owner);
+                Type[] argumentTypes = Type.getArgumentTypes(method);
+                for (int j = 0; j < argumentTypes.length; j++) {
+                    mv.visitVarInsn(Opcodes.ALOAD, 2);
+                    pushInt(mv, j);
+                    mv.visitInsn(Opcodes.AALOAD);
+                    unbox(mv, argumentTypes[j]);
+                }
+                mv.visitMethodInsn(Opcodes.INVOKEINTERFACE, owner, method.getName(), Type.getMethodDescriptor(method),
+                        true);
+                Type returnType = Type.getReturnType(method);
+                if (returnType.getSort() == Type.VOID) {
+                    mv.visitInsn(Opcodes.ACONST_NULL);
+                } else {
+                    box(mv, returnType);
+                }
+                mv.visitInsn(Opcodes.ARETURN);
+            }
+            i++;
+        }
+        mv.visitLabel(unknown);
+        mv.visitTypeInsn(Opcodes.NEW, "java/lang/IllegalArgumentException");
+        mv.visitInsn(Opcodes.DUP);
+        mv.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/IllegalArgumentException", "<init>", "()V", false);
+        mv.visitInsn(Opcodes.ATHROW);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+    }
+
+    /**
+     * return (R) chainN.invoke(this, new Object[] { args... }, N)
+     */
+    private static void generateInterceptedMethod(ClassWriter cw, String className, Method method, int index) {
+        MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_FINAL, method.getName(),
+                Type.getMethodDescriptor(method), null, exceptions(method));
+        mv.visitCode();
+        mv.visitVarInsn(Opcodes.ALOAD, 0);
+        mv.visitFieldInsn(Opcodes.GETFIELD, className, "chain" + index, CHAIN_DESC);
+        mv.visitVarInsn(Opcodes.ALOAD, 0);
+        Type[] argumentTypes = Type.getArgumentTypes(method);
+        pushInt(mv, argumentTypes.length);
+        mv.visitTypeInsn(Opcodes.ANEWARRAY, "java/lang/Object");
+        int slot = 1;
+        for (int i = 0; i < argumentTypes.length; i++) {
+            mv.visitInsn(Opcodes.DUP);
+            pushInt(mv, i);
+            mv.visitVarInsn(argumentTypes[i].getOpcode(Opcodes.ILOAD), slot);
+            box(mv, argumentTypes[i]);
+            mv.visitInsn(Opcodes.AASTORE);
+            slot += argumentTypes[i].getSize();
+        }
+        pushInt(mv, index);
+        mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, CHAIN_NAME, "invoke", INVOKE_DESC, false);
+        unboxReturn(mv, Type.getReturnType(method));
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+    }
+
+    private static void box(MethodVisitor mv, Type type) {
+        Type boxed = boxedType(type);
+        if (boxed != null) {
+            mv.visitMethodInsn(Opcodes.INVOKESTATIC, boxed.getInternalName(), "valueOf",
+                    Type.getMethodDescriptor(boxed, type), false);
+        }
+    }
+
+    private static void unboxReturn(MethodVisitor mv, Type returnType) {
+        if (returnType.getSort() == Type.VOID) {
+            mv.visitInsn(Opcodes.POP);
+            mv.visitInsn(Opcodes.RETURN);
+            return;
+        }
+        unbox(mv, returnType);
+        mv.visitInsn(returnType.getOpcode(Opcodes.IRETURN));
+    }
+
+    /**
+     * 栈顶的 Object 转成 type：引用类型 checkcast，基本类型 checkcast 包装类后拆箱
+     */
+    private static void unbox(MethodVisitor mv, Type type) {
+        Type boxed = boxedType(type);
+        if (boxed == null) {
+            if (!type.getDescriptor().equals("Ljava/lang/Object;")) {
+                mv.visitTypeInsn(Opcodes.CHECKCAST, type.getInternalName());
+            }
+            return;
+        }
+        mv.visitTypeInsn(Opcodes.CHECKCAST, boxed.getInternalName());
+        mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, boxed.getInternalName(), type.getClassName() + "Value",
+                Type.getMethodDescriptor(type), false);
+    }
+
+    private static Type boxedType(Type type) {
+        switch (type.getSort()) {
+        case Type.BOOLEAN:
+            return Type.getType(Boolean.class);
+        case Type.CHAR:
+            return Type.getType(Character.class);
+        case Type.BYTE:
+            return Type.getType(Byte.class);
+        case Type.SHORT:
+            return Type.getType(Short.class);
+        case Type.INT:
+            return Type.getType(Integer.class);
+        case Type.FLOAT:
+            return Type.getType(Float.class);
+        case Type.LONG:
+            return Type.getType(Long.class);
+        case Type.DOUBLE:
+            return Type.getType(Double.class);
+        default:
+            return null;
+        }
+    }
+
+    private static void pushInt(MethodVisitor mv, int value) {
+        if (value <= 5) {
+            mv.visitInsn(Opcodes.ICONST_0 + value);
+        } else if (value <= Byte.MAX_VALUE) {
+            mv.visitIntInsn(Opcodes.BIPUSH, value);
+        } else {
+            mv.visitIntInsn(Opcodes.SIPUSH, value);
+        }
+    }
+
+    private static String[] exceptions(Method method) {
+        return Arrays.stream(method.getExceptionTypes()).map(Type::getInternalName).toArray(String[]::new);
+    }
+}
@@ -0,0 +1,126 @@
+package priv.captain.reflection;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * 反射元数据缓存，对应《反射笔记》中“反射的性能为什么比直接调用差”
+ * 说明：
+ * 1. 类的方法、字段、注解、JavaBean 属性解析一次后存在 ClassValue 中。ClassValue 与 Class 同生命周期，
+ *    类被卸载时缓存随之回收，不会像 static Map<Class, ...> 那样阻止类加载器回收。
+ * 2. getter/setter 用 LambdaMetafactory 生成 Function/BiConsumer 的实现类，调用就是一次普通的接口调用，
+ *    可以被 JIT 内联；通过 privateLookupIn 取得目标类的 Lookup，生成的类定义在目标类旁边。
+ * 3. 任意方法的调用器用 MethodHandle：展开 Object[] 参数、统一成 (Object, Object[])Object 形状后 invokeExact，
+ *    没有 Method.invoke 的访问检查，异常也不再包装成 InvocationTargetException。
+ * 4. 拿不到 Lookup（如 JDK 模块内的类）时退回反射实现，功能不受影响。
+ */
+public final class ReflectionCache {
+
+    private static final ClassValue<ClassMetadata> METADATA = new ClassValue<ClassMetadata>() {
+        @Override
+        protected ClassMetadata computeValue(Class<?> type) {
+            return new ClassMetadata(type);
+        }
+    };
+
+    private static final MethodType INVOKER_TYPE = MethodType.methodType(Object.class, Object.class, Object[].class);
+    private static final MethodType GETTER_SAM = MethodType.methodType(Object.class, Object.class);
+    private static final MethodType SETTER_SAM = MethodType.methodType(void.class, Object.class, Object.class);
+
+    private ReflectionCache() {
+    }
+
+    public static ClassMetadata forClass(Class<?> type) {
+        return METADATA.get(type);
+    }
+
+    /**
+     * 方法调用器，按方法缓存
+     */
+    public static MethodInvoker invoker(Method method) {
+        return forClass(method.getDeclaringClass()).invoker(method);
+    }
+
+    public static PropertyAccessor property(Class<?> type, String name) {
+        return forClass(type).property(name);
+    }
+
+    static MethodInvoker newInvoker(Method method) {
+        try {
+            MethodHandle handle = lookupFor(method.getDeclaringClass()).unreflect(method)
+                    .asSpreader(Object[].class, method.getParameterCount());
+            if (Modifier.isStatic(method.getModifiers())) {
+                handle = MethodHandles.dropArguments(handle, 0, Object.class);
+            }
+            MethodHandle invoker = handle.asType(INVOKER_TYPE);
+            return (target, args) -> invoker.invokeExact(target, args);
+        } catch (IllegalAccessException | RuntimeException e) {
+            return reflectiveInvoker(method);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    static Function<Object, Object> getter(Method method) {
+        try {
+            MethodHandles.Lookup lookup = lookupFor(method.getDeclaringClass());
+            CallSite site = LambdaMetafactory.metafactory(lookup, "apply", MethodType.methodType(Function.class),
+                    GETTER_SAM, lookup.unreflect(method),
+                    MethodType.methodType(wrap(method.getReturnType()), method.getDeclaringClass()));
+            return (Function<Object, Object>) site.getTarget().invoke();
+        } catch (Throwable e) {
+            MethodInvoker invoker = reflectiveInvoker(method);
+            return bean -> invokeUnchecked(invoker, bean);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    static BiConsumer<Object, Object> setter(Method method) {
+        try {
+            MethodHandles.Lookup lookup = lookupFor(method.getDeclaringClass());
+            CallSite site = LambdaMetafactory.metafactory(lookup, "accept", MethodType.methodType(BiConsumer.class),
+                    SETTER_SAM, lookup.unreflect(method),
+                    MethodType.methodType(void.class, method.getDeclaringClass(), wrap(method.getParameterTypes()[0])));
+            return (BiConsumer<Object, Object>) site.getTarget().invoke();
+        } catch (Throwable e) {
+            MethodInvoker invoker = reflectiveInvoker(method);
+            return (bean, value) -> invokeUnchecked(invoker, bean, value);
+        }
+    }
+
+    private static MethodHandles.Lookup lookupFor(Class<?> type) throws IllegalAccessException {
+        return MethodHandles.privateLookupIn(type, MethodHandles.lookup());
+    }
+
+    private static MethodInvoker reflectiveInvoker(Method method) {
+        method.trySetAccessible();
+        return (target, args) -> {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getTargetException();
+            }
+        };
+    }
+
+    private static Object invokeUnchecked(MethodInvoker invoker, Object target, Object... args) {
+        try {
+            return invoker.invoke(target, args);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Class<?> wrap(Class<?> type) {
+        return type.isPrimitive() ? MethodType.methodType(type).wrap().returnType() : type;
+    }
+}
@@ -0,0 +1,70 @@
+package priv.captain.reflection.service;
+
+import java.time.LocalDateTime;
+
+/**
+ * 对外返回的用户信息，不含密码
+ */
+public class UserDTO {
+
+    private Long id;
+    private String name;
+    private int age;
+    private String email;
+    private boolean enabled;
+    private LocalDateTime createTime;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public int getAge() {
+        return age;
+    }
+
+    public void setAge(int age) {
+        this.age = age;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public void setEmail(String email) {
+        this.email = email;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public LocalDateTime getCreateTime() {
+        return createTime;
+    }
+
+    public void setCreateTime(LocalDateTime createTime) {
+        this.createTime = createTime;
+    }
+
+    @Override
+    public String toString() {
+        return "UserDTO{id=" + id + ", name=" + name + ", age=" + age + ", email=" + email + ", enabled=" + enabled
+                + ", createTime=" + createTime + "}";
+    }
+}
@@ -0,0 +1,39 @@
+package priv.captain.reflection.service;
+
+import java.util.List;
+
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import org.mapstruct.MappingTarget;
+import org.mapstruct.factory.Mappers;
+
+/**
+ * User 与 UserDTO 的转换，由 mapstruct-processor 在编译期生成 UserMapperImpl
+ * 说明：
+ * 1. 生成的实现就是普通的 getter/setter 调用，没有反射。
+ * 2. 属性对不上时编译报错（pom 中配置了 unmappedTargetPolicy=ERROR），不会像 BeanUtils 那样在运行时静默漏拷。
+ * 3. 使用默认的 componentModel，通过 INSTANCE 获取实例，目前只有 MapperBenchmark 使用。
+ * 4. 没有经过 Maven 编译（注解处理器没有运行）时不存在 UserMapperImpl，访问 INSTANCE 会抛异常，
+ *    所以 UserServiceImpl 等示例中的业务代码不依赖它。
+ */
+@Mapper
+public interface UserMapper {
+
+    UserMapper INSTANCE = Mappers.getMapper(UserMapper.class);
+
+    UserDTO toDto(User user);
+
+    List<UserDTO> toDtoList(List<User> users);
+
+    /**
+     * DTO 不含密码，转回实体时密码保持为空，由调用方单独处理
+     */
+    @Mapping(target = "password", ignore = true)
+    User toEntity(UserDTO dto);
+
+    /**
+     * 用 DTO 更新已有实体，不覆盖密码
+     */
+    @Mapping(target = "password", ignore = true)
+    void update(UserDTO dto, @MappingTarget User user);
+}
@@ -3,4 +3,6 @@ package priv.captain.reflection.service;
 public interface UserService {
     
     String getNameById(Long id);
+
+    UserDTO getUser(Long id);
 }
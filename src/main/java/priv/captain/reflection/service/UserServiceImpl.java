@@ -1,5 +1,7 @@
 package priv.captain.reflection.service;
 
+import java.time.LocalDateTime;
+
 /**
  * UserService 的具体实现类
  * CGLIB 只能代理类，不能代理接口
@@ -11,4 +13,35 @@ public class UserServiceImpl implements UserService {
         System.out.println("实际执行业务逻辑，查询用户ID: " + id);
         return "用户" + id;
     }
+
+    /**
+     * 查询用户并转成 DTO，DTO 没有密码字段，密码不会出现在返回结果中
+     * 说明：
+     * 1. 直接手写 getter/setter 转换，不依赖 UserMapper：没有运行注解处理器时 UserMapperImpl 不存在，
+     *    代理示例里的基础业务不能因此失败。
+     */
+    @Override
+    public UserDTO getUser(Long id) {
+        System.out.println("实际执行业务逻辑，查询用户: " + id);
+        User user = new User();
+        user.setId(id);
+        user.setName("用户" + id);
+        user.setAge(18);
+        user.setEmail("user" + id + "@example.com");
+        user.setEnabled(true);
+        user.setPassword("secret");
+        user.setCreateTime(LocalDateTime.now());
+        return toDto(user);
+    }
+
+    private static UserDTO toDto(User user) {
+        UserDTO dto = new UserDTO();
+        dto.setId(user.getId());
+        dto.setName(user.getName());
+        dto.setAge(user.getAge());
+        dto.setEmail(user.getEmail());
+        dto.setEnabled(user.isEnabled());
+        dto.setCreateTime(user.getCreateTime());
+        return dto;
+    }
 }
@@ -0,0 +1,151 @@
+package priv.captain.spi;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 基于 SearchCursor 的 Flow.Publisher，按订阅方的需求逐页拉取
+ * 说明：
+ * 1. 每个订阅者独立打开一个游标。request(n) 只是累加需求并调度一次 drain，拉取和 onNext 都在 executor 中执行，
+ *    不会在订阅方的 request 调用栈里递归回调（Reactive Streams 规则 3.3）。
+ * 2. drain 用 wip 计数器保证同一时刻只有一个线程在推送，推送完当前需求就停，当前页用完且仍有需求时才取下一页。
+ * 3. 完成、出错、取消时关闭游标；request(n) 的 n <= 0 时按规则 3.9 以 IllegalArgumentException 结束。
+ */
+final class CursorPublisher implements Flow.Publisher<String> {
+
+    private final Supplier<SearchCursor> cursorFactory;
+    private final Executor executor;
+
+    CursorPublisher(Supplier<SearchCursor> cursorFactory, Executor executor) {
+        this.cursorFactory = cursorFactory;
+        this.executor = executor;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super String> subscriber) {
+        Objects.requireNonNull(subscriber, "subscriber");
+        new CursorSubscription(subscriber).start();
+    }
+
+    private final class CursorSubscription implements Flow.Subscription, Runnable {
+        private final Flow.Subscriber<? super String> subscriber;
+        private final AtomicLong requested = new AtomicLong();
+        private final AtomicInteger wip = new AtomicInteger();
+        private volatile boolean cancelled;
+        private volatile Throwable invalidRequest;
+        // 以下字段只在 drain 线程中访问，wip 的原子操作保证可见性
+        private SearchCursor cursor;
+        private Iterator<String> page = Collections.emptyIterator();
+        private boolean done;
+
+        CursorSubscription(Flow.Subscriber<? super String> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        void start() {
+            subscriber.onSubscribe(this);
+            // 没有任何需求时也要检查空结果，空结果直接 onComplete
+            schedule();
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                invalidRequest = new IllegalArgumentException("request 的数量必须大于 0：" + n);
+            } else {
+                requested.getAndUpdate(current -> current + n < 0 ? Long.MAX_VALUE : current + n);
+            }
+            schedule();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            schedule();
+        }
+
+        private void schedule() {
+            if (wip.getAndIncrement() == 0) {
+                executor.execute(this);
+            }
+        }
+
+        @Override
+        public void run() {
+            int missed = 1;
+            do {
+                if (!done) {
+                    drain();
+                }
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void drain() {
+            try {
+                if (cancelled) {
+                    finish();
+                    return;
+                }
+                if (invalidRequest != null) {
+                    finish();
+                    subscriber.onError(invalidRequest);
+                    return;
+                }
+                if (cursor == null) {
+                    cursor = cursorFactory.get();
+                }
+                long demand = requested.get();
+                long emitted = 0;
+                while (true) {
+                    if (cancelled) {
+                        finish();
+                        return;
+                    }
+                    if (!page.hasNext()) {
+                        if (!cursor.hasNext()) {
+                            finish();
+                            subscriber.onComplete();
+                            return;
+                        }
+                        if (emitted == demand) {
+                            // 当前页已推完，没有需求时不取下一页
+                            break;
+                        }
+                        page = cursor.nextPage().iterator();
+                        continue;
+                    }
+                    if (emitted == demand) {
+                        break;
+                    }
+                    subscriber.onNext(page.next());
+                    emitted++;
+                }
+                if (emitted > 0 && demand != Long.MAX_VALUE) {
+                    requested.addAndGet(-emitted);
+                }
+            } catch (RuntimeException e) {
+                finish();
+                subscriber.onError(e);
+            }
+        }
+
+        private void finish() {
+            done = true;
+            page = Collections.emptyIterator();
+            if (cursor != null) {
+                try {
+                    cursor.close();
+                } catch (RuntimeException e) {
+                    // 关闭失败不影响已经发出的结束信号
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,398 @@
+package priv.captain.spi;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * 联邦搜索：并发查询多个 Search 实现，合并去重后排序返回
+ * 说明：
+ * 1. 所有实现同时发起，总耗时取决于最慢的那个（且不超过它的超时时间），而不是各实现耗时之和。
+ * 2. 每个实现有自己的超时时间，超时或异常的实现不影响其他结果，返回的 FederatedResult 标记为部分结果。
+ * 3. 对冲请求（hedged request）：某个实现在 hedgeAfter 之后还没返回，再发一个相同的请求，谁先返回用谁，
+ *    用来削掉个别慢请求造成的长尾；两次都失败才算失败。
+ * 4. 合并：同一文档（按 dedupKey 判断）在多个实现中出现时只保留一份，得分累加；
+ *    默认用倒数排名融合（RRF）打分：weight / (k + 名次)，不同实现的原始分数不可比，名次可比。
+ * 5. 超时只是不再等待，已经提交的查询会继续执行完，executor 要按最坏情况留足线程。
+ */
+public final class FederatedSearch implements Search {
+
+    private final List<Backend> backends;
+    private final Executor executor;
+    private final Ranking ranking;
+    private final Function<String, String> dedupKey;
+    private final int maxResults;
+
+    private FederatedSearch(Builder builder) {
+        this.backends = Collections.unmodifiableList(new ArrayList<>(builder.backends));
+        this.executor = builder.executor;
+        this.ranking = builder.ranking;
+        this.dedupKey = builder.dedupKey;
+        this.maxResults = builder.maxResults;
+    }
+
+    public static Builder builder(Executor executor) {
+        return new Builder(executor);
+    }
+
+    @Override
+    public List<String> searchDocuments(String keyword) {
+        return search(keyword).getDocuments();
+    }
+
+    /**
+     * 查询所有实现，等待全部返回或超时
+     */
+    public FederatedResult search(String keyword) {
+        return searchAsync(keyword).join();
+    }
+
+    public CompletableFuture<FederatedResult> searchAsync(String keyword) {
+        long start = System.nanoTime();
+        List<CompletableFuture<ProviderResult>> futures = new ArrayList<>(backends.size());
+        for (Backend backend : backends) {
+            futures.add(query(backend, keyword, start));
+        }
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).thenApply(v -> {
+            List<ProviderResult> results = new ArrayList<>(futures.size());
+            for (CompletableFuture<ProviderResult> future : futures) {
+                results.add(future.join());
+            }
+            return new FederatedResult(merge(results), results, System.nanoTime() - start);
+        });
+    }
+
+    private CompletableFuture<ProviderResult> query(Backend backend, String keyword, long start) {
+        CompletableFuture<List<String>> result = new CompletableFuture<>();
+        AtomicInteger pending = new AtomicInteger(1);
+        AtomicBoolean hedged = new AtomicBoolean();
+        attempt(backend, keyword, result, pending);
+        if (backend.hedgeAfter != null) {
+            CompletableFuture.delayedExecutor(backend.hedgeAfter.toNanos(), TimeUnit.NANOSECONDS, executor)
+                    .execute(() -> {
+                        if (!result.isDone()) {
+                            hedged.set(true);
+                            pending.incrementAndGet();
+                            attempt(backend, keyword, result, pending);
+                        }
+                    });
+        }
+        return result.orTimeout(backend.timeout.toNanos(), TimeUnit.NANOSECONDS).handle((documents, error) -> {
+            long elapsed = System.nanoTime() - start;
+            if (error == null) {
+                return new ProviderResult(backend.name, Status.SUCCESS, documents, null, hedged.get(), elapsed);
+            }
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause()
+                    : error;
+            Status status = cause instanceof TimeoutException ? Status.TIMEOUT : Status.FAILED;
+            return new ProviderResult(backend.name, status, Collections.emptyList(), cause, hedged.get(), elapsed);
+        });
+    }
+
+    /**
+     * 发起一次查询；成功直接完成，失败时只有最后一个未完成的请求才把异常传出去
+     */
+    private void attempt(Backend backend, String keyword, CompletableFuture<List<String>> result,
+            AtomicInteger pending) {
+        CompletableFuture.supplyAsync(() -> backend.search.searchDocuments(keyword), executor)
+                .whenComplete((documents, error) -> {
+                    if (error == null) {
+                        result.complete(documents == null ? Collections.emptyList() : documents);
+                    } else if (pending.decrementAndGet() == 0) {
+                        result.completeExceptionally(error);
+                    }
+                });
+    }
+
+    private List<String> merge(List<ProviderResult> results) {
+        Map<String, Scored> merged = new LinkedHashMap<>();
+        for (int i = 0; i < results.size(); i++) {
+            ProviderResult result = results.get(i);
+            Backend backend = backends.get(i);
+            List<String> documents = result.getDocuments();
+            for (int position = 0; position < documents.size(); position++) {
+                String document = documents.get(position);
+                if (document == null) {
+                    continue;
+                }
+                double score = ranking.score(backend.name, backend.weight, position, document);
+                merged.computeIfAbsent(dedupKey.apply(document), k -> new Scored(document)).score += score;
+            }
+        }
+        List<Scored> sorted = new ArrayList<>(merged.values());
+        // 稳定排序：得分相同时保持实现注册顺序和实现内的顺序
+        sorted.sort((a, b) -> Double.compare(b.score, a.score));
+        int size = Math.min(sorted.size(), maxResults);
+        List<String> documents = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            documents.add(sorted.get(i).document);
+        }
+        return documents;
+    }
+
+    public enum Status {
+        SUCCESS, TIMEOUT, FAILED
+    }
+
+    /**
+     * 单条结果的打分规则，最终得分是同一文档在各实现中得分之和
+     */
+    @FunctionalInterface
+    public interface Ranking {
+
+        /**
+         * @param provider 实现名称
+         * @param weight   注册时指定的权重
+         * @param position 文档在该实现结果中的名次，从 0 开始
+         */
+        double score(String provider, double weight, int position, String document);
+
+        /**
+         * 倒数排名融合，k 越大名次的影响越平缓，常用 60
+         */
+        static Ranking reciprocalRank(int k) {
+            return (provider, weight, position, document) -> weight / (k + position + 1);
+        }
+
+        /**
+         * 只看实现权重：权重高的实现的结果整体排在前面
+         */
+        static Ranking providerWeight() {
+            return (provider, weight, position, document) -> weight;
+        }
+    }
+
+    /**
+     * 一次联邦查询的结果
+     */
+    public static final class FederatedResult {
+        private final List<String> documents;
+        private final List<ProviderResult> providers;
+        private final long elapsedNanos;
+
+        FederatedResult(List<String> documents, List<ProviderResult> providers, long elapsedNanos) {
+            this.documents = Collections.unmodifiableList(documents);
+            this.providers = Collections.unmodifiableList(providers);
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public List<String> getDocuments() {
+            return documents;
+        }
+
+        public List<ProviderResult> getProviders() {
+            return providers;
+        }
+
+        /**
+         * 有实现超时或失败时为 true
+         */
+        public boolean isPartial() {
+            for (ProviderResult provider : providers) {
+                if (provider.getStatus() != Status.SUCCESS) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        public long getElapsedMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+        }
+
+        @Override
+        public String toString() {
+            return "FederatedResult{documents=" + documents + ", partial=" + isPartial() + ", elapsed="
+                    + getElapsedMillis() + "ms, providers=" + providers + "}";
+        }
+    }
+
+    /**
+     * 单个实现的查询结果
+     */
+    public static final class ProviderResult {
+        private final String name;
+        private final Status status;
+        private final List<String> documents;
+        private final Throwable error;
+        private final boolean hedged;
+        private final long elapsedNanos;
+
+        ProviderResult(String name, Status status, List<String> documents, Throwable error, boolean hedged,
+                long elapsedNanos) {
+            this.name = name;
+            this.status = status;
+            this.documents = documents;
+            this.error = error;
+            this.hedged = hedged;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Status getStatus() {
+            return status;
+        }
+
+        public List<String> getDocuments() {
+            return documents;
+        }
+
+        public Throwable getError() {
+            return error;
+        }
+
+        /**
+         * 是否发出过对冲请求
+         */
+        public boolean isHedged() {
+            return hedged;
+        }
+
+        public long getElapsedMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+        }
+
+        @Override
+        public String toString() {
+            return name + ":" + status + (hedged ? "(hedged)" : "") + "/" + getElapsedMillis() + "ms";
+        }
+    }
+
+    public static final class Builder {
+        private final Executor executor;
+        private final List<Backend> backends = new ArrayList<>();
+        private final Set<String> names = new HashSet<>();
+        private Duration timeout = Duration.ofSeconds(1);
+        private Duration hedgeAfter;
+        private Ranking ranking = Ranking.reciprocalRank(60);
+        private Function<String, String> dedupKey = String::trim;
+        private int maxResults = Integer.MAX_VALUE;
+
+        private Builder(Executor executor) {
+            this.executor = Objects.requireNonNull(executor, "executor");
+        }
+
+        /**
+         * 默认超时时间，对之后 add 的实现生效
+         */
+        public Builder timeout(Duration timeout) {
+            this.timeout = requirePositive(timeout, "timeout");
+            return this;
+        }
+
+        /**
+         * 默认对冲延迟，对之后 add 的实现生效；null 表示不对冲
+         */
+        public Builder hedgeAfter(Duration hedgeAfter) {
+            this.hedgeAfter = hedgeAfter == null ? null : requirePositive(hedgeAfter, "hedgeAfter");
+            return this;
+        }
+
+        public Builder add(String name, Search search) {
+            return add(name, search, 1.0, timeout, hedgeAfter);
+        }
+
+        public Builder add(String name, Search search, double weight, Duration timeout, Duration hedgeAfter) {
+            if (!names.add(name)) {
+                throw new IllegalArgumentException("重复的实现名称：" + name);
+            }
+            if (search instanceof FederatedSearch) {
+                throw new IllegalArgumentException("不能嵌套 FederatedSearch：" + name);
+            }
+            backends.add(new Backend(name, Objects.requireNonNull(search, "search"), weight,
+                    requirePositive(timeout, "timeout"),
+                    hedgeAfter == null ? null : requirePositive(hedgeAfter, "hedgeAfter")));
+            return this;
+        }
+
+        /**
+         * 加入注册表中的全部实现，同一实例只加一次，名称取注册表中的第一个名称（有 Dubbo 别名时用别名）
+         */
+        public Builder addAll(ProviderRegistry<? extends Search> registry) {
+            Map<Search, String> names = new IdentityHashMap<>();
+            for (String name : registry.names()) {
+                names.putIfAbsent(registry.get(name), name);
+            }
+            // 按 @Order 顺序加入，得分相同时顺序靠前的实现优先
+            for (Search search : registry.getAll()) {
+                add(names.get(search), search);
+            }
+            return this;
+        }
+
+        public Builder ranking(Ranking ranking) {
+            this.ranking = Objects.requireNonNull(ranking, "ranking");
+            return this;
+        }
+
+        /**
+         * 去重用的 key，默认去掉首尾空白后比较
+         */
+        public Builder dedupKey(Function<String, String> dedupKey) {
+            this.dedupKey = Objects.requireNonNull(dedupKey, "dedupKey");
+            return this;
+        }
+
+        public Builder maxResults(int maxResults) {
+            if (maxResults <= 0) {
+                throw new IllegalArgumentException("maxResults 必须大于 0：" + maxResults);
+            }
+            this.maxResults = maxResults;
+            return this;
+        }
+
+        public FederatedSearch build() {
+            return new FederatedSearch(this);
+        }
+
+        private static Duration requirePositive(Duration duration, String name) {
+            if (duration == null || duration.isNegative() || duration.isZero()) {
+                throw new IllegalArgumentException(name + " 必须大于 0：" + duration);
+            }
+            return duration;
+        }
+    }
+
+    private static final class Backend {
+        private final String name;
+        private final Search search;
+        private final double weight;
+        private final Duration timeout;
+        private final Duration hedgeAfter;
+
+        Backend(String name, Search search, double weight, Duration timeout, Duration hedgeAfter) {
+            this.name = name;
+            this.search = search;
+            this.weight = weight;
+            this.timeout = timeout;
+            this.hedgeAfter = hedgeAfter;
+        }
+    }
+
+    private static final class Scored {
+        private final String document;
+        private double score;
+
+        Scored(String document) {
+            this.document = document;
+        }
+    }
+}
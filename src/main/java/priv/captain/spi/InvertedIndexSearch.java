@@ -0,0 +1,53 @@
+package priv.captain.spi;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import priv.captain.spi.index.InvertedIndex;
+import priv.captain.spi.index.SearchHit;
+
+/**
+ * @description: 本地全文搜索实现，基于内存倒排索引，可在测试和边缘节点上代替 es
+ * 说明：
+ * 1. 通过 META-INF/services 注册，ServiceLoader 用无参构造创建一个空索引；从 ProviderRegistry 取到同一个实例后调用 index 写入文档。
+ * 2. searchDocuments 按 BM25 得分返回前 DEFAULT_TOP_K 条，查询语法见 InvertedIndex。
+ **/
+public class InvertedIndexSearch implements Search {
+
+    public static final int DEFAULT_TOP_K = 100;
+
+    private final InvertedIndex index;
+
+    public InvertedIndexSearch() {
+        this(new InvertedIndex());
+    }
+
+    public InvertedIndexSearch(InvertedIndex index) {
+        this.index = index;
+    }
+
+    public InvertedIndex getIndex() {
+        return index;
+    }
+
+    /**
+     * 写入一个文档，返回文档号
+     */
+    public int index(String document) {
+        return index.add(document);
+    }
+
+    public List<SearchHit> search(String keyword, int topK) {
+        return index.search(keyword, topK);
+    }
+
+    @Override
+    public List<String> searchDocuments(String keyword) {
+        List<SearchHit> hits = index.search(keyword, DEFAULT_TOP_K);
+        List<String> documents = new ArrayList<>(hits.size());
+        for (SearchHit hit : hits) {
+            documents.add(hit.getDocument());
+        }
+        return documents;
+    }
+}
@@ -0,0 +1,54 @@
+package priv.captain.spi;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * 把 List 结果按页切分的游标，用于适配只实现了 Search 的旧实现
+ * 说明：第一次拉取时才调用旧实现，结果只生成一次，之后按页切给下游。
+ */
+final class ListSearchCursor implements SearchCursor {
+
+    private final Supplier<List<String>> query;
+    private final int pageSize;
+    private List<String> documents;
+    private int offset;
+    private boolean closed;
+
+    ListSearchCursor(Supplier<List<String>> query, int pageSize) {
+        this.query = query;
+        this.pageSize = pageSize;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return !closed && offset < documents().size();
+    }
+
+    @Override
+    public List<String> nextPage() {
+        if (closed) {
+            throw new IllegalStateException("游标已关闭");
+        }
+        List<String> all = documents();
+        int end = Math.min(all.size(), offset + pageSize);
+        List<String> page = all.subList(offset, end);
+        offset = end;
+        return page;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        documents = Collections.emptyList();
+    }
+
+    private List<String> documents() {
+        if (documents == null) {
+            List<String> result = query.get();
+            documents = result == null ? Collections.emptyList() : result;
+        }
+        return documents;
+    }
+}
@@ -0,0 +1,279 @@
+package priv.captain.spi;
+
+import java.beans.Introspector;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import org.springframework.beans.BeanUtils;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.OrderUtils;
+import org.springframework.core.io.support.SpringFactoriesLoader;
+import org.springframework.util.ClassUtils;
+
+/**
+ * SPI 扩展注册表：一个接口的所有实现只发现一次，实例按需创建并缓存为单例
+ * 说明：
+ * 1. 发现来源与优先级（同一个实现类只登记一次）：
+ *    META-INF/dubbo/internal/、META-INF/dubbo/ 下 name=实现类 的文件（Dubbo 风格，见 DubboSPI笔记.md）；
+ *    META-INF/services/ 下的 JDK SPI 文件，用 ServiceLoader.stream() 只拿类型、不实例化；
+ *    META-INF/spring.factories 中以接口全限定名为 key 的实现。
+ * 2. 每个实现都有一个默认名称（与 Spring 默认 bean 名称规则相同，类名首字母小写），Dubbo 文件里的 key 作为别名，按名称取实例就是一次 Map 读取。
+ * 3. 实例在第一次按名称获取时才创建（Dubbo 的按需加载），之后复用同一个实例；创建失败不缓存，下次重试。
+ * 4. getAll 按实现类上的 @Order 排序，值越小越靠前，与 SpringFactoriesLoader 一致；
+ *    排序只看类上的注解，不需要先实例化。
+ * 5. 注册表按接口缓存，线程安全，替代每次都 ServiceLoader.load 再遍历的写法（ServiceLoader 本身不是线程安全的）。
+ */
+public final class ProviderRegistry<T> {
+
+    private static final String[] DUBBO_DIRECTORIES = { "META-INF/dubbo/internal/", "META-INF/dubbo/" };
+
+    private static final ClassValue<ProviderRegistry<?>> REGISTRIES = new ClassValue<ProviderRegistry<?>>() {
+        @Override
+        protected ProviderRegistry<?> computeValue(Class<?> type) {
+            // 用接口自己的类加载器：缓存挂在接口的 ClassValue 上，与接口同生命周期，
+            // 不能用调用时线程上下文类加载器（不同 Web 应用的线程可能先后访问同一个接口）
+            ClassLoader classLoader = type.getClassLoader();
+            return new ProviderRegistry<>(type,
+                    classLoader != null ? classLoader : ClassLoader.getSystemClassLoader());
+        }
+    };
+
+    private final Class<T> type;
+    private final Map<String, Provider<T>> byName;
+    private final List<Provider<T>> ordered;
+    private volatile List<T> all;
+
+    private ProviderRegistry(Class<T> type, ClassLoader classLoader) {
+        this.type = type;
+        Map<Class<?>, Provider<T>> byClass = new LinkedHashMap<>();
+        Map<String, Provider<T>> names = new LinkedHashMap<>();
+        loadDubbo(classLoader, byClass, names);
+        loadJdk(classLoader, byClass);
+        loadSpringFactories(classLoader, byClass);
+        for (Provider<T> provider : byClass.values()) {
+            names.putIfAbsent(provider.name, provider);
+        }
+        List<Provider<T>> sorted = new ArrayList<>(byClass.values());
+        // List.sort 是稳定排序，@Order 相同时保持发现顺序
+        sorted.sort((a, b) -> Integer.compare(a.order, b.order));
+        this.byName = Collections.unmodifiableMap(names);
+        this.ordered = Collections.unmodifiableList(sorted);
+    }
+
+    /**
+     * 取接口对应的注册表，第一次调用时扫描 classpath
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> ProviderRegistry<T> of(Class<T> type) {
+        return (ProviderRegistry<T>) REGISTRIES.get(type);
+    }
+
+    /**
+     * 使用指定的 ClassLoader 扫描，不做缓存，由调用方持有
+     */
+    public static <T> ProviderRegistry<T> load(Class<T> type, ClassLoader classLoader) {
+        return new ProviderRegistry<>(type, classLoader);
+    }
+
+    public Class<T> getType() {
+        return type;
+    }
+
+    /**
+     * 按名称获取实现，第一次获取时实例化
+     *
+     * @throws IllegalArgumentException 没有该名称的实现
+     */
+    public T get(String name) {
+        Provider<T> provider = byName.get(name);
+        if (provider == null) {
+            throw new IllegalArgumentException("没有名为 " + name + " 的 " + type.getName() + " 实现，可选：" + names());
+        }
+        return provider.get();
+    }
+
+    public boolean contains(String name) {
+        return byName.containsKey(name);
+    }
+
+    /**
+     * 所有名称（含 Dubbo 文件中的别名）
+     */
+    public Set<String> names() {
+        return byName.keySet();
+    }
+
+    /**
+     * 按 @Order 排序的全部实现，第一次调用时实例化全部
+     */
+    public List<T> getAll() {
+        List<T> result = all;
+        if (result == null) {
+            List<T> instances = new ArrayList<>(ordered.size());
+            for (Provider<T> provider : ordered) {
+                instances.add(provider.get());
+            }
+            result = Collections.unmodifiableList(instances);
+            all = result;
+        }
+        return result;
+    }
+
+    /**
+     * 优先级最高的实现，没有任何实现时返回 null
+     */
+    public T getFirst() {
+        return ordered.isEmpty() ? null : ordered.get(0).get();
+    }
+
+    public int size() {
+        return ordered.size();
+    }
+
+    private void loadDubbo(ClassLoader classLoader, Map<Class<?>, Provider<T>> byClass,
+            Map<String, Provider<T>> names) {
+        for (String directory : DUBBO_DIRECTORIES) {
+            Enumeration<URL> urls;
+            try {
+                urls = classLoader.getResources(directory + type.getName());
+            } catch (IOException e) {
+                throw new IllegalStateException("读取 " + directory + type.getName() + " 失败", e);
+            }
+            while (urls.hasMoreElements()) {
+                URL url = urls.nextElement();
+                for (Map.Entry<String, String> entry : readNamedClasses(url).entrySet()) {
+                    Class<? extends T> implementation = resolve(entry.getValue(), classLoader, url);
+                    if (implementation != null) {
+                        Provider<T> provider = byClass.computeIfAbsent(implementation,
+                                c -> new Provider<>(implementation, () -> BeanUtils.instantiateClass(implementation)));
+                        // 高优先级目录先读，同名的以先出现的为准
+                        names.putIfAbsent(entry.getKey(), provider);
+                    }
+                }
+            }
+        }
+    }
+
+    private void loadJdk(ClassLoader classLoader, Map<Class<?>, Provider<T>> byClass) {
+        Iterator<ServiceLoader.Provider<T>> iterator = ServiceLoader.load(type, classLoader).stream().iterator();
+        while (true) {
+            ServiceLoader.Provider<T> serviceProvider;
+            try {
+                if (!iterator.hasNext()) {
+                    break;
+                }
+                serviceProvider = iterator.next();
+            } catch (ServiceConfigurationError e) {
+                // 与其他来源一致：加载不了的实现跳过，迭代器会继续找下一个
+                System.err.println("[SPI] 跳过无法加载的实现：" + e.getMessage());
+                continue;
+            }
+            Class<? extends T> implementation = serviceProvider.type();
+            byClass.putIfAbsent(implementation, new Provider<>(implementation, serviceProvider));
+        }
+    }
+
+    private void loadSpringFactories(ClassLoader classLoader, Map<Class<?>, Provider<T>> byClass) {
+        for (String className : SpringFactoriesLoader.loadFactoryNames(type, classLoader)) {
+            Class<? extends T> implementation = resolve(className, classLoader, null);
+            if (implementation != null) {
+                byClass.computeIfAbsent(implementation,
+                        c -> new Provider<>(implementation, () -> BeanUtils.instantiateClass(implementation)));
+            }
+        }
+    }
+
+    /**
+     * 找不到的类跳过（对应的 jar 可能没有引入），类型不对属于配置错误，直接失败
+     */
+    private Class<? extends T> resolve(String className, ClassLoader classLoader, URL source) {
+        Class<?> implementation;
+        try {
+            implementation = ClassUtils.forName(className, classLoader);
+        } catch (ClassNotFoundException | LinkageError e) {
+            System.err.println("[SPI] 跳过无法加载的实现 " + className + (source != null ? "（" + source + "）" : "")
+                    + "：" + e);
+            return null;
+        }
+        if (!type.isAssignableFrom(implementation)) {
+            throw new IllegalStateException(className + " 没有实现 " + type.getName());
+        }
+        return implementation.asSubclass(type);
+    }
+
+    /**
+     * 读取 name=实现类 格式的文件，# 之后是注释；没有 name 的行用默认名称
+     */
+    private static Map<String, String> readNamedClasses(URL url) {
+        Map<String, String> result = new LinkedHashMap<>();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(url.openStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int comment = line.indexOf('#');
+                if (comment >= 0) {
+                    line = line.substring(0, comment);
+                }
+                line = line.trim();
+                if (line.isEmpty()) {
+                    continue;
+                }
+                int eq = line.indexOf('=');
+                String className = eq > 0 ? line.substring(eq + 1).trim() : line;
+                String name = eq > 0 ? line.substring(0, eq).trim() : defaultName(className);
+                result.putIfAbsent(name, className);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("读取 " + url + " 失败", e);
+        }
+        return result;
+    }
+
+    private static String defaultName(String className) {
+        return Introspector.decapitalize(ClassUtils.getShortName(className));
+    }
+
+    /**
+     * 一个实现类：名称、顺序在发现时确定，实例延迟创建
+     */
+    private static final class Provider<T> {
+        private final String name;
+        private final int order;
+        private final Supplier<? extends T> factory;
+        private volatile T instance;
+
+        Provider(Class<? extends T> implementation, Supplier<? extends T> factory) {
+            this.name = defaultName(implementation.getName());
+            this.order = OrderUtils.getOrder(implementation, Ordered.LOWEST_PRECEDENCE);
+            this.factory = factory;
+        }
+
+        T get() {
+            T result = instance;
+            if (result == null) {
+                synchronized (this) {
+                    result = instance;
+                    if (result == null) {
+                        result = factory.get();
+                        instance = result;
+                    }
+                }
+            }
+            return result;
+        }
+    }
+}
@@ -2,7 +2,16 @@ package priv.captain.spi;
 
 import org.junit.Test;
 
+import java.time.Duration;
+import java.util.List;
 import java.util.ServiceLoader;
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.stream.Stream;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * @description: spi测试
@@ -19,4 +28,121 @@ public class SPITest {
             search.searchDocuments("关键字").forEach(System.out::println);
         }
     }
+
+    @Test
+    public void testProviderRegistry(){
+        // 只在第一次调用时扫描 JDK SPI、spring.factories、META-INF/dubbo，之后都是读缓存
+        ProviderRegistry<Search> registry = ProviderRegistry.of(Search.class);
+        System.out.println("可用实现：" + registry.names());
+
+        // 按名称取，第一次取时才实例化，之后是同一个实例
+        Search es = registry.get("es");
+        System.out.println("单例：" + (es == registry.get("ESSearchImpl")));
+        es.searchDocuments("关键字").forEach(System.out::println);
+
+        // 全部实现按 @Order 排序，SpringSPISearchImpl 的 @Order(1) 排在最前
+        for (Search search : registry.getAll()){
+            search.searchDocuments("关键字").forEach(System.out::println);
+        }
+    }
+
+    @Test
+    public void testFederatedSearch(){
+        ExecutorService executor = Executors.newCachedThreadPool();
+        try {
+            // 第一次调用很慢、对冲请求很快的实现，模拟偶发的长尾
+            AtomicInteger calls = new AtomicInteger();
+            Search flaky = keyword -> {
+                sleep(calls.getAndIncrement() == 0 ? 500 : 20);
+                return List.of("es", "flaky");
+            };
+            Search slow = keyword -> {
+                sleep(2000);
+                return List.of("slow");
+            };
+            FederatedSearch search = FederatedSearch.builder(executor)
+                    .timeout(Duration.ofMillis(300))
+                    .addAll(ProviderRegistry.of(Search.class))
+                    .add("flaky", flaky, 1.0, Duration.ofMillis(300), Duration.ofMillis(50))
+                    .add("slow", slow)
+                    .build();
+            // 耗时约等于最慢实现的超时时间（300ms），slow 超时，返回部分结果；es 在两个实现中出现，合并后排在最前
+            FederatedSearch.FederatedResult result = search.search("关键字");
+            System.out.println(result);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testStreamingSearch() throws InterruptedException {
+        // 原生流式实现：每页现查现生成，共 100 万条，不会一次性放进内存
+        StreamingSearch bulk = (keyword, pageSizeHint) -> new SearchCursor() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < 1_000_000;
+            }
+
+            @Override
+            public List<String> nextPage() {
+                List<String> page = new ArrayList<>(pageSizeHint);
+                for (int i = 0; i < pageSizeHint && hasNext(); i++) {
+                    page.add(keyword + "-" + next++);
+                }
+                return page;
+            }
+
+            @Override
+            public void close() {
+                System.out.println("游标关闭，已生成 " + next + " 条");
+            }
+        };
+        // 同步拉取：只取前 3 条，只会生成第一页
+        try (Stream<String> stream = bulk.stream("doc", 500)) {
+            stream.limit(3).forEach(System.out::println);
+        }
+
+        // 旧的 List 实现通过适配器使用，订阅方每次只要 1 条
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        CountDownLatch completed = new CountDownLatch(1);
+        StreamingSearch.of(new ESSearchImpl()).publisher("关键字", 10, executor).subscribe(new Flow.Subscriber<String>() {
+            private Flow.Subscription subscription;
+
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                this.subscription = subscription;
+                subscription.request(1);
+            }
+
+            @Override
+            public void onNext(String item) {
+                System.out.println("收到：" + item);
+                subscription.request(1);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                throwable.printStackTrace();
+                completed.countDown();
+            }
+
+            @Override
+            public void onComplete() {
+                System.out.println("完成");
+                completed.countDown();
+            }
+        });
+        completed.await();
+        executor.shutdown();
+    }
+
+    private static void sleep(long millis){
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
 }
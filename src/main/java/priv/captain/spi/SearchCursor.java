@@ -0,0 +1,26 @@
+package priv.captain.spi;
+
+import java.util.List;
+
+/**
+ * 流式搜索的游标，按页拉取结果
+ * 说明：
+ * 1. 游标是有状态的：数据库实现可以持有 ResultSet，ES 实现可以持有 scroll id，只在被拉取时才取下一页。
+ * 2. 不是线程安全的，同一时刻只应有一个线程调用 nextPage。
+ * 3. 用完必须 close，提前放弃（如订阅被取消）时也会 close。
+ */
+public interface SearchCursor extends AutoCloseable {
+
+    /**
+     * 是否还有下一页
+     */
+    boolean hasNext();
+
+    /**
+     * 取下一页，大小由实现决定（尽量接近 open 时传入的 pageSizeHint），中间页可能为空
+     */
+    List<String> nextPage();
+
+    @Override
+    void close();
+}
@@ -0,0 +1,82 @@
+package priv.captain.spi;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Search 的流式版本：按页拉取结果，不需要先把全部结果放进一个 List
+ * 说明：
+ * 1. 实现只需提供 open，返回一个按页拉取的 SearchCursor；pageSizeHint 是建议的每页大小，实现可以按自身情况调整。
+ * 2. 同步消费用 stream：Stream 惰性拉取，下游 limit/findFirst 提前结束时不会再取后面的页，关闭 Stream 时关闭游标。
+ * 3. 异步消费用 publisher：Flow.Publisher 按订阅方 request(n) 的数量推送，需求不足时不取下一页（背压）。
+ * 4. 只实现了 Search 的旧实现用 of(search) 适配：结果仍由旧实现一次性生成，再按页切给下游。
+ */
+public interface StreamingSearch {
+
+    int DEFAULT_PAGE_SIZE = 100;
+
+    /**
+     * 打开游标，此时可以不执行查询，第一次 nextPage 时再查
+     */
+    SearchCursor open(String keyword, int pageSizeHint);
+
+    /**
+     * 惰性的结果流，使用完需要关闭（try-with-resources）
+     */
+    default Stream<String> stream(String keyword, int pageSizeHint) {
+        SearchCursor cursor = open(keyword, pageSizeHint);
+        Iterator<String> iterator = new Iterator<String>() {
+            private Iterator<String> page = Collections.emptyIterator();
+
+            @Override
+            public boolean hasNext() {
+                while (!page.hasNext()) {
+                    if (!cursor.hasNext()) {
+                        return false;
+                    }
+                    page = cursor.nextPage().iterator();
+                }
+                return true;
+            }
+
+            @Override
+            public String next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return page.next();
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED), false)
+                .onClose(cursor::close);
+    }
+
+    default Stream<String> stream(String keyword) {
+        return stream(keyword, DEFAULT_PAGE_SIZE);
+    }
+
+    /**
+     * 支持背压的发布者，每个订阅者各自打开一个游标，拉取和推送在 executor 中执行
+     */
+    default Flow.Publisher<String> publisher(String keyword, int pageSizeHint, Executor executor) {
+        return new CursorPublisher(() -> open(keyword, pageSizeHint), executor);
+    }
+
+    /**
+     * 把 Search 适配成 StreamingSearch；本身已经是 StreamingSearch 的直接返回
+     */
+    static StreamingSearch of(Search search) {
+        if (search instanceof StreamingSearch) {
+            return (StreamingSearch) search;
+        }
+        return (keyword, pageSizeHint) -> new ListSearchCursor(() -> search.searchDocuments(keyword),
+                Math.max(1, pageSizeHint));
+    }
+}
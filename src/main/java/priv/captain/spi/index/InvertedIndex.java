@@ -0,0 +1,335 @@
+package priv.captain.spi.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 内存倒排索引，支持 AND/OR 查询和 BM25 top-k 排序
+ * 说明：
+ * 1. 词典是 词 -> PostingList 的 HashMap，倒排列表用 delta + varint 压缩并带跳表，见 PostingList。
+ * 2. 查询语法：空白分隔的词之间是 AND，大写的 OR 分隔多个子句，例如 “java 并发 OR golang”；
+ *    每个词再经过分词器切分（中文一元切分），切出的词同样是 AND 关系。
+ * 3. 执行：逐文档（document-at-a-time）合并。每个子句按文档频率从小到大排列游标，最短的列表驱动其余列表 advance；
+ *    多个子句取当前最小的文档号，命中的子句中每个不同的词只计一次 BM25 分。
+ * 4. 排序：BM25（k1 = 1.2，b = 0.75），用 TopKCollector 的有界小顶堆取前 k 个。
+ * 5. 读写锁：add 持写锁，search 持读锁，可以一边追加文档一边查询。
+ */
+public final class InvertedIndex {
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final String OR = "OR";
+
+    private final Tokenizer tokenizer;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, PostingList> dictionary = new HashMap<>();
+    private final List<String> documents = new ArrayList<>();
+    private int[] lengths = new int[1024];
+    private long totalLength;
+
+    public InvertedIndex() {
+        this(Tokenizer.standard());
+    }
+
+    public InvertedIndex(Tokenizer tokenizer) {
+        this.tokenizer = tokenizer;
+    }
+
+    /**
+     * 加入一个文档
+     *
+     * @return 文档号，从 0 开始递增
+     */
+    public int add(String document) {
+        Map<String, int[]> frequencies = new LinkedHashMap<>();
+        int[] length = new int[1];
+        tokenizer.tokenize(document, token -> {
+            frequencies.computeIfAbsent(token, t -> new int[1])[0]++;
+            length[0]++;
+        });
+        lock.writeLock().lock();
+        try {
+            int doc = documents.size();
+            documents.add(document);
+            if (doc == lengths.length) {
+                lengths = Arrays.copyOf(lengths, doc + (doc >> 1));
+            }
+            lengths[doc] = length[0];
+            totalLength += length[0];
+            for (Map.Entry<String, int[]> entry : frequencies.entrySet()) {
+                dictionary.computeIfAbsent(entry.getKey(), t -> new PostingList()).add(doc, entry.getValue()[0]);
+            }
+            return doc;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void addAll(Iterable<String> documents) {
+        for (String document : documents) {
+            add(document);
+        }
+    }
+
+    public String document(int docId) {
+        lock.readLock().lock();
+        try {
+            return documents.get(docId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 词典中不同词的个数
+     */
+    public int termCount() {
+        lock.readLock().lock();
+        try {
+            return dictionary.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 全部倒排列表压缩后的字节数
+     */
+    public long postingBytes() {
+        lock.readLock().lock();
+        try {
+            long bytes = 0;
+            for (PostingList postings : dictionary.values()) {
+                bytes += postings.sizeInBytes();
+            }
+            return bytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 包含该词的文档数，词需要是分词后的形式
+     */
+    public int docFrequency(String term) {
+        lock.readLock().lock();
+        try {
+            PostingList postings = dictionary.get(term);
+            return postings == null ? 0 : postings.docFrequency();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 按 BM25 得分返回前 k 个命中
+     */
+    public List<SearchHit> search(String query, int k) {
+        if (k <= 0) {
+            throw new IllegalArgumentException("k 必须大于 0：" + k);
+        }
+        List<List<String>> clauses = parse(query);
+        lock.readLock().lock();
+        try {
+            if (documents.isEmpty()) {
+                return new ArrayList<>();
+            }
+            // 堆按 k 预分配数组，k 不会超过文档数（调用方传 Integer.MAX_VALUE 表示“全部”时也不会分配超大数组）
+            TopKCollector collector = new TopKCollector(Math.min(k, documents.size()));
+            execute(clauses, collector);
+            int size = collector.size();
+            double[] scores = new double[size];
+            int[] docs = new int[size];
+            collector.drainDescending(scores, docs);
+            List<SearchHit> hits = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                hits.add(new SearchHit(docs[i], scores[i], documents.get(docs[i])));
+            }
+            return hits;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 命中的文档总数（不排序）
+     */
+    public int count(String query) {
+        List<List<String>> clauses = parse(query);
+        lock.readLock().lock();
+        try {
+            TopKCollector collector = new TopKCollector(1);
+            execute(clauses, collector);
+            return collector.totalHits();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 解析成 OR 连接的子句，每个子句是 AND 连接的词
+     */
+    private List<List<String>> parse(String query) {
+        List<List<String>> clauses = new ArrayList<>();
+        List<String> current = new ArrayList<>();
+        for (String word : query.trim().split("\\s+")) {
+            if (OR.equals(word)) {
+                if (!current.isEmpty()) {
+                    clauses.add(current);
+                    current = new ArrayList<>();
+                }
+            } else {
+                for (String token : tokenizer.tokenize(word)) {
+                    if (!current.contains(token)) {
+                        current.add(token);
+                    }
+                }
+            }
+        }
+        if (!current.isEmpty()) {
+            clauses.add(current);
+        }
+        return clauses;
+    }
+
+    private void execute(List<List<String>> clauses, TopKCollector collector) {
+        int documentCount = documents.size();
+        if (documentCount == 0 || clauses.isEmpty()) {
+            return;
+        }
+        double averageLength = Math.max(1.0, (double) totalLength / documentCount);
+        // 查询中每个不同的词一个编号，同一个词出现在多个子句中只算一次分
+        Map<String, Integer> termIds = new HashMap<>();
+        List<Double> idfs = new ArrayList<>();
+        List<Conjunction> conjunctions = new ArrayList<>(clauses.size());
+        for (List<String> clause : clauses) {
+            List<PostingList> postings = new ArrayList<>(clause.size());
+            int[] ids = new int[clause.size()];
+            boolean matchable = true;
+            for (int i = 0; i < clause.size(); i++) {
+                String term = clause.get(i);
+                PostingList list = dictionary.get(term);
+                if (list == null) {
+                    matchable = false;
+                    break;
+                }
+                postings.add(list);
+                Integer id = termIds.get(term);
+                if (id == null) {
+                    id = termIds.size();
+                    termIds.put(term, id);
+                    idfs.add(idf(documentCount, list.docFrequency()));
+                }
+                ids[i] = id;
+            }
+            // 有词不在词典中，这个子句不可能命中
+            if (matchable) {
+                conjunctions.add(new Conjunction(postings, ids));
+            }
+        }
+        if (conjunctions.isEmpty()) {
+            return;
+        }
+        double[] idf = new double[idfs.size()];
+        for (int i = 0; i < idf.length; i++) {
+            idf[i] = idfs.get(i);
+        }
+        int[] scoredAt = new int[idf.length];
+        Arrays.fill(scoredAt, -1);
+
+        int[] current = new int[conjunctions.size()];
+        for (int i = 0; i < current.length; i++) {
+            current[i] = conjunctions.get(i).advance(0);
+        }
+        while (true) {
+            int doc = PostingList.NO_MORE_DOCS;
+            for (int candidate : current) {
+                doc = Math.min(doc, candidate);
+            }
+            if (doc == PostingList.NO_MORE_DOCS) {
+                return;
+            }
+            double norm = K1 * (1 - B + B * lengths[doc] / averageLength);
+            double score = 0;
+            for (int i = 0; i < current.length; i++) {
+                if (current[i] == doc) {
+                    Conjunction conjunction = conjunctions.get(i);
+                    for (int j = 0; j < conjunction.cursors.length; j++) {
+                        int termId = conjunction.termIds[j];
+                        if (scoredAt[termId] != doc) {
+                            scoredAt[termId] = doc;
+                            int tf = conjunction.cursors[j].frequency();
+                            score += idf[termId] * tf * (K1 + 1) / (tf + norm);
+                        }
+                    }
+                    current[i] = conjunction.advance(doc + 1);
+                }
+            }
+            collector.collect(doc, score);
+        }
+    }
+
+    private static double idf(int documentCount, int docFrequency) {
+        return Math.log(1 + (documentCount - docFrequency + 0.5) / (docFrequency + 0.5));
+    }
+
+    /**
+     * 一个 AND 子句：文档频率最小的游标驱动，其余游标跟进
+     */
+    private static final class Conjunction {
+        private final PostingList.Cursor[] cursors;
+        private final int[] termIds;
+
+        Conjunction(List<PostingList> postings, int[] ids) {
+            Integer[] order = new Integer[postings.size()];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> Integer.compare(postings.get(a).docFrequency(),
+                    postings.get(b).docFrequency()));
+            this.cursors = new PostingList.Cursor[order.length];
+            this.termIds = new int[order.length];
+            for (int i = 0; i < order.length; i++) {
+                cursors[i] = postings.get(order[i]).cursor();
+                termIds[i] = ids[order[i]];
+            }
+        }
+
+        /**
+         * 第一个 >= target 且包含全部词的文档
+         */
+        int advance(int target) {
+            int doc = cursors[0].advance(target);
+            int i = 1;
+            while (doc != PostingList.NO_MORE_DOCS && i < cursors.length) {
+                int other = cursors[i].advance(doc);
+                if (other == doc) {
+                    i++;
+                } else {
+                    doc = cursors[0].advance(other);
+                    i = 1;
+                }
+            }
+            return doc;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "InvertedIndex{documents=" + size() + ", terms=" + termCount() + "}";
+    }
+}
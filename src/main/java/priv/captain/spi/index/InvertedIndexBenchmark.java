@@ -0,0 +1,116 @@
+package priv.captain.spi.index;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * 倒排索引建索引与查询耗时
+ * 说明：
+ * 1. 合成 200 万条短文档：词从 5 万个英文词中按 Zipf 分布抽取（少数高频词、大量低频词），再混入几个汉字，每条 6~12 个词。
+ * 2. 查询分三类：两个中频词 AND、高频词 AND 低频词、两个词 OR，每类随机 1000 个，取 top 10，统计平均和 p99 耗时。
+ * 3. 先预热一轮再计时。
+ */
+public class InvertedIndexBenchmark {
+
+    private static final int DOCUMENTS = 2_000_000;
+    private static final int VOCABULARY = 50_000;
+    private static final int QUERIES = 1000;
+    private static final String HAN = "数据搜索索引并发线程缓存网络存储安全权限日志审计";
+
+    public static void main(String[] args) {
+        int documents = args.length > 0 ? Integer.parseInt(args[0]) : DOCUMENTS;
+        Random random = new Random(42);
+        String[] words = vocabulary(random);
+        double[] cumulative = zipf(VOCABULARY, 1.0);
+
+        InvertedIndex index = new InvertedIndex();
+        long start = System.nanoTime();
+        StringBuilder document = new StringBuilder();
+        for (int i = 0; i < documents; i++) {
+            document.setLength(0);
+            int length = 6 + random.nextInt(7);
+            for (int j = 0; j < length; j++) {
+                document.append(words[sample(cumulative, random)]).append(' ');
+            }
+            document.append(HAN.charAt(random.nextInt(HAN.length())));
+            index.add(document.toString());
+        }
+        long buildMillis = (System.nanoTime() - start) / 1_000_000;
+        System.out.printf("文档数：%d，词数：%d，倒排列表：%.1f MB，建索引：%d ms%n", index.size(), index.termCount(),
+                index.postingBytes() / 1024.0 / 1024.0, buildMillis);
+
+        String[][] queries = {
+                queries(words, random, 100, 1000, " "),
+                queries(words, random, 0, 20, " ", 5000, 20000),
+                queries(words, random, 100, 1000, " OR "),
+        };
+        String[] names = { "中频 AND 中频", "高频 AND 低频", "中频 OR 中频" };
+        for (String[] batch : queries) {
+            run(index, batch);
+        }
+        for (int i = 0; i < queries.length; i++) {
+            long[] nanos = run(index, queries[i]);
+            Arrays.sort(nanos);
+            System.out.printf("%-12s 平均 %7.1f us，p99 %7.1f us，示例 \"%s\" 命中 %d 条，top1：%s%n", names[i],
+                    Arrays.stream(nanos).average().orElse(0) / 1000, nanos[nanos.length * 99 / 100] / 1000.0,
+                    queries[i][0], index.count(queries[i][0]), index.search(queries[i][0], 1));
+        }
+    }
+
+    private static long[] run(InvertedIndex index, String[] queries) {
+        long[] nanos = new long[queries.length];
+        for (int i = 0; i < queries.length; i++) {
+            long start = System.nanoTime();
+            index.search(queries[i], 10);
+            nanos[i] = System.nanoTime() - start;
+        }
+        return nanos;
+    }
+
+    /**
+     * 第一个词取 [from, to) 名次，第二个词默认取同一范围，也可以单独指定
+     */
+    private static String[] queries(String[] words, Random random, int from, int to, String operator,
+            int... secondRange) {
+        int secondFrom = secondRange.length > 0 ? secondRange[0] : from;
+        int secondTo = secondRange.length > 0 ? secondRange[1] : to;
+        String[] queries = new String[QUERIES];
+        for (int i = 0; i < queries.length; i++) {
+            queries[i] = words[from + random.nextInt(to - from)] + operator
+                    + words[secondFrom + random.nextInt(secondTo - secondFrom)];
+        }
+        return queries;
+    }
+
+    private static String[] vocabulary(Random random) {
+        String[] words = new String[VOCABULARY];
+        for (int i = 0; i < words.length; i++) {
+            StringBuilder word = new StringBuilder();
+            int length = 3 + random.nextInt(6);
+            for (int j = 0; j < length; j++) {
+                word.append((char) ('a' + random.nextInt(26)));
+            }
+            // 加上编号保证不重复
+            words[i] = word.append(i).toString();
+        }
+        return words;
+    }
+
+    private static double[] zipf(int n, double exponent) {
+        double[] cumulative = new double[n];
+        double sum = 0;
+        for (int i = 0; i < n; i++) {
+            sum += 1 / Math.pow(i + 1, exponent);
+            cumulative[i] = sum;
+        }
+        for (int i = 0; i < n; i++) {
+            cumulative[i] /= sum;
+        }
+        return cumulative;
+    }
+
+    private static int sample(double[] cumulative, Random random) {
+        int index = Arrays.binarySearch(cumulative, random.nextDouble());
+        return Math.min(cumulative.length - 1, index >= 0 ? index : -index - 1);
+    }
+}
@@ -0,0 +1,156 @@
+package priv.captain.spi.index;
+
+import java.util.Arrays;
+
+/**
+ * 一个词的倒排列表：按文档号递增保存 (文档号, 词频)
+ * 说明：
+ * 1. 压缩：文档号存与上一个文档号的差值（delta），差值和词频都用 varint 编码，
+ *    常见词的差值很小，大多数 posting 只占 2 个字节。
+ * 2. 跳表：每 SKIP_INTERVAL 个 posting 记录一次（上一个文档号，字节偏移），advance 时先二分跳表再顺序解码，
+ *    AND 查询里短列表驱动长列表时不必解码长列表的全部内容。
+ * 3. 只能追加，文档号必须递增；写入由 InvertedIndex 的写锁保护，Cursor 创建时记下当时的长度，之后追加的内容对它不可见。
+ */
+final class PostingList {
+
+    static final int NO_MORE_DOCS = Integer.MAX_VALUE;
+    private static final int SKIP_INTERVAL = 64;
+
+    private byte[] data = new byte[8];
+    private int size;
+    private int count;
+    private int lastDoc = -1;
+    private int[] skipDocs = new int[0];
+    private int[] skipOffsets = new int[0];
+    private int skipCount;
+
+    void add(int doc, int frequency) {
+        if (doc <= lastDoc) {
+            throw new IllegalArgumentException("文档号必须递增：" + doc + " <= " + lastDoc);
+        }
+        if (count > 0 && count % SKIP_INTERVAL == 0) {
+            if (skipCount == skipDocs.length) {
+                skipDocs = Arrays.copyOf(skipDocs, Math.max(4, skipCount * 2));
+                skipOffsets = Arrays.copyOf(skipOffsets, skipDocs.length);
+            }
+            skipDocs[skipCount] = lastDoc;
+            skipOffsets[skipCount] = size;
+            skipCount++;
+        }
+        writeVarint(doc - lastDoc);
+        writeVarint(frequency);
+        lastDoc = doc;
+        count++;
+    }
+
+    /**
+     * 包含该词的文档数
+     */
+    int docFrequency() {
+        return count;
+    }
+
+    /**
+     * 压缩后的字节数
+     */
+    int sizeInBytes() {
+        return size + skipCount * 8;
+    }
+
+    Cursor cursor() {
+        return new Cursor(data, count, skipDocs, skipOffsets, skipCount);
+    }
+
+    private void writeVarint(int value) {
+        if (size + 5 > data.length) {
+            data = Arrays.copyOf(data, data.length + (data.length >> 1) + 5);
+        }
+        while ((value & ~0x7F) != 0) {
+            data[size++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        data[size++] = (byte) value;
+    }
+
+    /**
+     * 顺序读取倒排列表，doc() 初始为 -1
+     */
+    static final class Cursor {
+        private final byte[] data;
+        private final int count;
+        private final int[] skipDocs;
+        private final int[] skipOffsets;
+        private final int skipCount;
+        private int offset;
+        private int read;
+        private int doc = -1;
+        private int frequency;
+
+        private Cursor(byte[] data, int count, int[] skipDocs, int[] skipOffsets, int skipCount) {
+            this.data = data;
+            this.count = count;
+            this.skipDocs = skipDocs;
+            this.skipOffsets = skipOffsets;
+            this.skipCount = skipCount;
+        }
+
+        int doc() {
+            return doc;
+        }
+
+        int frequency() {
+            return frequency;
+        }
+
+        int next() {
+            if (read == count) {
+                return doc = NO_MORE_DOCS;
+            }
+            doc += readVarint();
+            frequency = readVarint();
+            read++;
+            return doc;
+        }
+
+        /**
+         * 移动到第一个 >= target 的文档
+         */
+        int advance(int target) {
+            if (doc >= target) {
+                return doc;
+            }
+            // 找最后一个 skipDocs[i] < target 的跳跃点，只往前跳
+            int low = 0;
+            int high = skipCount - 1;
+            int found = -1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (skipDocs[mid] < target) {
+                    found = mid;
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            if (found >= 0 && skipOffsets[found] > offset) {
+                offset = skipOffsets[found];
+                doc = skipDocs[found];
+                read = (found + 1) * SKIP_INTERVAL;
+            }
+            while (doc < target) {
+                next();
+            }
+            return doc;
+        }
+
+        private int readVarint() {
+            byte b = data[offset++];
+            int value = b & 0x7F;
+            for (int shift = 7; b < 0; shift += 7) {
+                b = data[offset++];
+                value |= (b & 0x7F) << shift;
+            }
+            return value;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package priv.captain.spi.index;
+
+/**
+ * 一条命中结果
+ */
+public final class SearchHit {
+
+    private final int docId;
+    private final double score;
+    private final String document;
+
+    SearchHit(int docId, double score, String document) {
+        this.docId = docId;
+        this.score = score;
+        this.document = document;
+    }
+
+    public int getDocId() {
+        return docId;
+    }
+
+    public double getScore() {
+        return score;
+    }
+
+    public String getDocument() {
+        return document;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("#%d(%.3f) %s", docId, score, document);
+    }
+}
@@ -0,0 +1,61 @@
+package priv.captain.spi.index;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Consumer;
+
+/**
+ * 分词器
+ * 说明：
+ * 1. standard()：连续的字母、数字组成一个词并转成小写；汉字等表意文字每个字单独成词（一元切分），
+ *    不依赖词典，“关键字”会切成“关”“键”“字”，查询时三个字同时出现才算命中。
+ * 2. 其余字符（空白、标点、符号）都是分隔符，超过 MAX_TOKEN_LENGTH 的词截断。
+ */
+@FunctionalInterface
+public interface Tokenizer {
+
+    int MAX_TOKEN_LENGTH = 64;
+
+    void tokenize(String text, Consumer<String> sink);
+
+    default List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        tokenize(text, tokens::add);
+        return tokens;
+    }
+
+    static Tokenizer standard() {
+        return Tokenizer::standardTokenize;
+    }
+
+    private static void standardTokenize(String text, Consumer<String> sink) {
+        int length = text.length();
+        int start = -1;
+        int i = 0;
+        while (i < length) {
+            int codePoint = text.codePointAt(i);
+            int next = i + Character.charCount(codePoint);
+            if (Character.isIdeographic(codePoint)) {
+                emit(text, start, i, sink);
+                start = -1;
+                sink.accept(text.substring(i, next));
+            } else if (Character.isLetterOrDigit(codePoint)) {
+                if (start < 0) {
+                    start = i;
+                }
+            } else {
+                emit(text, start, i, sink);
+                start = -1;
+            }
+            i = next;
+        }
+        emit(text, start, length, sink);
+    }
+
+    private static void emit(String text, int start, int end, Consumer<String> sink) {
+        if (start >= 0) {
+            sink.accept(text.substring(start, Math.min(end, start + MAX_TOKEN_LENGTH)).toLowerCase(Locale.ROOT));
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package priv.captain.spi.index;
+
+/**
+ * 取得分最高的 k 个文档
+ * 说明：
+ * 1. 用容量为 k 的小顶堆，堆顶是当前第 k 名；新文档不比堆顶好就直接丢弃，复杂度 O(n log k)，不需要对全部命中排序。
+ * 2. 得分和文档号分别存在 double[]、int[] 中，收集过程不分配对象。
+ * 3. 得分相同时文档号小的优先，结果稳定。
+ */
+final class TopKCollector {
+
+    private final int k;
+    private final double[] scores;
+    private final int[] docs;
+    private int size;
+    private int totalHits;
+
+    TopKCollector(int k) {
+        this.k = k;
+        this.scores = new double[k];
+        this.docs = new int[k];
+    }
+
+    void collect(int doc, double score) {
+        totalHits++;
+        if (size < k) {
+            scores[size] = score;
+            docs[size] = doc;
+            siftUp(size++);
+        } else if (better(score, doc, scores[0], docs[0])) {
+            scores[0] = score;
+            docs[0] = doc;
+            siftDown(0);
+        }
+    }
+
+    /**
+     * 当前第 k 名的得分，堆未满时为负无穷
+     */
+    double threshold() {
+        return size < k ? Double.NEGATIVE_INFINITY : scores[0];
+    }
+
+    int totalHits() {
+        return totalHits;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * 按得分从高到低依次取出，取出后收集器清空
+     */
+    void drainDescending(double[] outScores, int[] outDocs) {
+        for (int i = size - 1; i >= 0; i--) {
+            outScores[i] = scores[0];
+            outDocs[i] = docs[0];
+            size--;
+            scores[0] = scores[size];
+            docs[0] = docs[size];
+            siftDown(0);
+        }
+    }
+
+    private void siftUp(int index) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (!better(scores[parent], docs[parent], scores[index], docs[index])) {
+                break;
+            }
+            swap(index, parent);
+            index = parent;
+        }
+    }
+
+    private void siftDown(int index) {
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= size) {
+                return;
+            }
+            if (child + 1 < size && better(scores[child], docs[child], scores[child + 1], docs[child + 1])) {
+                child++;
+            }
+            if (!better(scores[index], docs[index], scores[child], docs[child])) {
+                return;
+            }
+            swap(index, child);
+            index = child;
+        }
+    }
+
+    private void swap(int i, int j) {
+        double score = scores[i];
+        scores[i] = scores[j];
+        scores[j] = score;
+        int doc = docs[i];
+        docs[i] = docs[j];
+        docs[j] = doc;
+    }
+
+    private static boolean better(double score, int doc, double otherScore, int otherDoc) {
+        return score > otherScore || (score == otherScore && doc < otherDoc);
+    }
+}
@@ -0,0 +1,129 @@
+package priv.captain.stream;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
+
+import priv.captain.io.FileRange;
+
+/**
+ * 按权重均衡拆分的 Spliterator，适用于分片索引这类每个元素工作量差别很大的数据（如不同大小的分片、文件区间）
+ * 说明：
+ * 1. 构造时计算权重的前缀和，拆分时二分查找权重的中点，而不是元素个数的中点：
+ *    例如 3 个 100 MB 的分片和 100 个 1 KB 的分片，按个数对半切会让一个任务拿到全部大分片。
+ * 2. 元素个数精确已知，SIZED | SUBSIZED；拆分后两半都至少有一个元素。
+ * 3. 权重不能为负，读取时不会再调用权重函数，列表构造后不能修改。
+ */
+public final class ChunkSpliterator<T> implements Spliterator<T> {
+
+    private static final int CHARACTERISTICS = ORDERED | SIZED | SUBSIZED | IMMUTABLE;
+
+    private final Object[] items;
+    /**
+     * prefix[i] 是前 i 个元素的权重之和
+     */
+    private final long[] prefix;
+    private int index;
+    private final int fence;
+
+    private ChunkSpliterator(Object[] items, long[] prefix, int index, int fence) {
+        this.items = items;
+        this.prefix = prefix;
+        this.index = index;
+        this.fence = fence;
+    }
+
+    public static <T> ChunkSpliterator<T> of(List<? extends T> chunks, ToLongFunction<? super T> weight) {
+        Objects.requireNonNull(weight, "weight");
+        Object[] items = chunks.toArray();
+        long[] prefix = new long[items.length + 1];
+        for (int i = 0; i < items.length; i++) {
+            @SuppressWarnings("unchecked")
+            long w = weight.applyAsLong((T) items[i]);
+            if (w < 0) {
+                throw new IllegalArgumentException("权重不能为负：" + items[i] + " -> " + w);
+            }
+            prefix[i + 1] = prefix[i] + w;
+        }
+        return new ChunkSpliterator<>(items, prefix, 0, items.length);
+    }
+
+    /**
+     * 文件区间按长度拆分
+     */
+    public static ChunkSpliterator<FileRange> ranges(List<FileRange> ranges) {
+        return of(ranges, FileRange::getLength);
+    }
+
+    @Override
+    public Spliterator<T> trySplit() {
+        int lo = index;
+        if (fence - lo < 2) {
+            return null;
+        }
+        long target = prefix[lo] + (prefix[fence] - prefix[lo]) / 2;
+        // 第一个前缀和 >= target 的位置，限制在 (lo, fence) 内保证两半都不为空
+        int mid = lowerBound(target, lo + 1, fence);
+        mid = Math.max(lo + 1, Math.min(fence - 1, mid));
+        index = mid;
+        return new ChunkSpliterator<>(items, prefix, lo, mid);
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super T> action) {
+        Objects.requireNonNull(action, "action");
+        if (index >= fence) {
+            return false;
+        }
+        @SuppressWarnings("unchecked")
+        T item = (T) items[index++];
+        action.accept(item);
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super T> action) {
+        Objects.requireNonNull(action, "action");
+        int i = index;
+        int hi = fence;
+        index = hi;
+        for (; i < hi; i++) {
+            @SuppressWarnings("unchecked")
+            T item = (T) items[i];
+            action.accept(item);
+        }
+    }
+
+    @Override
+    public long estimateSize() {
+        return fence - index;
+    }
+
+    /**
+     * 剩余元素的权重之和
+     */
+    public long remainingWeight() {
+        return prefix[fence] - prefix[index];
+    }
+
+    @Override
+    public int characteristics() {
+        return CHARACTERISTICS;
+    }
+
+    private int lowerBound(long target, int from, int to) {
+        int lo = from;
+        int hi = to;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (prefix[mid] < target) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+}
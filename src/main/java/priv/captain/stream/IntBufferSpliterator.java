@@ -0,0 +1,124 @@
+package priv.captain.stream;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+/**
+ * IntBuffer 上的 Spliterator.OfInt，可用于内存映射的定长 int 文件（如文档号列表、偏移量索引）和 int 数组
+ * 说明：
+ * 1. SIZED | SUBSIZED：元素个数精确已知，每次从正中间对半切，拆分出的两半也精确已知大小，并行流可以按大小均匀分配任务。
+ * 2. 只用绝对位置读取（get(int)），不改变 buffer 的 position，多个拆分出的 Spliterator 共享同一个 buffer 是安全的。
+ * 3. mapped 映射后立即关闭文件通道，映射在 buffer 被 GC 回收前一直有效；单个文件不能超过 2 GB。
+ */
+public final class IntBufferSpliterator implements Spliterator.OfInt {
+
+    private static final int CHARACTERISTICS = ORDERED | SIZED | SUBSIZED | IMMUTABLE | NONNULL;
+
+    private final IntBuffer buffer;
+    private int index;
+    private final int fence;
+
+    private IntBufferSpliterator(IntBuffer buffer, int index, int fence) {
+        this.buffer = buffer;
+        this.index = index;
+        this.fence = fence;
+    }
+
+    /**
+     * buffer 中 position 到 limit 之间的元素
+     */
+    public static IntBufferSpliterator of(IntBuffer buffer) {
+        Objects.requireNonNull(buffer, "buffer");
+        return new IntBufferSpliterator(buffer, buffer.position(), buffer.limit());
+    }
+
+    public static IntBufferSpliterator of(int[] values) {
+        return of(IntBuffer.wrap(values));
+    }
+
+    /**
+     * 把文件映射成 int 序列，文件长度必须是 4 的倍数
+     */
+    public static IntBufferSpliterator mapped(Path path, ByteOrder order) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size % Integer.BYTES != 0) {
+                throw new IllegalArgumentException("文件长度不是 4 的倍数：" + path + "，" + size + " 字节");
+            }
+            if (size > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("文件超过 2 GB：" + path);
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            return of(mapped.order(order).asIntBuffer());
+        }
+    }
+
+    @Override
+    public OfInt trySplit() {
+        int lo = index;
+        int mid = (lo + fence) >>> 1;
+        if (lo >= mid) {
+            return null;
+        }
+        index = mid;
+        return new IntBufferSpliterator(buffer, lo, mid);
+    }
+
+    @Override
+    public boolean tryAdvance(IntConsumer action) {
+        Objects.requireNonNull(action, "action");
+        if (index >= fence) {
+            return false;
+        }
+        action.accept(buffer.get(index++));
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining(IntConsumer action) {
+        Objects.requireNonNull(action, "action");
+        IntBuffer buffer = this.buffer;
+        int i = index;
+        int hi = fence;
+        index = hi;
+        for (; i < hi; i++) {
+            action.accept(buffer.get(i));
+        }
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super Integer> action) {
+        if (action instanceof IntConsumer) {
+            return tryAdvance((IntConsumer) action);
+        }
+        return tryAdvance((IntConsumer) action::accept);
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super Integer> action) {
+        if (action instanceof IntConsumer) {
+            forEachRemaining((IntConsumer) action);
+        } else {
+            forEachRemaining((IntConsumer) action::accept);
+        }
+    }
+
+    @Override
+    public long estimateSize() {
+        return fence - index;
+    }
+
+    @Override
+    public int characteristics() {
+        return CHARACTERISTICS;
+    }
+}
@@ -0,0 +1,211 @@
+package priv.captain.stream;
+
+import java.util.Arrays;
+
+/**
+ * int -> long 的开放寻址哈希表，用于分组计数/求和，不装箱
+ * 说明：
+ * 1. 键和值分别存放在 int[] 和 long[] 中，线性探测，负载因子 0.5，容量为 2 的幂；
+ *    HashMap<Integer, Long> 每个条目要一个 Node、一个 Integer、一个 Long，每次累加还会新建一个 Long。
+ * 2. 键 0 用作空槽标记，真正的键 0 单独存放。
+ * 3. 只支持累加（addTo）和读取，不支持删除，足够做聚合；不是线程安全的，并行流中每个线程一个实例，最后 addAll 合并。
+ */
+public final class IntLongHashMap {
+
+    /**
+     * 遍历条目的回调，避免 BiConsumer 装箱
+     */
+    @FunctionalInterface
+    public interface EntryConsumer {
+        void accept(int key, long value);
+    }
+
+    private static final int FREE = 0;
+
+    private int[] keys;
+    private long[] values;
+    private int mask;
+    private int size;
+    private boolean hasZeroKey;
+    private long zeroValue;
+
+    public IntLongHashMap() {
+        this(16);
+    }
+
+    public IntLongHashMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, expectedSize * 2 - 1)) << 1;
+        this.keys = new int[capacity];
+        this.values = new long[capacity];
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * 把 delta 加到键对应的值上，键不存在时视为 0
+     */
+    public void addTo(int key, long delta) {
+        if (key == FREE) {
+            if (!hasZeroKey) {
+                hasZeroKey = true;
+                size++;
+            }
+            zeroValue += delta;
+            return;
+        }
+        int index = hash(key) & mask;
+        while (true) {
+            int current = keys[index];
+            if (current == key) {
+                values[index] += delta;
+                return;
+            }
+            if (current == FREE) {
+                keys[index] = key;
+                values[index] = delta;
+                if (++size * 2 > keys.length) {
+                    rehash(keys.length << 1);
+                }
+                return;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    public void increment(int key) {
+        addTo(key, 1);
+    }
+
+    /**
+     * @return 键不存在时返回 0
+     */
+    public long get(int key) {
+        return getOrDefault(key, 0);
+    }
+
+    public long getOrDefault(int key, long defaultValue) {
+        if (key == FREE) {
+            return hasZeroKey ? zeroValue : defaultValue;
+        }
+        int index = hash(key) & mask;
+        while (true) {
+            int current = keys[index];
+            if (current == key) {
+                return values[index];
+            }
+            if (current == FREE) {
+                return defaultValue;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    public boolean containsKey(int key) {
+        if (key == FREE) {
+            return hasZeroKey;
+        }
+        int index = hash(key) & mask;
+        while (true) {
+            int current = keys[index];
+            if (current == key) {
+                return true;
+            }
+            if (current == FREE) {
+                return false;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    /**
+     * 把 other 的每个值累加进来
+     */
+    public IntLongHashMap addAll(IntLongHashMap other) {
+        other.forEach(this::addTo);
+        return this;
+    }
+
+    public void forEach(EntryConsumer action) {
+        if (hasZeroKey) {
+            action.accept(FREE, zeroValue);
+        }
+        int[] keys = this.keys;
+        long[] values = this.values;
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != FREE) {
+                action.accept(keys[i], values[i]);
+            }
+        }
+    }
+
+    /**
+     * 所有键，顺序不确定
+     */
+    public int[] keys() {
+        int[] result = new int[size];
+        int[] count = new int[1];
+        forEach((key, value) -> result[count[0]++] = key);
+        return result;
+    }
+
+    /**
+     * 所有值的和
+     */
+    public long total() {
+        long total = hasZeroKey ? zeroValue : 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != FREE) {
+                total += values[i];
+            }
+        }
+        return total;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        long[] oldValues = values;
+        keys = new int[capacity];
+        values = new long[capacity];
+        mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            int key = oldKeys[i];
+            if (key != FREE) {
+                int index = hash(key) & mask;
+                while (keys[index] != FREE) {
+                    index = (index + 1) & mask;
+                }
+                keys[index] = key;
+                values[index] = oldValues[i];
+            }
+        }
+    }
+
+    /**
+     * 乘法散列再混合高位，连续的键也能均匀分布
+     */
+    private static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    @Override
+    public String toString() {
+        int[] sorted = keys();
+        Arrays.sort(sorted);
+        StringBuilder builder = new StringBuilder("{");
+        for (int i = 0; i < sorted.length; i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            builder.append(sorted[i]).append('=').append(get(sorted[i]));
+        }
+        return builder.append('}').toString();
+    }
+}
@@ -0,0 +1,111 @@
+package priv.captain.stream;
+
+import java.util.Arrays;
+
+/**
+ * 固定分桶的直方图，同时记录个数、总和、最小值、最大值，全部是 long，不装箱
+ * 说明：
+ * 1. bounds 是升序的桶上界（包含），第 i 个桶统计 (bounds[i-1], bounds[i]] 内的值，最后多一个溢出桶统计大于最大上界的值。
+ * 2. 查找桶用二分查找，桶数很少时也可以接受。
+ * 3. 不是线程安全的，并行流中每个线程一个实例，最后 merge 合并，合并要求分桶相同。
+ */
+public final class LongHistogram {
+
+    private final long[] bounds;
+    private final long[] counts;
+    private long count;
+    private long sum;
+    private long min = Long.MAX_VALUE;
+    private long max = Long.MIN_VALUE;
+
+    public LongHistogram(long... bounds) {
+        for (int i = 1; i < bounds.length; i++) {
+            if (bounds[i] <= bounds[i - 1]) {
+                throw new IllegalArgumentException("桶上界必须严格递增：" + Arrays.toString(bounds));
+            }
+        }
+        this.bounds = bounds.clone();
+        this.counts = new long[bounds.length + 1];
+    }
+
+    public void add(long value) {
+        int index = Arrays.binarySearch(bounds, value);
+        counts[index >= 0 ? index : -index - 1]++;
+        count++;
+        sum += value;
+        if (value < min) {
+            min = value;
+        }
+        if (value > max) {
+            max = value;
+        }
+    }
+
+    public LongHistogram merge(LongHistogram other) {
+        if (!Arrays.equals(bounds, other.bounds)) {
+            throw new IllegalArgumentException("分桶不同，不能合并");
+        }
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        count += other.count;
+        sum += other.sum;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+        return this;
+    }
+
+    public long[] getBounds() {
+        return bounds.clone();
+    }
+
+    /**
+     * 每个桶的个数，长度比 bounds 多 1，最后一个是溢出桶
+     */
+    public long[] getCounts() {
+        return counts.clone();
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getSum() {
+        return sum;
+    }
+
+    /**
+     * 没有数据时返回 Long.MAX_VALUE
+     */
+    public long getMin() {
+        return min;
+    }
+
+    /**
+     * 没有数据时返回 Long.MIN_VALUE
+     */
+    public long getMax() {
+        return max;
+    }
+
+    public double getAverage() {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("LongHistogram{count=").append(count).append(", sum=").append(sum);
+        if (count > 0) {
+            builder.append(", min=").append(min).append(", max=").append(max);
+        }
+        builder.append(", buckets=[");
+        for (int i = 0; i < counts.length; i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            builder.append(i < bounds.length ? "<=" + bounds[i] : bounds.length == 0 ? "all" : ">" + bounds[i - 1])
+                    .append(':').append(counts[i]);
+        }
+        return builder.append("]}").toString();
+    }
+}
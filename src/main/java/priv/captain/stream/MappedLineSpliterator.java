@@ -0,0 +1,148 @@
+package priv.captain.stream;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * 按行读取内存映射文件的 Spliterator，可以并行处理大文本文件（日志、CSV 等）
+ * 说明：
+ * 1. 拆分：在当前字节区间的中点之后找到第一个换行符，在换行符后面切开，两半的字节数接近相等，每行只属于其中一半。
+ *    BufferedReader.lines() 的拆分是先读一批行到数组里，文件越大越不均匀；这里按字节对半切，不需要先读数据。
+ * 2. 区间小于 MIN_SPLIT_BYTES 时不再拆分，避免任务太碎。
+ * 3. 行数事先不知道，estimateSize 用开头 SAMPLE_BYTES 字节的平均行长估算，因此没有 SIZED 特性。
+ * 4. 行尾的 \n 和 \r\n 都会去掉，文件末尾没有换行符的最后一行也会返回；字符集必须是 ASCII 兼容的（UTF-8、GBK 等），
+ *    这样字节 '\n' 一定是换行符。
+ * 5. 映射后立即关闭文件通道，单个文件不能超过 2 GB。
+ */
+public final class MappedLineSpliterator implements Spliterator<String> {
+
+    static final int MIN_SPLIT_BYTES = 64 * 1024;
+    private static final int SAMPLE_BYTES = 64 * 1024;
+    private static final int CHARACTERISTICS = ORDERED | NONNULL | IMMUTABLE;
+
+    private final ByteBuffer buffer;
+    private final Charset charset;
+    private final double bytesPerLine;
+    private int position;
+    private final int fence;
+
+    private MappedLineSpliterator(ByteBuffer buffer, Charset charset, double bytesPerLine, int position,
+            int fence) {
+        this.buffer = buffer;
+        this.charset = charset;
+        this.bytesPerLine = bytesPerLine;
+        this.position = position;
+        this.fence = fence;
+    }
+
+    public static MappedLineSpliterator of(ByteBuffer buffer, Charset charset) {
+        Objects.requireNonNull(buffer, "buffer");
+        Objects.requireNonNull(charset, "charset");
+        // 复制一份，读取时修改的是副本的 position/limit，不影响调用方
+        ByteBuffer view = buffer.duplicate();
+        return new MappedLineSpliterator(view, charset, sampleBytesPerLine(view), view.position(), view.limit());
+    }
+
+    public static MappedLineSpliterator mapped(Path path) throws IOException {
+        return mapped(path, StandardCharsets.UTF_8);
+    }
+
+    public static MappedLineSpliterator mapped(Path path, Charset charset) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("文件超过 2 GB：" + path);
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            return of(mapped, charset);
+        }
+    }
+
+    @Override
+    public Spliterator<String> trySplit() {
+        int lo = position;
+        if (fence - lo < MIN_SPLIT_BYTES) {
+            return null;
+        }
+        int newline = indexOfNewline(lo + (fence - lo) / 2, fence);
+        if (newline < 0 || newline + 1 >= fence) {
+            return null;
+        }
+        position = newline + 1;
+        return new MappedLineSpliterator(buffer.duplicate(), charset, bytesPerLine, lo, position);
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super String> action) {
+        Objects.requireNonNull(action, "action");
+        if (position >= fence) {
+            return false;
+        }
+        action.accept(nextLine());
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super String> action) {
+        Objects.requireNonNull(action, "action");
+        while (position < fence) {
+            action.accept(nextLine());
+        }
+    }
+
+    @Override
+    public long estimateSize() {
+        return (long) Math.ceil((fence - position) / bytesPerLine);
+    }
+
+    @Override
+    public int characteristics() {
+        return CHARACTERISTICS;
+    }
+
+    private String nextLine() {
+        int newline = indexOfNewline(position, fence);
+        int end = newline < 0 ? fence : newline;
+        int next = newline < 0 ? fence : newline + 1;
+        if (end > position && buffer.get(end - 1) == '\r') {
+            end--;
+        }
+        byte[] bytes = new byte[end - position];
+        buffer.limit(end).position(position);
+        buffer.get(bytes);
+        // 绝对位置读取受 limit 限制，读完恢复
+        buffer.clear();
+        position = next;
+        return new String(bytes, charset);
+    }
+
+    private int indexOfNewline(int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (buffer.get(i) == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static double sampleBytesPerLine(ByteBuffer buffer) {
+        int from = buffer.position();
+        int to = Math.min(buffer.limit(), from + SAMPLE_BYTES);
+        int lines = 0;
+        for (int i = from; i < to; i++) {
+            if (buffer.get(i) == '\n') {
+                lines++;
+            }
+        }
+        return lines == 0 ? Math.max(1, to - from) : (double) (to - from) / lines;
+    }
+}
@@ -0,0 +1,168 @@
+package priv.captain.stream;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * K -> long 的开放寻址哈希表，用于按对象键（字符串、枚举等）分组计数/求和，值不装箱
+ * 说明：
+ * 1. 键存放在 Object[]、值存放在 long[] 中，线性探测，负载因子 0.5，容量为 2 的幂；
+ *    与 HashMap<K, Long> 相比，每个条目省掉一个 Node，每次累加不会新建 Long。
+ * 2. 键不能为 null，按 equals/hashCode 比较，hashCode 会再做一次高位混合。
+ * 3. 只支持累加和读取，不支持删除；不是线程安全的，并行流中每个线程一个实例，最后 addAll 合并。
+ */
+public final class ObjectLongHashMap<K> {
+
+    private Object[] keys;
+    private long[] values;
+    private int mask;
+    private int size;
+
+    public ObjectLongHashMap() {
+        this(16);
+    }
+
+    public ObjectLongHashMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, expectedSize * 2 - 1)) << 1;
+        this.keys = new Object[capacity];
+        this.values = new long[capacity];
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * 把 delta 加到键对应的值上，键不存在时视为 0
+     */
+    public void addTo(K key, long delta) {
+        Objects.requireNonNull(key, "key");
+        int index = hash(key) & mask;
+        while (true) {
+            Object current = keys[index];
+            if (current == null) {
+                keys[index] = key;
+                values[index] = delta;
+                if (++size * 2 > keys.length) {
+                    rehash(keys.length << 1);
+                }
+                return;
+            }
+            if (current == key || current.equals(key)) {
+                values[index] += delta;
+                return;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    public void increment(K key) {
+        addTo(key, 1);
+    }
+
+    /**
+     * @return 键不存在时返回 0
+     */
+    public long get(Object key) {
+        return getOrDefault(key, 0);
+    }
+
+    public long getOrDefault(Object key, long defaultValue) {
+        int index = indexOf(key);
+        return index < 0 ? defaultValue : values[index];
+    }
+
+    public boolean containsKey(Object key) {
+        return indexOf(key) >= 0;
+    }
+
+    /**
+     * 把 other 的每个值累加进来
+     */
+    public ObjectLongHashMap<K> addAll(ObjectLongHashMap<? extends K> other) {
+        Object[] otherKeys = other.keys;
+        long[] otherValues = other.values;
+        for (int i = 0; i < otherKeys.length; i++) {
+            if (otherKeys[i] != null) {
+                @SuppressWarnings("unchecked")
+                K key = (K) otherKeys[i];
+                addTo(key, otherValues[i]);
+            }
+        }
+        return this;
+    }
+
+    public void forEach(ObjLongConsumer<? super K> action) {
+        Object[] keys = this.keys;
+        long[] values = this.values;
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != null) {
+                @SuppressWarnings("unchecked")
+                K key = (K) keys[i];
+                action.accept(key, values[i]);
+            }
+        }
+    }
+
+    /**
+     * 转成普通 Map（会装箱），用于输出或对接已有接口
+     */
+    public Map<K, Long> toMap() {
+        Map<K, Long> map = new LinkedHashMap<>(size * 2);
+        forEach(map::put);
+        return map;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    private int indexOf(Object key) {
+        if (key == null) {
+            return -1;
+        }
+        int index = hash(key) & mask;
+        while (true) {
+            Object current = keys[index];
+            if (current == null) {
+                return -1;
+            }
+            if (current == key || current.equals(key)) {
+                return index;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    private void rehash(int capacity) {
+        Object[] oldKeys = keys;
+        long[] oldValues = values;
+        keys = new Object[capacity];
+        values = new long[capacity];
+        mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            Object key = oldKeys[i];
+            if (key != null) {
+                int index = hash(key) & mask;
+                while (keys[index] != null) {
+                    index = (index + 1) & mask;
+                }
+                keys[index] = key;
+                values[index] = oldValues[i];
+            }
+        }
+    }
+
+    private static int hash(Object key) {
+        int h = key.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    @Override
+    public String toString() {
+        return toMap().toString();
+    }
+}
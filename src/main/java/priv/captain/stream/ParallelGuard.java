@@ -0,0 +1,89 @@
+package priv.captain.stream;
+
+import java.util.Collection;
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * 根据数据量和单个元素的处理耗时决定用顺序流还是并行流
+ * 说明：
+ * 1. 并行流有固定开销：拆分任务、提交到 ForkJoinPool、合并结果，通常在几十微秒量级。
+ *    估算总工作量 = 元素个数 * 每个元素的耗时（纳秒），不低于 minParallelWorkNanos 才用并行流，否则顺序流更快。
+ * 2. 拆分质量：没有 SUBSIZED 特性的数据源（LinkedList、HashSet、Stream.iterate 等）拆分不均匀或拆分本身开销大，
+ *    工作量要求提高到 UNBALANCED_FACTOR 倍；元素个数未知（estimateSize 为 Long.MAX_VALUE）时一律顺序执行。
+ * 3. 单核（parallelism <= 1）时并行没有意义，一律顺序执行。
+ * 4. 与数据源无关的坑不在这里判断：limit/findFirst/sorted 等依赖顺序的操作在并行流上代价很高，
+ *    不需要顺序时先 unordered()，或改用 findAny。
+ */
+public final class ParallelGuard {
+
+    /**
+     * 拆分不均匀的数据源需要的工作量倍数
+     */
+    static final int UNBALANCED_FACTOR = 4;
+
+    private static final ParallelGuard DEFAULT = new ParallelGuard(100_000,
+            ForkJoinPool.getCommonPoolParallelism());
+
+    private final long minParallelWorkNanos;
+    private final int parallelism;
+
+    /**
+     * @param minParallelWorkNanos 使用并行流需要的最小总工作量，纳秒
+     * @param parallelism          并行度，一般取 ForkJoinPool 的并行度
+     */
+    public ParallelGuard(long minParallelWorkNanos, int parallelism) {
+        if (minParallelWorkNanos < 0 || parallelism <= 0) {
+            throw new IllegalArgumentException("minParallelWorkNanos 不能为负，parallelism 必须大于 0");
+        }
+        this.minParallelWorkNanos = minParallelWorkNanos;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * 默认实例：总工作量不低于 100 微秒，并行度取 commonPool 的并行度
+     */
+    public static ParallelGuard getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * @param nanosPerElement 处理单个元素的估计耗时，纳秒
+     */
+    public boolean shouldParallel(Spliterator<?> spliterator, long nanosPerElement) {
+        if (parallelism <= 1) {
+            return false;
+        }
+        long size = spliterator.estimateSize();
+        if (size == Long.MAX_VALUE || size < 2) {
+            return false;
+        }
+        double work = (double) size * Math.max(1, nanosPerElement);
+        double required = spliterator.hasCharacteristics(Spliterator.SUBSIZED) ? minParallelWorkNanos
+                : (double) minParallelWorkNanos * UNBALANCED_FACTOR;
+        return work >= required;
+    }
+
+    public <T> Stream<T> stream(Spliterator<T> spliterator, long nanosPerElement) {
+        return StreamSupport.stream(spliterator, shouldParallel(spliterator, nanosPerElement));
+    }
+
+    public <T> Stream<T> stream(Collection<T> collection, long nanosPerElement) {
+        return stream(collection.spliterator(), nanosPerElement);
+    }
+
+    public IntStream intStream(Spliterator.OfInt spliterator, long nanosPerElement) {
+        return StreamSupport.intStream(spliterator, shouldParallel(spliterator, nanosPerElement));
+    }
+
+    public long getMinParallelWorkNanos() {
+        return minParallelWorkNanos;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+}
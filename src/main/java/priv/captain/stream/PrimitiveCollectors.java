@@ -0,0 +1,187 @@
+package priv.captain.stream;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collector;
+
+/**
+ * 不装箱的收集器，用于分组计数/求和、统计、直方图、top-k
+ * 说明：
+ * 1. groupingBy(key, counting()) 每个元素都要装箱键、每次累加都新建一个 Long，还要为每个分组建 HashMap.Node；
+ *    这里分组结果放在 IntLongHashMap / ObjectLongHashMap 中，键和值都存放在数组里，累加只是数组元素 +=。
+ * 2. stats/histogram 返回 LongHistogram（个数、总和、最小、最大、分桶计数）；
+ *    只要总和或 LongSummaryStatistics 时 JDK 的 summingLong/summarizingLong 本身不装箱，直接用即可。
+ * 3. topK 用大小为 k 的小顶堆（分数放在 long[] 中），内存 O(k)，不需要 sorted().limit(k) 那样先收集并排序全部元素。
+ * 4. 都可以用于并行流：每个线程一个累加容器，combiner 合并；分组结果没有顺序（UNORDERED）。
+ */
+public final class PrimitiveCollectors {
+
+    private PrimitiveCollectors() {
+    }
+
+    /**
+     * 按 int 键分组计数
+     */
+    public static <T> Collector<T, ?, IntLongHashMap> groupingCountingInt(ToIntFunction<? super T> key) {
+        Objects.requireNonNull(key, "key");
+        return Collector.of(IntLongHashMap::new, (map, t) -> map.addTo(key.applyAsInt(t), 1), IntLongHashMap::addAll,
+                Collector.Characteristics.IDENTITY_FINISH, Collector.Characteristics.UNORDERED);
+    }
+
+    /**
+     * 按 int 键分组求和
+     */
+    public static <T> Collector<T, ?, IntLongHashMap> groupingSummingInt(ToIntFunction<? super T> key,
+            ToLongFunction<? super T> value) {
+        Objects.requireNonNull(key, "key");
+        Objects.requireNonNull(value, "value");
+        return Collector.of(IntLongHashMap::new, (map, t) -> map.addTo(key.applyAsInt(t), value.applyAsLong(t)),
+                IntLongHashMap::addAll, Collector.Characteristics.IDENTITY_FINISH,
+                Collector.Characteristics.UNORDERED);
+    }
+
+    /**
+     * 按对象键分组计数
+     */
+    public static <T, K> Collector<T, ?, ObjectLongHashMap<K>> groupingCounting(
+            Function<? super T, ? extends K> key) {
+        Objects.requireNonNull(key, "key");
+        return Collector.of(ObjectLongHashMap<K>::new, (map, t) -> map.addTo(key.apply(t), 1),
+                ObjectLongHashMap::addAll, Collector.Characteristics.IDENTITY_FINISH,
+                Collector.Characteristics.UNORDERED);
+    }
+
+    /**
+     * 按对象键分组求和
+     */
+    public static <T, K> Collector<T, ?, ObjectLongHashMap<K>> groupingSumming(Function<? super T, ? extends K> key,
+            ToLongFunction<? super T> value) {
+        Objects.requireNonNull(key, "key");
+        Objects.requireNonNull(value, "value");
+        return Collector.of(ObjectLongHashMap<K>::new, (map, t) -> map.addTo(key.apply(t), value.applyAsLong(t)),
+                ObjectLongHashMap::addAll, Collector.Characteristics.IDENTITY_FINISH,
+                Collector.Characteristics.UNORDERED);
+    }
+
+    /**
+     * 个数、总和、最小、最大
+     */
+    public static <T> Collector<T, ?, LongHistogram> stats(ToLongFunction<? super T> value) {
+        return histogram(value);
+    }
+
+    /**
+     * 分桶直方图，bounds 是升序的桶上界
+     */
+    public static <T> Collector<T, ?, LongHistogram> histogram(ToLongFunction<? super T> value, long... bounds) {
+        Objects.requireNonNull(value, "value");
+        long[] copy = bounds.clone();
+        // 先构造一次，分桶不合法时立即报错，而不是等到流执行
+        new LongHistogram(copy);
+        return Collector.of(() -> new LongHistogram(copy), (histogram, t) -> histogram.add(value.applyAsLong(t)),
+                LongHistogram::merge, Collector.Characteristics.IDENTITY_FINISH,
+                Collector.Characteristics.UNORDERED);
+    }
+
+    /**
+     * 分数最高的 k 个元素，按分数从高到低排列；分数相同时先后不确定
+     */
+    public static <T> Collector<T, ?, List<T>> topK(int k, ToLongFunction<? super T> score) {
+        if (k <= 0) {
+            throw new IllegalArgumentException("k 必须大于 0：" + k);
+        }
+        Objects.requireNonNull(score, "score");
+        return Collector.of(() -> new TopK<T>(k), (top, t) -> top.offer(score.applyAsLong(t), t), TopK::merge,
+                TopK::toList, Collector.Characteristics.UNORDERED);
+    }
+
+    /**
+     * 有界小顶堆，堆顶是当前第 k 大的分数，新元素分数不超过堆顶时直接丢弃
+     */
+    static final class TopK<T> {
+        private final long[] scores;
+        private final Object[] items;
+        private int size;
+
+        TopK(int k) {
+            this.scores = new long[k];
+            this.items = new Object[k];
+        }
+
+        void offer(long score, T item) {
+            if (size < scores.length) {
+                int i = size++;
+                // 上浮
+                while (i > 0) {
+                    int parent = (i - 1) >>> 1;
+                    if (scores[parent] <= score) {
+                        break;
+                    }
+                    scores[i] = scores[parent];
+                    items[i] = items[parent];
+                    i = parent;
+                }
+                scores[i] = score;
+                items[i] = item;
+            } else if (score > scores[0]) {
+                siftDown(score, item);
+            }
+        }
+
+        TopK<T> merge(TopK<T> other) {
+            for (int i = 0; i < other.size; i++) {
+                @SuppressWarnings("unchecked")
+                T item = (T) other.items[i];
+                offer(other.scores[i], item);
+            }
+            return this;
+        }
+
+        List<T> toList() {
+            // 依次弹出堆顶（最小值），倒序得到从高到低
+            List<T> result = new ArrayList<>(size);
+            while (size > 0) {
+                @SuppressWarnings("unchecked")
+                T top = (T) items[0];
+                result.add(top);
+                int last = --size;
+                long score = scores[last];
+                Object item = items[last];
+                items[last] = null;
+                if (last > 0) {
+                    siftDown(score, item);
+                }
+            }
+            Collections.reverse(result);
+            return result;
+        }
+
+        /**
+         * 用 (score, item) 替换堆顶并下沉
+         */
+        private void siftDown(long score, Object item) {
+            int i = 0;
+            int half = size >>> 1;
+            while (i < half) {
+                int child = 2 * i + 1;
+                int right = child + 1;
+                if (right < size && scores[right] < scores[child]) {
+                    child = right;
+                }
+                if (score <= scores[child]) {
+                    break;
+                }
+                scores[i] = scores[child];
+                items[i] = items[child];
+                i = child;
+            }
+            scores[i] = score;
+            items[i] = item;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package priv.captain.stream;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * PrimitiveCollectors 与 JDK Collectors 的耗时和内存分配对比
+ * 说明：
+ * 1. 合成 200 万条订单：类目（1000 个 int）、地区（20 个字符串）、金额（long）。
+ * 2. 对比四组：按类目计数、按地区求和金额、金额直方图（JDK 用 groupingBy 分桶计数）、金额 top 10（JDK 用 sorted().limit()）。
+ * 3. 顺序流，每组跑 ROUNDS 轮取最快一轮；分配字节数用 com.sun.management.ThreadMXBean 统计当前线程，
+ *    不支持时显示 -1。分配越少，报表任务的 GC 压力越小。
+ */
+public class PrimitiveCollectorsBenchmark {
+
+    private static final int ORDERS = 2_000_000;
+    private static final int CATEGORIES = 1000;
+    private static final int ROUNDS = 5;
+    private static final long[] BOUNDS = { 10, 100, 1_000, 10_000, 100_000 };
+
+    private static final class Order {
+        final int category;
+        final String region;
+        final long amount;
+
+        Order(int category, String region, long amount) {
+            this.category = category;
+            this.region = region;
+            this.amount = amount;
+        }
+    }
+
+    private static volatile Object sink;
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : ORDERS;
+        Random random = new Random(42);
+        String[] regions = new String[20];
+        for (int i = 0; i < regions.length; i++) {
+            regions[i] = "region-" + i;
+        }
+        Order[] orders = new Order[count];
+        for (int i = 0; i < count; i++) {
+            orders[i] = new Order(random.nextInt(CATEGORIES), regions[random.nextInt(regions.length)],
+                    (long) Math.exp(random.nextDouble() * 12));
+        }
+        List<Order> list = Arrays.asList(orders);
+
+        compare("按类目计数",
+                () -> list.stream().collect(Collectors.groupingBy(o -> o.category, Collectors.counting())),
+                () -> list.stream().collect(PrimitiveCollectors.groupingCountingInt(o -> o.category)));
+        compare("按地区求和",
+                () -> list.stream().collect(Collectors.groupingBy(o -> o.region, Collectors.summingLong(o -> o.amount))),
+                () -> list.stream().collect(PrimitiveCollectors.groupingSumming(o -> o.region, o -> o.amount)));
+        compare("金额直方图",
+                () -> list.stream().collect(Collectors.groupingBy(o -> bucket(o.amount), Collectors.counting())),
+                () -> list.stream().collect(PrimitiveCollectors.histogram(o -> o.amount, BOUNDS)));
+        compare("金额 top 10",
+                () -> list.stream().sorted(Comparator.comparingLong((Order o) -> o.amount).reversed()).limit(10)
+                        .collect(Collectors.toList()),
+                () -> list.stream().collect(PrimitiveCollectors.topK(10, o -> o.amount)));
+
+        Map<Integer, Long> jdk = list.stream().collect(Collectors.groupingBy(o -> o.category, Collectors.counting()));
+        IntLongHashMap primitive = list.stream().collect(PrimitiveCollectors.groupingCountingInt(o -> o.category));
+        boolean same = jdk.size() == primitive.size();
+        for (Map.Entry<Integer, Long> entry : jdk.entrySet()) {
+            same &= primitive.get(entry.getKey()) == entry.getValue();
+        }
+        System.out.println("结果一致：" + same + "，" + list.stream().collect(PrimitiveCollectors.histogram(o -> o.amount,
+                BOUNDS)));
+    }
+
+    private static void compare(String name, Supplier<Object> jdk, Supplier<Object> primitive) {
+        long[] jdkResult = measure(jdk);
+        long[] primitiveResult = measure(primitive);
+        System.out.printf("%-10s JDK %7.1f ms %9.1f MB | Primitive %7.1f ms %9.1f MB%n", name,
+                jdkResult[0] / 1e6, jdkResult[1] / 1024.0 / 1024.0, primitiveResult[0] / 1e6,
+                primitiveResult[1] / 1024.0 / 1024.0);
+    }
+
+    /**
+     * @return { 最快一轮的纳秒数, 该轮分配的字节数 }
+     */
+    private static long[] measure(Supplier<Object> task) {
+        long bestNanos = Long.MAX_VALUE;
+        long bestBytes = -1;
+        for (int i = 0; i < ROUNDS; i++) {
+            long bytes = allocatedBytes();
+            long start = System.nanoTime();
+            sink = task.get();
+            long nanos = System.nanoTime() - start;
+            bytes = bytes < 0 ? -1 : allocatedBytes() - bytes;
+            if (nanos < bestNanos) {
+                bestNanos = nanos;
+                bestBytes = bytes;
+            }
+        }
+        return new long[] { bestNanos, bestBytes };
+    }
+
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    private static int bucket(long amount) {
+        int index = Arrays.binarySearch(BOUNDS, amount);
+        return index >= 0 ? index : -index - 1;
+    }
+}
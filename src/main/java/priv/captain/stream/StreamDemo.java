@@ -1,17 +1,28 @@
 package priv.captain.stream;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
+import priv.captain.io.FileRange;
+
 public class StreamDemo {
 
-	public static void main(String[] args) {
-		
+	public static void main(String[] args) throws IOException {
+
 		List<String> list = new ArrayList<String>();
-		list.add("11");	
-		list.add("12");	
-		list.add("13");	
+		list.add("11");
+		list.add("12");
+		list.add("13");
 		list.add("14");
 		/***
 		 * 注意，流只能作一次有运算
@@ -23,9 +34,72 @@ public class StreamDemo {
 		 * 收集》》》Collectors类提供静态方法将流转换成list Set等
 		 */
 		//获取一个并行流list.parallelStream(),顺序流list.stream()
-		Stream<String> stream = list.parallelStream();
-		
-		//filter 过滤数据,limit 限制数量,forEach 遍历数据 
+		//4个元素用并行流只有开销，limit在并行流上还要维护顺序，代价更高；交给ParallelGuard判断，这里会选顺序流
+		Stream<String> stream = ParallelGuard.getDefault().stream(list, 10);
+
+		//filter 过滤数据,limit 限制数量,forEach 遍历数据
 		stream.filter((p) ->p.equals("11")).limit(2).forEach(System.out::println);
+
+		spliteratorDemo();
+		streamPoolDemo();
+	}
+
+	/**
+	 * 批量分析放到专用ForkJoinPool，不占用commonPool；舱壁限制同时只跑2条流水线
+	 */
+	private static void streamPoolDemo() {
+		try (StreamPool analytics = StreamPool.builder("analytics").parallelism(4).maxConcurrent(2)
+				.acquireTimeout(Duration.ofSeconds(1)).build()) {
+			long sum = analytics.invoke(() -> IntStream.range(0, 10_000_000).parallel()
+					.filter(i -> i % 3 == 0).asLongStream().sum());
+			System.out.println("analytics池求和：" + sum + "，" + analytics.stats());
+		}
+	}
+
+	/**
+	 * 自定义Spliterator：拆分均匀的数据源并行流才有收益
+	 */
+	private static void spliteratorDemo() throws IOException {
+		ParallelGuard guard = ParallelGuard.getDefault();
+
+		//1.定长int文件：SIZED|SUBSIZED，对半拆分
+		Path intFile = Files.createTempFile("ints", ".bin");
+		Path lineFile = Files.createTempFile("lines", ".txt");
+		try {
+			ByteBuffer ints = ByteBuffer.allocate(1_000_000 * Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+			IntStream.range(0, 1_000_000).forEach(ints::putInt);
+			Files.write(intFile, ints.array());
+			IntBufferSpliterator spliterator = IntBufferSpliterator.mapped(intFile, ByteOrder.LITTLE_ENDIAN);
+			System.out.println("int文件求和，并行：" + guard.shouldParallel(spliterator, 1) + "，结果："
+					+ guard.intStream(spliterator, 1).asLongStream().sum());
+
+			//2.文本文件按行：在字节中点后的换行处拆分
+			StringBuilder text = new StringBuilder();
+			for (int i = 0; i < 200_000; i++) {
+				text.append("line-").append(i).append(i % 10 == 0 ? " ERROR" : " INFO").append('\n');
+			}
+			Files.write(lineFile, text.toString().getBytes(StandardCharsets.UTF_8));
+			long errors = guard.stream(MappedLineSpliterator.mapped(lineFile), 200)
+					.filter(line -> line.endsWith("ERROR")).count();
+			System.out.println("ERROR行数：" + errors);
+		} finally {
+			Files.deleteIfExists(intFile);
+			Files.deleteIfExists(lineFile);
+		}
+
+		//3.大小悬殊的分片：按长度均衡拆分，而不是按个数
+		List<FileRange> ranges = new ArrayList<>();
+		long position = 0;
+		for (int i = 0; i < 100; i++) {
+			int length = i < 3 ? 100 * 1024 * 1024 : 1024;
+			ranges.add(FileRange.of(position, length));
+			position += length;
+		}
+		ChunkSpliterator<FileRange> chunks = ChunkSpliterator.ranges(ranges);
+		ChunkSpliterator<FileRange> prefix = (ChunkSpliterator<FileRange>) chunks.trySplit();
+		System.out.println("拆分后：前一半" + prefix.estimateSize() + "个分片" + prefix.remainingWeight() + "字节，后一半"
+				+ chunks.estimateSize() + "个分片" + chunks.remainingWeight() + "字节");
+		System.out.println("分片总长：" + guard.stream(ChunkSpliterator.ranges(ranges), 1_000_000)
+				.collect(Collectors.summingLong(FileRange::getLength)));
 	}
 }
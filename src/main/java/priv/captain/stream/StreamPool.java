@@ -0,0 +1,384 @@
+package priv.captain.stream;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 在指定的 ForkJoinPool 中执行并行流，与 commonPool 隔离
+ * 说明：
+ * 1. 并行流的终结操作在哪个 ForkJoinPool 的工作线程里调用，拆分出的子任务就提交到哪个池；
+ *    所以把整个流水线（包括终结操作）作为任务提交到专用池，就不会占用 commonPool，
+ *    也不会拖慢其他 parallelStream 和没有指定线程池的 CompletableFuture.xxxAsync。
+ * 2. 池可以自己创建（按名字注册，线程名 stream-{name}-worker-N，守护线程），也可以传入调用方已有的池（close 时不会关闭它）。
+ * 3. 舱壁（bulkhead）：用 Semaphore 限制同时执行的流水线个数，超过时最多等 acquireTimeout，仍拿不到许可就抛 RejectedExecutionException，
+ *    批量分析任务排队或失败，不会把池占满让请求处理路径上的任务等待。
+ * 4. 指标：池的窃取次数、队列中的任务数、活跃线程数，以及流水线的提交、完成、失败、拒绝次数，见 stats()。
+ * 5. 在流水线里不要做阻塞 IO，阻塞会占住工作线程；需要时用 ForkJoinPool.managedBlock。
+ */
+public final class StreamPool implements AutoCloseable {
+
+    private static final Map<String, StreamPool> REGISTRY = new ConcurrentHashMap<>();
+
+    private final String name;
+    private final ForkJoinPool pool;
+    private final boolean ownsPool;
+    private final int maxConcurrent;
+    private final Semaphore bulkhead;
+    private final long acquireTimeoutNanos;
+    private final ParallelGuard guard;
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    private StreamPool(Builder builder) {
+        this.name = builder.name;
+        this.ownsPool = builder.pool == null;
+        this.pool = ownsPool ? new ForkJoinPool(builder.parallelism, new NamedThreadFactory(builder.name), null, false)
+                : builder.pool;
+        this.maxConcurrent = builder.maxConcurrent;
+        this.bulkhead = new Semaphore(builder.maxConcurrent, true);
+        this.acquireTimeoutNanos = builder.acquireTimeout.toNanos();
+        this.guard = new ParallelGuard(ParallelGuard.getDefault().getMinParallelWorkNanos(), pool.getParallelism());
+    }
+
+    public static Builder builder(String name) {
+        return new Builder(name);
+    }
+
+    /**
+     * 按名字查找已创建的池，不存在时返回 null
+     */
+    public static StreamPool get(String name) {
+        return REGISTRY.get(name);
+    }
+
+    /**
+     * 在池中执行流水线并等待结果，流水线内的并行流都在这个池里执行
+     *
+     * @throws RejectedExecutionException 舱壁已满且等待超时，或池已关闭
+     */
+    public <R> R invoke(Supplier<R> pipeline) {
+        Objects.requireNonNull(pipeline, "pipeline");
+        acquire();
+        try {
+            ForkJoinTask<R> task = pool.submit(() -> pipeline.get());
+            return join(task);
+        } finally {
+            bulkhead.release();
+        }
+    }
+
+    public void run(Runnable pipeline) {
+        Objects.requireNonNull(pipeline, "pipeline");
+        invoke(() -> {
+            pipeline.run();
+            return null;
+        });
+    }
+
+    /**
+     * 异步执行，许可在调用线程中获取（可能等待 acquireTimeout），流水线结束后释放
+     */
+    public <R> CompletableFuture<R> invokeAsync(Supplier<R> pipeline) {
+        Objects.requireNonNull(pipeline, "pipeline");
+        acquire();
+        CompletableFuture<R> future;
+        try {
+            future = CompletableFuture.supplyAsync(pipeline, pool);
+        } catch (RuntimeException e) {
+            bulkhead.release();
+            failed.increment();
+            throw e;
+        }
+        return future.whenComplete((result, error) -> {
+            bulkhead.release();
+            if (error == null) {
+                completed.increment();
+            } else {
+                failed.increment();
+            }
+        });
+    }
+
+    /**
+     * 按本池并行度判断顺序/并行的 ParallelGuard
+     */
+    public ParallelGuard guard() {
+        return guard;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 底层 ForkJoinPool，可以作为 CompletableFuture 的 executor，但不受舱壁限制
+     */
+    public ForkJoinPool getPool() {
+        return pool;
+    }
+
+    public Stats stats() {
+        return new Stats(name, pool.getParallelism(), pool.getPoolSize(), pool.getActiveThreadCount(),
+                pool.getStealCount(), pool.getQueuedTaskCount(), pool.getQueuedSubmissionCount(),
+                maxConcurrent - bulkhead.availablePermits(), bulkhead.getQueueLength(), submitted.sum(),
+                completed.sum(), failed.sum(), rejected.sum());
+    }
+
+    /**
+     * 从注册表移除；自己创建的池会 shutdown，调用方传入的池不受影响
+     */
+    @Override
+    public void close() {
+        REGISTRY.remove(name, this);
+        if (ownsPool) {
+            pool.shutdown();
+        }
+    }
+
+    private void acquire() {
+        boolean acquired;
+        try {
+            acquired = bulkhead.tryAcquire(acquireTimeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            rejected.increment();
+            throw new RejectedExecutionException("等待流水线许可时被中断：" + name, e);
+        }
+        if (!acquired) {
+            rejected.increment();
+            throw new RejectedExecutionException("流水线并发已达上限 " + maxConcurrent + "：" + name);
+        }
+        submitted.increment();
+    }
+
+    private <R> R join(ForkJoinTask<R> task) {
+        try {
+            R result = task.get();
+            completed.increment();
+            return result;
+        } catch (InterruptedException e) {
+            task.cancel(true);
+            Thread.currentThread().interrupt();
+            failed.increment();
+            throw new IllegalStateException("等待流水线结果时被中断：" + name, e);
+        } catch (ExecutionException e) {
+            failed.increment();
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    private static final class NamedThreadFactory implements ForkJoinPool.ForkJoinWorkerThreadFactory {
+        private final String prefix;
+        private final AtomicInteger sequence = new AtomicInteger();
+
+        NamedThreadFactory(String name) {
+            this.prefix = "stream-" + name + "-worker-";
+        }
+
+        @Override
+        public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName(prefix + sequence.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+    public static final class Builder {
+        private final String name;
+        private int parallelism = Runtime.getRuntime().availableProcessors();
+        private ForkJoinPool pool;
+        private int maxConcurrent = Integer.MAX_VALUE;
+        private Duration acquireTimeout = Duration.ZERO;
+
+        private Builder(String name) {
+            if (name == null || name.isEmpty()) {
+                throw new IllegalArgumentException("name 不能为空");
+            }
+            this.name = name;
+        }
+
+        /**
+         * 自己创建池时的并行度，默认 CPU 核数
+         */
+        public Builder parallelism(int parallelism) {
+            if (parallelism <= 0) {
+                throw new IllegalArgumentException("parallelism 必须大于 0：" + parallelism);
+            }
+            this.parallelism = parallelism;
+            return this;
+        }
+
+        /**
+         * 使用调用方的池，parallelism 不再生效
+         */
+        public Builder pool(ForkJoinPool pool) {
+            this.pool = Objects.requireNonNull(pool, "pool");
+            return this;
+        }
+
+        /**
+         * 同时执行的流水线上限，默认不限制
+         */
+        public Builder maxConcurrent(int maxConcurrent) {
+            if (maxConcurrent <= 0) {
+                throw new IllegalArgumentException("maxConcurrent 必须大于 0：" + maxConcurrent);
+            }
+            this.maxConcurrent = maxConcurrent;
+            return this;
+        }
+
+        /**
+         * 舱壁满时的最长等待时间，默认不等待
+         */
+        public Builder acquireTimeout(Duration acquireTimeout) {
+            if (acquireTimeout.isNegative()) {
+                throw new IllegalArgumentException("acquireTimeout 不能为负：" + acquireTimeout);
+            }
+            this.acquireTimeout = acquireTimeout;
+            return this;
+        }
+
+        /**
+         * 创建并按名字注册，名字已存在时抛 IllegalStateException
+         */
+        public StreamPool build() {
+            StreamPool streamPool = new StreamPool(this);
+            if (REGISTRY.putIfAbsent(name, streamPool) != null) {
+                streamPool.close();
+                throw new IllegalStateException("StreamPool 已存在：" + name);
+            }
+            return streamPool;
+        }
+    }
+
+    public static final class Stats {
+        private final String name;
+        private final int parallelism;
+        private final int poolSize;
+        private final int activeThreads;
+        private final long stealCount;
+        private final long queuedTasks;
+        private final int queuedSubmissions;
+        private final int runningPipelines;
+        private final int waitingPipelines;
+        private final long submitted;
+        private final long completed;
+        private final long failed;
+        private final long rejected;
+
+        Stats(String name, int parallelism, int poolSize, int activeThreads, long stealCount, long queuedTasks,
+                int queuedSubmissions, int runningPipelines, int waitingPipelines, long submitted, long completed,
+                long failed, long rejected) {
+            this.name = name;
+            this.parallelism = parallelism;
+            this.poolSize = poolSize;
+            this.activeThreads = activeThreads;
+            this.stealCount = stealCount;
+            this.queuedTasks = queuedTasks;
+            this.queuedSubmissions = queuedSubmissions;
+            this.runningPipelines = runningPipelines;
+            this.waitingPipelines = waitingPipelines;
+            this.submitted = submitted;
+            this.completed = completed;
+            this.failed = failed;
+            this.rejected = rejected;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getParallelism() {
+            return parallelism;
+        }
+
+        public int getPoolSize() {
+            return poolSize;
+        }
+
+        public int getActiveThreads() {
+            return activeThreads;
+        }
+
+        /**
+         * 工作线程从其他线程队列窃取任务的次数，偏高说明拆分不均或任务粒度太细
+         */
+        public long getStealCount() {
+            return stealCount;
+        }
+
+        /**
+         * 工作线程队列中的任务数（拆分出的子任务）
+         */
+        public long getQueuedTasks() {
+            return queuedTasks;
+        }
+
+        /**
+         * 外部提交还没开始执行的任务数
+         */
+        public int getQueuedSubmissions() {
+            return queuedSubmissions;
+        }
+
+        public int getRunningPipelines() {
+            return runningPipelines;
+        }
+
+        /**
+         * 正在等待舱壁许可的线程数
+         */
+        public int getWaitingPipelines() {
+            return waitingPipelines;
+        }
+
+        public long getSubmitted() {
+            return submitted;
+        }
+
+        public long getCompleted() {
+            return completed;
+        }
+
+        public long getFailed() {
+            return failed;
+        }
+
+        public long getRejected() {
+            return rejected;
+        }
+
+        @Override
+        public String toString() {
+            return "Stats{name=" + name + ", parallelism=" + parallelism + ", poolSize=" + poolSize
+                    + ", activeThreads=" + activeThreads + ", steals=" + stealCount + ", queuedTasks=" + queuedTasks
+                    + ", queuedSubmissions=" + queuedSubmissions + ", running=" + runningPipelines + ", waiting="
+                    + waitingPipelines + ", submitted=" + submitted + ", completed=" + completed + ", failed="
+                    + failed + ", rejected=" + rejected + "}";
+        }
+    }
+}
@@ -6,8 +6,8 @@ import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.time.format.FormatStyle;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.stream.Collectors;
 
 
 public class TimeDemo {
@@ -26,6 +26,7 @@ public class TimeDemo {
 		stringList.add("2");
 		stringList.add("3");
 
-		System.out.println(stringList.stream().map(Integer::parseInt).collect(Collectors.toList()));
+		//mapToInt直接得到int，不像map(Integer::parseInt).collect(toList())那样每个元素装箱成Integer
+		System.out.println(Arrays.toString(stringList.stream().mapToInt(Integer::parseInt).toArray()));
 	}
 }